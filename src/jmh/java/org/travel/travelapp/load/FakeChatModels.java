@@ -0,0 +1,140 @@
+package org.travel.travelapp.load;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-ins for the Claude and Gemma chat models, registered under the bean names
+ * {@link org.travel.travelapp.config.ChatClientConfig} injects, so everything above the model runs for real.
+ * Run with {@code spring.ai.model.chat=none} so the real models aren't auto-configured.
+ */
+@Configuration
+public class FakeChatModels {
+
+    private static final int STREAM_CHUNK_CHARS = 64;
+
+    @Bean
+    public ChatModel anthropicChatModel(@Value("${load.model.latency:2s}") Duration latency) {
+        return new FakeClaude(latency);
+    }
+
+    @Bean
+    public ChatModel openAiChatModel(@Value("${load.sanitizer.latency:200ms}") Duration latency) {
+        return new FakeGemma(latency);
+    }
+
+    /**
+     * Calls every tool attached to the prompt once, like a model doing its research, then answers with a full plan.
+     */
+    static class FakeClaude implements ChatModel {
+
+        private final Duration latency;
+
+        FakeClaude(Duration latency) {
+            this.latency = latency;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            callTools(prompt);
+            sleep(latency);
+            String text = Fixtures.tripPlanJson(destination(prompt));
+            // Roughly 4 characters per token, as with real Claude output
+            DefaultUsage usage = new DefaultUsage(prompt.getContents().length() / 4, text.length() / 4);
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(text))),
+                    ChatResponseMetadata.builder().usage(usage).build());
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            return Flux.defer(() -> {
+                callTools(prompt);
+                String text = Fixtures.tripPlanJson(destination(prompt));
+                List<String> chunks = new ArrayList<>();
+                for (int i = 0; i < text.length(); i += STREAM_CHUNK_CHARS) {
+                    chunks.add(text.substring(i, Math.min(text.length(), i + STREAM_CHUNK_CHARS)));
+                }
+                Duration perChunk = latency.dividedBy(Math.max(1, chunks.size()));
+                return Flux.fromIterable(chunks)
+                        .delayElements(perChunk)
+                        .map(chunk -> new ChatResponse(List.of(new Generation(new AssistantMessage(chunk)))));
+            });
+        }
+
+        private void callTools(Prompt prompt) {
+            if (!(prompt.getOptions() instanceof ToolCallingChatOptions options)) {
+                return;
+            }
+            ToolContext toolContext = new ToolContext(options.getToolContext());
+            // Arguments vary per prompt so the tool result caches see realistic misses
+            String arguments = "{\"query\":\"" + Integer.toHexString(prompt.getContents().hashCode()) + "\"}";
+            for (ToolCallback callback : options.getToolCallbacks()) {
+                callback.call(arguments, toolContext);
+            }
+        }
+
+        private static String destination(Prompt prompt) {
+            String contents = prompt.getContents();
+            int start = contents.indexOf("Destination: ");
+            if (start < 0) {
+                return "the destination";
+            }
+            int end = contents.indexOf('\n', start);
+            return contents.substring(start + "Destination: ".length(), end < 0 ? contents.length() : end).trim();
+        }
+    }
+
+    /**
+     * Returns the description it was asked to sanitize, unchanged, and answers a ranking prompt with a plan over the
+     * places it was given, so local plans pass validation.
+     */
+    static class FakeGemma implements ChatModel {
+
+        private final Duration latency;
+
+        FakeGemma(Duration latency) {
+            this.latency = latency;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            sleep(latency);
+            String contents = prompt.getUserMessage().getText();
+            if (contents.contains("Attractions with their distance from the city center")) {
+                String text = Fixtures.rankedTripPlanJson(FakeClaude.destination(prompt));
+                return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+            }
+            int batch = contents.indexOf("<<<1>>>");
+            if (batch >= 0) {
+                // A batch of descriptions: echo the numbered blocks back as they are
+                return new ChatResponse(List.of(new Generation(new AssistantMessage(contents.substring(batch).trim()))));
+            }
+            String description = contents.substring(contents.lastIndexOf("\n\n") + 1).trim();
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(description))));
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
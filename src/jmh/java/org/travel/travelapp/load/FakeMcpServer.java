@@ -0,0 +1,146 @@
+package org.travel.travelapp.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal MCP server over stdio exposing the tools the planner uses, each answering after a fixed latency.
+ * Requests are handled concurrently, like a server that isn't the bottleneck itself.
+ * <p>
+ * Usage: {@code java -cp <classpath> org.travel.travelapp.load.FakeMcpServer <latency millis> [<startup millis>]},
+ * where the startup delay stands in for a server that takes a while to come up, like one pulled by npx or docker.
+ */
+public class FakeMcpServer {
+
+    private static final List<String> TOOLS = List.of(
+            "maps_search_places", "maps_distance_matrix", "maps_geocode", "brave_web_search", "search_flight_offers");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PrintStream out;
+    private final long latencyMillis;
+
+    FakeMcpServer(PrintStream out, long latencyMillis) {
+        this.out = out;
+        this.latencyMillis = latencyMillis;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long latencyMillis = args.length > 0 ? Long.parseLong(args[0]) : 50;
+        long startupMillis = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        // Anything else writing to stdout would corrupt the protocol
+        System.setOut(System.err);
+        try {
+            Thread.sleep(startupMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        new FakeMcpServer(out, latencyMillis).serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+    }
+
+    void serve(BufferedReader in) throws IOException {
+        try (ExecutorService handlers = Executors.newVirtualThreadPerTaskExecutor()) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode message = objectMapper.readTree(line);
+                if (message.hasNonNull("id") && message.hasNonNull("method")) {
+                    handlers.submit(() -> respond(message));
+                }
+            }
+        }
+    }
+
+    private void respond(JsonNode request) {
+        ObjectNode response = objectMapper.createObjectNode().put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        switch (request.get("method").asText()) {
+            case "initialize" -> response.set("result", initializeResult(request.path("params")));
+            case "tools/list" -> response.set("result", toolsListResult());
+            case "tools/call" -> {
+                sleep();
+                response.set("result", toolCallResult(request.path("params").path("name").asText()));
+            }
+            case "ping" -> response.set("result", objectMapper.createObjectNode());
+            default -> response.set("error", objectMapper.createObjectNode()
+                    .put("code", -32601)
+                    .put("message", "Method not found"));
+        }
+        write(response);
+    }
+
+    private ObjectNode initializeResult(JsonNode params) {
+        ObjectNode result = objectMapper.createObjectNode()
+                .put("protocolVersion", params.path("protocolVersion").asText("2024-11-05"));
+        result.putObject("capabilities").putObject("tools").put("listChanged", false);
+        result.putObject("serverInfo").put("name", "fake").put("version", "1.0.0");
+        return result;
+    }
+
+    private ObjectNode toolsListResult() {
+        ObjectNode result = objectMapper.createObjectNode();
+        ArrayNode tools = result.putArray("tools");
+        for (String name : TOOLS) {
+            ObjectNode tool = tools.addObject().put("name", name).put("description", "Fake " + name);
+            tool.putObject("inputSchema").put("type", "object").putObject("properties");
+        }
+        return result;
+    }
+
+    private ObjectNode toolCallResult(String tool) {
+        String text = switch (tool) {
+            case "maps_search_places" -> placesJson();
+            case "maps_distance_matrix" ->
+                    "{\"results\":[{\"elements\":[{\"status\":\"OK\",\"distance\":{\"value\":1850}}]}]}";
+            case "maps_geocode" -> "{\"location\":{\"lat\":38.7139,\"lng\":-9.1334}}";
+            case "search_flight_offers" -> "[{\"price\":{\"total\":\"215.00\",\"currency\":\"EUR\"}}]";
+            default -> "Top things to do: the old town, the castle, the river front and the food market.";
+        };
+        ObjectNode result = objectMapper.createObjectNode().put("isError", false);
+        result.putArray("content").addObject().put("type", "text").put("text", text);
+        return result;
+    }
+
+    private String placesJson() {
+        StringBuilder json = new StringBuilder("{\"places\":[");
+        for (int i = 1; i <= 10; i++) {
+            json.append("{\"name\":\"Place ").append(i).append("\",\"formatted_address\":\"")
+                    .append(i).append(" Main Street\"");
+            // Half the places come with coordinates, the rest have to be geocoded
+            if (i % 2 == 0) {
+                json.append(",\"location\":{\"lat\":").append(38.70 + i / 1000.0).append(",\"lng\":-9.14}");
+            }
+            json.append("}").append(i < 10 ? "," : "");
+        }
+        return json.append("]}").toString();
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(ObjectNode message) {
+        synchronized (out) {
+            out.println(message);
+            out.flush();
+        }
+    }
+}
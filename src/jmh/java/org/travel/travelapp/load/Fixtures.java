@@ -0,0 +1,76 @@
+package org.travel.travelapp.load;
+
+import org.travel.travelapp.dto.ItineraryRequest;
+
+import java.time.LocalDate;
+
+/**
+ * Payloads shared by the benchmarks, the fake models and the load driver, shaped like real Claude output.
+ */
+public final class Fixtures {
+
+    private static final String[] DESTINATIONS = {"Lisbon", "Paris", "Rome", "Barcelona", "Amsterdam", "Prague"};
+
+    private Fixtures() {
+    }
+
+    public static String tripPlanJson(String destination) {
+        return tripPlanJson(destination, destination + " attraction ");
+    }
+
+    /**
+     * A plan over the places the fake MCP server finds, as a model ranking the collected tool data writes it.
+     */
+    public static String rankedTripPlanJson(String destination) {
+        return tripPlanJson(destination, "Place ");
+    }
+
+    private static String tripPlanJson(String destination, String attractionPrefix) {
+        StringBuilder json = new StringBuilder()
+                .append("{\n  \"summary\": \"Four days in ").append(destination)
+                .append(" mixing historic neighbourhoods, local food and a day trip along the coast.\",\n")
+                .append("  \"attractions\": [\n");
+        for (int i = 1; i <= 10; i++) {
+            json.append("    {\"name\": \"").append(attractionPrefix).append(i)
+                    .append("\", \"description\": \"A well-known sight worth a few hours, with views over the old town.\"")
+                    .append(", \"distanceFromCenter\": ").append(i * 0.7)
+                    .append(", \"address\": \"").append(i).append(" Main Street, ").append(destination).append("\"}")
+                    .append(i < 10 ? ",\n" : "\n");
+        }
+        json.append("  ],\n  \"flights\": [\n");
+        for (int i = 1; i <= 5; i++) {
+            json.append("    {\"airline\": \"Airline ").append(i).append("\", \"price\": \"$").append(180 + i * 35)
+                    .append("\", \"departureTime\": \"0").append(i + 4).append(":30\", \"arrivalTime\": \"1")
+                    .append(i).append(":05\", \"duration\": \"").append(i + 2).append("h 35m\", \"stops\": ")
+                    .append(i % 2).append(", \"bookingClass\": \"Economy\"}")
+                    .append(i < 5 ? ",\n" : "\n");
+        }
+        return json.append("  ]\n}").toString();
+    }
+
+    /**
+     * The way Claude most often deviates from the contract: a markdown fence around the JSON.
+     */
+    public static String fencedTripPlanJson(String destination) {
+        return "```json\n" + tripPlanJson(destination) + "\n```";
+    }
+
+    /**
+     * A response cut off mid-way, e.g. by the max-tokens limit.
+     */
+    public static String truncatedTripPlanJson(String destination) {
+        String json = tripPlanJson(destination);
+        return json.substring(0, json.length() / 2);
+    }
+
+    public static ItineraryRequest request(int index) {
+        ItineraryRequest request = new ItineraryRequest();
+        request.setFrom("LHR");
+        request.setTo(DESTINATIONS[index % DESTINATIONS.length]);
+        request.setStartDate(LocalDate.now().plusDays(30 + index % 60));
+        request.setEndDate(request.getStartDate().plusDays(4));
+        request.setNumberOfAdults(1 + index % 4);
+        request.setDescription("Museums, local food and a relaxed pace, trip " + index);
+        return request;
+    }
+}
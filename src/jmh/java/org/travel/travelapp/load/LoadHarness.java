@@ -0,0 +1,163 @@
+package org.travel.travelapp.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.travel.travelapp.TravelappApplication;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test of {@code POST /api/itinerary}: the real application with fake Claude/Gemma models
+ * and a fake stdio MCP server, so results are repeatable and cost nothing.
+ * <p>
+ * Requests are sent open-loop at a fixed arrival rate, and latency is measured from when each request was
+ * due rather than when it was actually sent, so a stalled server shows up in the percentiles instead of
+ * silently slowing the load down.
+ * <p>
+ * Boot time, until the application is ready to take requests, is printed before the load starts, and the share of
+ * requests the router planned locally, and of those escalated to Claude, after it.
+ * <p>
+ * Settings, as {@code --name=value} arguments (passed through {@code -Dbenchmark.args}) or system properties: {@code load.rate} requests/s (default 5),
+ * {@code load.duration} (30s), {@code load.model.latency} (2s), {@code load.sanitizer.latency} (200ms),
+ * {@code load.mcp.latency} millis (100) and {@code load.mcp.startup} millis (0) before the fake MCP server answers at all.
+ */
+public class LoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        StandardEnvironment settings = new StandardEnvironment();
+        settings.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        double rate = settings.getProperty("load.rate", Double.class, 5.0);
+        Duration duration = DurationStyle.detectAndParse(settings.getProperty("load.duration", "30s"));
+        long mcpLatencyMillis = settings.getProperty("load.mcp.latency", Long.class, 100L);
+        long mcpStartupMillis = settings.getProperty("load.mcp.startup", Long.class, 0L);
+
+        Path mcpConfig = writeMcpConfig(mcpLatencyMillis, mcpStartupMillis);
+        // As command line arguments, so they win over application.properties
+        String[] harnessArgs = {
+                "--spring.ai.model.chat=none",
+                "--spring.ai.anthropic.api-key=unused",
+                "--spring.ai.mcp.client.stdio.servers-configuration=file:" + mcpConfig,
+                "--travel.planner.step-tools.flights=search_flight_offers",
+                "--travel.bulkhead.defaults.max-limit=1000",
+                "--server.port=0"};
+        String[] applicationArgs = Stream.concat(Arrays.stream(harnessArgs), Arrays.stream(args)).toArray(String[]::new);
+        long booting = System.nanoTime();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TravelappApplication.class, FakeChatModels.class)
+                .run(applicationArgs)) {
+            System.out.printf("Application ready in %d ms%n", (System.nanoTime() - booting) / 1_000_000);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            run(URI.create("http://localhost:" + port + "/api/itinerary"), rate, duration);
+            printRouting(context.getBean(MeterRegistry.class));
+        } finally {
+            Files.deleteIfExists(mcpConfig);
+        }
+    }
+
+    private static Path writeMcpConfig(long mcpLatencyMillis, long mcpStartupMillis) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode config = objectMapper.createObjectNode();
+        ObjectNode server = config.putObject("mcpServers").putObject("fake");
+        server.put("command", Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        server.putArray("args")
+                .add("-cp").add(System.getProperty("java.class.path"))
+                .add(FakeMcpServer.class.getName())
+                .add(String.valueOf(mcpLatencyMillis))
+                .add(String.valueOf(mcpStartupMillis));
+        File file = File.createTempFile("mcp_config", ".json");
+        objectMapper.writeValue(file, config);
+        return file.toPath();
+    }
+
+    private static void run(URI uri, double rate, Duration duration) throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        HttpClient httpClient = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+
+        int total = (int) (rate * duration.toMillis() / 1000);
+        long intervalNanos = (long) (1_000_000_000L / rate);
+        AtomicLongArray latencies = new AtomicLongArray(total);
+        Map<String, LongAdder> outcomes = new ConcurrentSkipListMap<>();
+
+        System.out.printf("Sending %d requests at %.1f/s to %s%n", total, rate, uri);
+        long start = System.nanoTime();
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < total; i++) {
+                long due = start + i * intervalNanos;
+                LockSupport.parkNanos(due - System.nanoTime());
+                HttpRequest request = HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofMinutes(5))
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(Fixtures.request(i))))
+                        .build();
+                int index = i;
+                senders.submit(() -> {
+                    String outcome;
+                    try {
+                        outcome = String.valueOf(httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+                    } catch (Exception e) {
+                        outcome = e.getClass().getSimpleName();
+                    }
+                    outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                    latencies.set(index, System.nanoTime() - due);
+                });
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = new long[total];
+        for (int i = 0; i < total; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+        System.out.printf("requests=%d outcomes=%s throughput=%.2f/s%n", total, outcomes, total / elapsedSeconds);
+        System.out.printf("latency ms: p50=%d p90=%d p99=%d max=%d%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 1.0));
+    }
+
+    // Local and escalation rates, from the router's counters
+    private static void printRouting(MeterRegistry meterRegistry) {
+        Map<String, Double> routes = new TreeMap<>();
+        meterRegistry.find("trip.plan.routes").counters()
+                .forEach(counter -> routes.merge(counter.getId().getTag("route"), counter.count(), Double::sum));
+        Map<String, Double> escalations = new TreeMap<>();
+        meterRegistry.find("trip.plan.escalations").counters()
+                .forEach(counter -> escalations.merge(counter.getId().getTag("reason"), counter.count(), Double::sum));
+        double routed = routes.values().stream().mapToDouble(Double::doubleValue).sum();
+        double local = routes.getOrDefault("local", 0.0);
+        double escalated = escalations.values().stream().mapToDouble(Double::doubleValue).sum();
+        System.out.printf("routes=%s local rate=%.0f%% escalations=%s escalation rate=%.0f%%%n",
+                routes, routed > 0 ? 100 * local / routed : 0, escalations, local > 0 ? 100 * escalated / local : 0);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000;
+    }
+}
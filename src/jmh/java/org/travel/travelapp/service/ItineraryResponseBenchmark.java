@@ -0,0 +1,49 @@
+package org.travel.travelapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.ItineraryResponse;
+import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.load.Fixtures;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing the full response body, with a mapper configured the way Spring Boot configures its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItineraryResponseBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ItineraryResponse response;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ItineraryRequest request = Fixtures.request(1);
+        response = ItineraryService.newResponse("bench", request, request.getDescription());
+        response.setTripPlan(objectMapper.readValue(Fixtures.tripPlanJson(request.getTo()), TripPlan.class));
+    }
+
+    @Benchmark
+    public byte[] serializeItineraryResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,80 @@
+package org.travel.travelapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.load.Fixtures;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of the planner's own work around the Claude call: parsing responses and building prompts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripPlannerBenchmark {
+
+    private TripPlannerService tripPlannerService;
+    private ItineraryRequest request;
+    private String plainJson;
+    private String fencedJson;
+    private String truncatedJson;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        // Only the mapper and the meter registry are used by the benchmarked methods
+        tripPlannerService = new TripPlannerService(null, null, objectMapper, null, null, null, null, new SimpleMeterRegistry(), null, null, null, null, null, null);
+        request = Fixtures.request(1);
+        plainJson = Fixtures.tripPlanJson("Lisbon");
+        fencedJson = Fixtures.fencedTripPlanJson("Lisbon");
+        truncatedJson = Fixtures.truncatedTripPlanJson("Lisbon");
+    }
+
+    @Benchmark
+    public TripPlan parseTripPlan() {
+        return tripPlannerService.parseTripPlan(plainJson);
+    }
+
+    @Benchmark
+    public TripPlan parseFencedTripPlan() {
+        return tripPlannerService.parseTripPlan(fencedJson);
+    }
+
+    @Benchmark
+    public void parseTruncatedTripPlan(Blackhole blackhole) {
+        try {
+            blackhole.consume(tripPlannerService.parseTripPlan(truncatedJson));
+        } catch (IllegalStateException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public String buildSingleSectionPrompt() {
+        return TripPlannerService.buildUserPrompt(request, request.getDescription(), EnumSet.of(PlanSection.ATTRACTIONS));
+    }
+
+    @Benchmark
+    public String buildFullPlanPrompt() {
+        return TripPlannerService.buildUserPrompt(request, request.getDescription(), EnumSet.allOf(PlanSection.class));
+    }
+}
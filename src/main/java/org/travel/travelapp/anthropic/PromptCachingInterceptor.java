@@ -0,0 +1,141 @@
+package org.travel.travelapp.anthropic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Turns on Anthropic prompt caching for Messages API calls, which Spring AI's Anthropic client doesn't expose.
+ * The last tool definition and the system prompt are marked with an ephemeral {@code cache_control} breakpoint,
+ * so the tools + system prefix is processed once and then read from cache while it stays warm.
+ * Cache reads and writes reported in the response usage are logged and counted as {@code claude.cache.tokens}.
+ */
+@Slf4j
+public class PromptCachingInterceptor implements ClientHttpRequestInterceptor {
+
+    private final String messagesPath;
+    private final ObjectMapper objectMapper;
+    private final Counter cacheReadTokens;
+    private final Counter cacheWriteTokens;
+
+    public PromptCachingInterceptor(String messagesPath, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.messagesPath = messagesPath;
+        this.objectMapper = objectMapper;
+        this.cacheReadTokens = Counter.builder("claude.cache.tokens").tag("type", "read")
+                .description("Input tokens served from the Anthropic prompt cache")
+                .register(meterRegistry);
+        this.cacheWriteTokens = Counter.builder("claude.cache.tokens").tag("type", "write")
+                .description("Input tokens written to the Anthropic prompt cache")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (request.getMethod() != HttpMethod.POST || !request.getURI().getPath().endsWith(messagesPath)) {
+            return execution.execute(request, body);
+        }
+
+        ClientHttpResponse response = execution.execute(request, markCacheable(body));
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return response;
+        }
+
+        // Read the usage off a buffered copy, then hand the same bytes on to Spring AI
+        byte[] responseBody = response.getBody().readAllBytes();
+        recordUsage(responseBody);
+        return new BufferedResponse(response, responseBody);
+    }
+
+    byte[] markCacheable(byte[] body) throws IOException {
+        JsonNode root = objectMapper.readTree(body);
+        if (!(root instanceof ObjectNode message)) {
+            return body;
+        }
+
+        // Cache order is tools, then system, then messages; a breakpoint caches everything before it
+        if (message.get("tools") instanceof ArrayNode tools && !tools.isEmpty()
+                && tools.get(tools.size() - 1) instanceof ObjectNode lastTool) {
+            lastTool.set("cache_control", ephemeral());
+        }
+
+        JsonNode system = message.get("system");
+        if (system != null && system.isTextual() && !system.asText().isBlank()) {
+            ObjectNode block = objectMapper.createObjectNode()
+                    .put("type", "text")
+                    .put("text", system.asText());
+            block.set("cache_control", ephemeral());
+            message.set("system", objectMapper.createArrayNode().add(block));
+        }
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    private void recordUsage(byte[] responseBody) {
+        try {
+            JsonNode usage = objectMapper.readTree(responseBody).path("usage");
+            long read = usage.path("cache_read_input_tokens").asLong();
+            long written = usage.path("cache_creation_input_tokens").asLong();
+            cacheReadTokens.increment(read);
+            cacheWriteTokens.increment(written);
+            log.info("Claude prompt cache: {} tokens read, {} tokens written, {} uncached input tokens",
+                    read, written, usage.path("input_tokens").asLong());
+        } catch (IOException e) {
+            log.debug("Could not read usage from Claude response: {}", e.getMessage());
+        }
+    }
+
+    private ObjectNode ephemeral() {
+        return objectMapper.createObjectNode().put("type", "ephemeral");
+    }
+
+    private static final class BufferedResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final byte[] body;
+
+        private BufferedResponse(ClientHttpResponse delegate, byte[] body) {
+            this.delegate = delegate;
+            this.body = body;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.travel.travelapp.batch;
+
+/**
+ * Thrown by a batch call whose answer can't be split back into one result per item, so each item is retried
+ * on its own.
+ */
+public class MalformedBatchException extends RuntimeException {
+
+    public MalformedBatchException(String message) {
+        super(message);
+    }
+}
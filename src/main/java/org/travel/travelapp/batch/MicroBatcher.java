@@ -0,0 +1,154 @@
+package org.travel.travelapp.batch;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects concurrent calls over a short window, or until the batch is full, and makes them as one call.
+ * <p>
+ * The first call of a batch opens the window; the batch is sent when the window closes or it reaches the
+ * maximum size, whichever comes first, on a virtual thread of its own, and each caller blocks until its own
+ * result is in. A batch of one is made as a single call. When the batch call throws
+ * {@link MalformedBatchException}, or answers with the wrong number of results, every item is retried as a
+ * single call; any other failure fails the whole batch, as it would have failed each call. Batch sizes are
+ * recorded as {@code batch.size{batch}} and batches as {@code batch.calls{batch, outcome=batched|fallback|single|error}}.
+ */
+@Slf4j
+public class MicroBatcher<T, R> {
+
+    private final String name;
+    private final Duration window;
+    private final int maxSize;
+    private final Function<List<T>, List<R>> batchCall;
+    private final Function<T, R> singleCall;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary sizes;
+
+    // Guarded by this; null while no batch is collecting
+    private List<Pending<T, R>> open;
+
+    /**
+     * @param maxSize a size of 1 or less turns batching off, every call is made directly
+     */
+    public MicroBatcher(String name, Duration window, int maxSize, Function<List<T>, List<R>> batchCall,
+                        Function<T, R> singleCall, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.window = window;
+        this.maxSize = maxSize;
+        this.batchCall = batchCall;
+        this.singleCall = singleCall;
+        this.meterRegistry = meterRegistry;
+        this.sizes = DistributionSummary.builder("batch.size").tag("batch", name).register(meterRegistry);
+    }
+
+    public R call(T item) {
+        if (maxSize <= 1) {
+            return singleCall.apply(item);
+        }
+        CompletableFuture<R> result = enqueue(item);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            // The batch still runs for the other callers, this result is simply dropped
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the " + name + " batch", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private CompletableFuture<R> enqueue(T item) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        List<Pending<T, R>> full = null;
+        synchronized (this) {
+            if (open == null) {
+                List<Pending<T, R>> batch = new ArrayList<>(maxSize);
+                open = batch;
+                CompletableFuture.delayedExecutor(window.toNanos(), TimeUnit.NANOSECONDS).execute(() -> windowClosed(batch));
+            }
+            open.add(new Pending<>(item, result));
+            if (open.size() >= maxSize) {
+                full = open;
+                open = null;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return result;
+    }
+
+    private void windowClosed(List<Pending<T, R>> batch) {
+        synchronized (this) {
+            // Already sent because it filled up before the window closed
+            if (open != batch) {
+                return;
+            }
+            open = null;
+        }
+        send(batch);
+    }
+
+    private void send(List<Pending<T, R>> batch) {
+        Thread.ofVirtual().name("batch-" + name).start(() -> run(batch));
+    }
+
+    private void run(List<Pending<T, R>> batch) {
+        sizes.record(batch.size());
+        if (batch.size() == 1) {
+            record("single");
+            callSingly(batch.getFirst());
+            return;
+        }
+
+        List<R> results;
+        try {
+            results = batchCall.apply(batch.stream().map(Pending::item).toList());
+            if (results == null || results.size() != batch.size()) {
+                throw new MalformedBatchException("Expected " + batch.size() + " results but got "
+                        + (results == null ? "none" : results.size()));
+            }
+        } catch (MalformedBatchException e) {
+            log.warn("Batch of {} {} calls was malformed ({}), making them one at a time", batch.size(), name, e.getMessage());
+            record("fallback");
+            batch.forEach(pending -> Thread.ofVirtual().name("batch-" + name).start(() -> callSingly(pending)));
+            return;
+        } catch (Throwable e) {
+            record("error");
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+            return;
+        }
+
+        record("batched");
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(results.get(i));
+        }
+    }
+
+    private void callSingly(Pending<T, R> pending) {
+        try {
+            pending.result().complete(singleCall.apply(pending.item()));
+        } catch (Throwable e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private void record(String outcome) {
+        meterRegistry.counter("batch.calls", "batch", name, "outcome", outcome).increment();
+    }
+
+    private record Pending<T, R>(T item, CompletableFuture<R> result) {
+    }
+}
@@ -0,0 +1,214 @@
+package org.travel.travelapp.bulkhead;
+
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Concurrency limit for one downstream whose size adapts to observed latency (AIMD).
+ * While calls complete close to the best latency seen, the limit grows by one per limit's worth of calls;
+ * when latency climbs past the tolerated ratio or a call fails, the limit is cut multiplicatively.
+ * Calls over the limit wait up to {@code maxWait} for a slot and are then rejected.
+ * <p>
+ * Only successful calls feed the latency baseline, so a fast failure can't make every later call look slow.
+ * Calls of different kinds, e.g. a plain model call and a tool loop, are compared against baselines of their own.
+ * A cancelled call, e.g. an interrupted hedge loser or a client that went away, says nothing about the
+ * downstream and leaves the limit as it is.
+ */
+public class AdaptiveBulkhead {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    // The no-load latency estimate drifts upwards slowly, so a permanently slower downstream is re-baselined
+    private static final double BASELINE_DRIFT = 0.01;
+    public static final String DEFAULT_KIND = "default";
+
+    /**
+     * How a call ended, as far as the limit is concerned.
+     */
+    public enum Outcome {
+        SUCCESS,
+        FAILURE,
+        CANCELLED
+    }
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final Duration maxWait;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    // Best latency per kind of call, guarded by the lock
+    private final Map<String, Double> baselineNanos = new HashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public AdaptiveBulkhead(String name, int initialLimit, int minLimit, int maxLimit,
+                            double latencyTolerance, Duration maxWait) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Bulkhead limits must satisfy 1 <= min <= max");
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.maxWait = maxWait;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        return execute(DEFAULT_KIND, call);
+    }
+
+    /**
+     * @param kind calls of the same kind share a latency baseline
+     */
+    public <T> T execute(String kind, Supplier<T> call) {
+        acquire();
+        long started = System.nanoTime();
+        Outcome outcome = Outcome.FAILURE;
+        try {
+            T result = call.get();
+            outcome = Outcome.SUCCESS;
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (isCancellation(e)) {
+                outcome = Outcome.CANCELLED;
+            }
+            throw e;
+        } finally {
+            release(kind, System.nanoTime() - started, outcome);
+        }
+    }
+
+    /**
+     * Takes a slot, waiting up to {@code maxWait} for one to free up.
+     *
+     * @throws DownstreamOverloadedException if no slot became available in time
+     * @throws CancellationException if the caller was interrupted while waiting
+     */
+    public void acquire() {
+        long remaining = maxWait.toNanos();
+        lock.lock();
+        try {
+            while (inFlight >= currentLimit()) {
+                if (remaining <= 0) {
+                    rejected.increment();
+                    throw new DownstreamOverloadedException(name, maxWait);
+                }
+                remaining = slotFreed.awaitNanos(remaining);
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            // The caller went away; the downstream isn't to blame
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the " + name + " bulkhead");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a slot taken with {@link #acquire()} and feeds the call's latency into the limit.
+     */
+    public void release(String kind, long latencyNanos, Outcome outcome) {
+        lock.lock();
+        try {
+            inFlight--;
+            adjustLimit(kind, latencyNanos, outcome);
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int currentLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Whether the failure is the caller giving up, rather than the downstream failing.
+     */
+    public static boolean isCancellation(Throwable failure) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException || cause instanceof InterruptedException
+                    || cause instanceof InterruptedIOException || cause instanceof ClosedByInterruptException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void adjustLimit(String kind, long latencyNanos, Outcome outcome) {
+        if (outcome == Outcome.CANCELLED) {
+            return;
+        }
+        if (outcome == Outcome.FAILURE) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+
+        Double baseline = baselineNanos.get(kind);
+        baseline = baseline == null || latencyNanos < baseline
+                ? latencyNanos
+                : baseline + (latencyNanos - baseline) * BASELINE_DRIFT;
+        baselineNanos.put(kind, baseline);
+
+        if (latencyNanos > baseline * latencyTolerance) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        } else if (inFlight + 1 >= (int) limit / 2) {
+            // Only grow while the limit is actually being used
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            Map<String, Long> baselines = new TreeMap<>();
+            baselineNanos.forEach((kind, nanos) -> baselines.put(kind, TimeUnit.NANOSECONDS.toMillis(nanos.longValue())));
+            return "AdaptiveBulkhead[" + name + ", limit=" + (int) limit + ", inFlight=" + inFlight
+                    + ", baselines=" + baselines + "ms]";
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.travel.travelapp.bulkhead;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs every call and stream of a {@code ChatClient} inside the model's bulkhead.
+ * A streamed response holds its slot from subscription until the stream terminates.
+ * <p>
+ * Calls with tools run the whole tool loop inside the slot and are always slower than calls without, so the two
+ * kinds are held to latency baselines of their own. A cancelled stream leaves the limit alone.
+ */
+public class BulkheadAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final AdaptiveBulkhead bulkhead;
+
+    public BulkheadAdvisor(AdaptiveBulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        return bulkhead.execute(kind(request), () -> chain.nextCall(request));
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.defer(() -> {
+            bulkhead.acquire();
+            long started = System.nanoTime();
+            AtomicBoolean cancelled = new AtomicBoolean();
+            return chain.nextStream(request)
+                    .doOnError(e -> cancelled.set(AdaptiveBulkhead.isCancellation(e)))
+                    .doFinally(signal -> bulkhead.release(kind(request), System.nanoTime() - started,
+                            switch (signal) {
+                                case ON_COMPLETE -> AdaptiveBulkhead.Outcome.SUCCESS;
+                                case CANCEL -> AdaptiveBulkhead.Outcome.CANCELLED;
+                                default -> cancelled.get() ? AdaptiveBulkhead.Outcome.CANCELLED : AdaptiveBulkhead.Outcome.FAILURE;
+                            }));
+        });
+    }
+
+    static String kind(ChatClientRequest request) {
+        if (request.prompt().getOptions() instanceof ToolCallingChatOptions options
+                && (!options.getToolCallbacks().isEmpty() || !options.getToolNames().isEmpty())) {
+            return "tools";
+        }
+        return "plain";
+    }
+
+    @Override
+    public String getName() {
+        return "BulkheadAdvisor[" + bulkhead.getName() + "]";
+    }
+
+    @Override
+    public int getOrder() {
+        // Outermost, so the slot also covers any other advisors
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,45 @@
+package org.travel.travelapp.bulkhead;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bulkhead settings: defaults plus per-downstream overrides, keyed by downstream name
+ * ({@code claude}, {@code gemma} or an MCP server name from mcp_config.json).
+ */
+@Data
+@ConfigurationProperties(prefix = "travel.bulkhead")
+public class BulkheadProperties {
+
+    private Settings defaults = new Settings();
+    private Map<String, Settings> downstreams = new HashMap<>();
+
+    public Settings forDownstream(String name) {
+        Settings override = downstreams.get(name);
+        if (override == null) {
+            return defaults;
+        }
+        Settings merged = new Settings();
+        merged.setInitialLimit(override.getInitialLimit() != null ? override.getInitialLimit() : defaults.getInitialLimit());
+        merged.setMinLimit(override.getMinLimit() != null ? override.getMinLimit() : defaults.getMinLimit());
+        merged.setMaxLimit(override.getMaxLimit() != null ? override.getMaxLimit() : defaults.getMaxLimit());
+        merged.setLatencyTolerance(override.getLatencyTolerance() != null
+                ? override.getLatencyTolerance() : defaults.getLatencyTolerance());
+        merged.setMaxWait(override.getMaxWait() != null ? override.getMaxWait() : defaults.getMaxWait());
+        return merged;
+    }
+
+    @Data
+    public static class Settings {
+        private Integer initialLimit = 10;
+        private Integer minLimit = 1;
+        private Integer maxLimit = 100;
+        // Latency above this multiple of the best observed latency counts as congestion
+        private Double latencyTolerance = 2.0;
+        private Duration maxWait = Duration.ofSeconds(2);
+    }
+}
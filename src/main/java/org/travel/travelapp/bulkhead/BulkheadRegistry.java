@@ -0,0 +1,53 @@
+package org.travel.travelapp.bulkhead;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link AdaptiveBulkhead} per downstream, created on first use.
+ * Current limit, in-flight calls and rejections are published as {@code bulkhead.*} meters tagged by downstream.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BulkheadRegistry {
+
+    public static final String CLAUDE = "claude";
+    public static final String GEMMA = "gemma";
+
+    private final BulkheadProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AdaptiveBulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public AdaptiveBulkhead get(String downstream) {
+        return bulkheads.computeIfAbsent(downstream, this::create);
+    }
+
+    private AdaptiveBulkhead create(String downstream) {
+        BulkheadProperties.Settings settings = properties.forDownstream(downstream);
+        AdaptiveBulkhead bulkhead = new AdaptiveBulkhead(downstream,
+                settings.getInitialLimit(), settings.getMinLimit(), settings.getMaxLimit(),
+                settings.getLatencyTolerance(), settings.getMaxWait());
+
+        Gauge.builder("bulkhead.limit", bulkhead, AdaptiveBulkhead::currentLimit)
+                .tag("downstream", downstream)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.in-flight", bulkhead, AdaptiveBulkhead::inFlight)
+                .tag("downstream", downstream)
+                .register(meterRegistry);
+        FunctionCounter.builder("bulkhead.rejected", bulkhead, AdaptiveBulkhead::rejectedCount)
+                .tag("downstream", downstream)
+                .register(meterRegistry);
+
+        log.info("Created bulkhead for {} with initial limit {} (min {}, max {})",
+                downstream, settings.getInitialLimit(), settings.getMinLimit(), settings.getMaxLimit());
+        return bulkhead;
+    }
+}
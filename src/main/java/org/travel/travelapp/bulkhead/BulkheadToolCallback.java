@@ -0,0 +1,40 @@
+package org.travel.travelapp.bulkhead;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * Runs an MCP tool call inside the bulkhead of the server that provides the tool.
+ */
+public class BulkheadToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final AdaptiveBulkhead bulkhead;
+
+    public BulkheadToolCallback(ToolCallback delegate, AdaptiveBulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return bulkhead.execute(() -> delegate.call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return bulkhead.execute(() -> delegate.call(toolInput, toolContext));
+    }
+}
@@ -0,0 +1,21 @@
+package org.travel.travelapp.bulkhead;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a downstream's bulkhead has no free slot and the call was shed instead of queued further.
+ */
+@Getter
+public class DownstreamOverloadedException extends RuntimeException {
+
+    private final String downstream;
+    private final Duration retryAfter;
+
+    public DownstreamOverloadedException(String downstream, Duration retryAfter) {
+        super("Downstream '" + downstream + "' is at its concurrency limit, retry later");
+        this.downstream = downstream;
+        this.retryAfter = retryAfter;
+    }
+}
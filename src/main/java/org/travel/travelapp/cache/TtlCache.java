@@ -0,0 +1,287 @@
+package org.travel.travelapp.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, TTL-evicting in-memory cache with single-flight loading.
+ * Entries are kept in access order, so once the cache is full the least recently used entry is evicted.
+ * Concurrent callers asking for the same missing key share one in-flight load instead of each running the loader.
+ * The load runs on the first caller's thread, or on a thread of its own when callers wait for it with a time limit.
+ */
+public class TtlCache<K, V> {
+
+    private final Duration ttl;
+    private final int maxSize;
+    private final Map<K, Entry<V>> entries;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TtlCache(Duration ttl, int maxSize) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be at least 1");
+        }
+        this.ttl = ttl;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > TtlCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for the key, loading it with the given loader on a miss.
+     */
+    public V get(K key, Supplier<V> loader) {
+        return get(key, loader, value -> true);
+    }
+
+    /**
+     * Returns the cached value for the key, loading it with the given loader on a miss.
+     * Loaded values are only stored when they match {@code cacheable}; callers coalesced onto
+     * the same load still receive the value either way. Loader exceptions are never cached.
+     */
+    public V get(K key, Supplier<V> loader, Predicate<? super V> cacheable) {
+        V cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        return load(key, loader, cacheable, load);
+    }
+
+    /**
+     * Like {@link #get(Object, Supplier, Predicate)}, but the load runs on a virtual thread of its own, so the
+     * caller that starts it doesn't impose its time limit or its cancellation on the others sharing it. Every
+     * caller, the first one included, waits at most {@code maxWait}; the load goes on without those that gave up.
+     * The load thread inherits the first caller's inheritable thread locals.
+     *
+     * @throws TimeoutException when the value isn't there within {@code maxWait}
+     */
+    public V get(K key, Supplier<V> loader, Predicate<? super V> cacheable, Duration maxWait) throws TimeoutException {
+        V cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing, maxWait);
+        }
+        Thread.ofVirtual().name("cache-load").start(() -> {
+            try {
+                load(key, loader, cacheable, load);
+            } catch (RuntimeException e) {
+                // Handed to the callers through the future
+            }
+        });
+        return await(load, maxWait);
+    }
+
+    public Optional<V> getIfPresent(K key) {
+        V cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+        }
+        return Optional.ofNullable(cached);
+    }
+
+    /**
+     * Whether an unexpired value is cached for the key. Unlike a lookup it doesn't count as a hit.
+     */
+    public boolean contains(K key) {
+        return lookup(key) != null;
+    }
+
+    public void put(K key, V value) {
+        Entry<V> entry = new Entry<>(value, System.nanoTime() + ttl.toNanos());
+        synchronized (entries) {
+            if (entries.size() >= maxSize) {
+                evictExpiredLocked();
+            }
+            entries.put(key, entry);
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Drops every expired entry. Expired entries are otherwise only removed lazily on access or when the cache is full.
+     */
+    public void evictExpired() {
+        synchronized (entries) {
+            evictExpiredLocked();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), coalesced.sum(), evictions.sum(), size());
+    }
+
+    /**
+     * Registers hit/miss/coalesced counters and a size gauge under the standard {@code cache.*} meter names.
+     */
+    public TtlCache<K, V> bindTo(MeterRegistry registry, String cacheName) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", cacheName).tag("result", "hit")
+                .description("Cache lookups served from a stored entry")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", cacheName).tag("result", "miss")
+                .description("Cache lookups that ran the loader")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", coalesced, LongAdder::sum)
+                .tag("cache", cacheName).tag("result", "coalesced")
+                .description("Cache lookups that joined an in-flight load")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", cacheName)
+                .register(registry);
+        Gauge.builder("cache.size", this, TtlCache::size)
+                .tag("cache", cacheName)
+                .register(registry);
+        return this;
+    }
+
+    private V lookup(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(System.nanoTime())) {
+                entries.remove(key);
+                evictions.increment();
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    private void evictExpiredLocked() {
+        long now = System.nanoTime();
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private V load(K key, Supplier<V> loader, Predicate<? super V> cacheable, CompletableFuture<V> load) {
+        try {
+            // Another load may have finished between the lookup and claiming the key
+            V cached = lookup(key);
+            if (cached != null) {
+                hits.increment();
+                load.complete(cached);
+                return cached;
+            }
+
+            misses.increment();
+            V value = loader.get();
+            if (value != null && cacheable.test(value)) {
+                put(key, value);
+            }
+            load.complete(value);
+            return value;
+
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for an in-flight load");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> load, Duration maxWait) throws TimeoutException {
+        try {
+            return load.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for an in-flight load");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private record Entry<V>(V value, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+
+    public record Stats(long hits, long misses, long coalesced, long evictions, int size) {
+    }
+}
@@ -0,0 +1,307 @@
+package org.travel.travelapp.cassette;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Append-only recording of model exchanges and MCP tool calls, for replaying them without the real downstreams.
+ * <p>
+ * Entries are JSON lines in the data file. Alongside it, an index file holds one fixed-size record per entry
+ * (kind, 128-bit hash of the request, offset and length in the data file), so opening a cassette only reads the
+ * index and a replayed lookup is one hash probe plus one positional read. If the index is behind the data file,
+ * e.g. after a crash between the two writes, the missing entries are re-indexed from the data.
+ * <p>
+ * The same request can be recorded more than once; replay serves its recordings in turn.
+ */
+@Slf4j
+public class Cassette implements Closeable {
+
+    public enum Mode { RECORD, REPLAY }
+
+    /**
+     * Whether replayed responses take as long as they did when recorded, or come back immediately.
+     */
+    public enum Latency { RECORDED, NONE }
+
+    public enum Kind { CHAT, CHAT_STREAM, TOOL, TOOL_DEFINITION }
+
+    // kind (1) + request hash (16) + offset (8) + length (4)
+    private static final int INDEX_RECORD_BYTES = 29;
+
+    private final Path dataPath;
+    private final Mode mode;
+    private final Latency latency;
+    private final ObjectMapper objectMapper;
+    private final FileChannel data;
+    private final FileChannel index;
+    private final Map<Key, List<Location>> locations = new HashMap<>();
+    private final Map<Key, AtomicInteger> cursors = new ConcurrentHashMap<>();
+    private long dataSize;
+    private long indexSize;
+
+    private Cassette(Path dataPath, Mode mode, Latency latency, ObjectMapper objectMapper) throws IOException {
+        this.dataPath = dataPath;
+        this.mode = mode;
+        this.latency = latency;
+        this.objectMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        Path indexPath = dataPath.resolveSibling(dataPath.getFileName() + ".idx");
+        if (mode == Mode.RECORD) {
+            if (dataPath.getParent() != null) {
+                Files.createDirectories(dataPath.getParent());
+            }
+            data = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } else {
+            data = FileChannel.open(dataPath, StandardOpenOption.READ);
+            index = Files.exists(indexPath) ? FileChannel.open(indexPath, StandardOpenOption.READ) : null;
+        }
+        load();
+    }
+
+    public static Cassette open(Path path, Mode mode, Latency latency, ObjectMapper objectMapper) throws IOException {
+        Cassette cassette = new Cassette(path, mode, latency, objectMapper);
+        log.info("Opened cassette {} for {} with {} entries", path, mode.name().toLowerCase(), cassette.size());
+        return cassette;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * How long to wait before serving a replayed response that originally took {@code recordedNanos}.
+     */
+    public Duration replayDelay(long recordedNanos) {
+        return latency == Latency.RECORDED ? Duration.ofNanos(recordedNanos) : Duration.ZERO;
+    }
+
+    public synchronized int size() {
+        return locations.values().stream().mapToInt(List::size).sum();
+    }
+
+    public synchronized boolean contains(Kind kind, String source, String request) {
+        return locations.containsKey(Key.of(kind, source, request));
+    }
+
+    public synchronized void append(Entry entry) {
+        if (mode != Mode.RECORD) {
+            throw new IllegalStateException("Cassette " + dataPath + " is open for replay");
+        }
+        try {
+            byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+            Location location = new Location(dataSize, line.length);
+            writeFully(data, ByteBuffer.wrap(line), dataSize);
+            dataSize += line.length;
+            appendIndexRecord(entry.key(), location);
+            locations.computeIfAbsent(entry.key(), key -> new ArrayList<>()).add(location);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to cassette " + dataPath, e);
+        }
+    }
+
+    /**
+     * The next recording of this request, cycling through all of them when it was recorded more than once.
+     */
+    public Optional<Entry> next(Kind kind, String source, String request) {
+        Key key = Key.of(kind, source, request);
+        List<Location> recorded;
+        synchronized (this) {
+            recorded = locations.get(key);
+        }
+        if (recorded == null) {
+            return Optional.empty();
+        }
+        int turn = cursors.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+        return Optional.of(read(recorded.get(Math.floorMod(turn, recorded.size()))));
+    }
+
+    /**
+     * Every recording of one kind, in the order they were recorded.
+     */
+    public List<Entry> all(Kind kind) {
+        List<Location> matching = new ArrayList<>();
+        synchronized (this) {
+            locations.forEach((key, recorded) -> {
+                if (key.kind() == kind) {
+                    matching.addAll(recorded);
+                }
+            });
+        }
+        matching.sort((a, b) -> Long.compare(a.offset(), b.offset()));
+        return matching.stream().map(this::read).toList();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (mode == Mode.RECORD) {
+            data.force(false);
+            index.force(false);
+        }
+        data.close();
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    private Entry read(Location location) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(location.length());
+            while (buffer.hasRemaining()) {
+                if (data.read(buffer, location.offset() + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of cassette at offset " + location.offset());
+                }
+            }
+            return objectMapper.readValue(buffer.array(), Entry.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read cassette " + dataPath, e);
+        }
+    }
+
+    private void load() throws IOException {
+        dataSize = data.size();
+        long indexed = 0;
+        if (index != null) {
+            // A torn last record is dropped; its entry is re-indexed from the data below
+            indexSize = index.size() - index.size() % INDEX_RECORD_BYTES;
+            ByteBuffer records = ByteBuffer.allocate((int) Math.min(indexSize, 1 << 20));
+            for (long position = 0; position < indexSize; ) {
+                records.clear().limit((int) Math.min(records.capacity(), indexSize - position));
+                readFully(index, records, position);
+                position += records.limit();
+                records.flip();
+                while (records.remaining() >= INDEX_RECORD_BYTES) {
+                    Key key = new Key(Kind.values()[records.get()], records.getLong(), records.getLong());
+                    Location location = new Location(records.getLong(), records.getInt());
+                    if (location.offset() + location.length() <= dataSize) {
+                        locations.computeIfAbsent(key, k -> new ArrayList<>()).add(location);
+                        indexed = Math.max(indexed, location.offset() + location.length());
+                    }
+                }
+            }
+        }
+        if (indexed < dataSize) {
+            reindex(indexed);
+        }
+    }
+
+    private void reindex(long from) throws IOException {
+        long position = from;
+        int recovered = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Channels.newInputStream(data.position(from)), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int length = line.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (position + length > dataSize) {
+                break;
+            }
+            Entry entry = objectMapper.readValue(line, Entry.class);
+            Location location = new Location(position, length);
+            locations.computeIfAbsent(entry.key(), key -> new ArrayList<>()).add(location);
+            if (mode == Mode.RECORD) {
+                appendIndexRecord(entry.key(), location);
+            }
+            position += length;
+            recovered++;
+        }
+        if (position < dataSize) {
+            log.warn("Ignoring {} bytes of an incomplete entry at the end of cassette {}", dataSize - position, dataPath);
+            if (mode == Mode.RECORD) {
+                data.truncate(position);
+                dataSize = position;
+            }
+        }
+        log.info("Re-indexed {} entries of cassette {}", recovered, dataPath);
+    }
+
+    private void appendIndexRecord(Key key, Location location) throws IOException {
+        if (index.size() != indexSize) {
+            index.truncate(indexSize);
+        }
+        ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_BYTES)
+                .put((byte) key.kind().ordinal())
+                .putLong(key.high())
+                .putLong(key.low())
+                .putLong(location.offset())
+                .putInt(location.length())
+                .flip();
+        writeFully(index, record, indexSize);
+        indexSize += INDEX_RECORD_BYTES;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    /**
+     * One recorded exchange. {@code request} is the canonical form of what was sent, {@code source} the model
+     * ({@code claude}, {@code gemma}), the MCP tool name, or for tool definitions the MCP server.
+     * Streamed responses also keep their chunks, each with its offset from the start of the stream.
+     */
+    public record Entry(Kind kind, String source, String request, String response, long latencyNanos,
+                        List<Chunk> chunks, Integer promptTokens, Integer completionTokens) {
+
+        public static Entry of(Kind kind, String source, String request, String response, long latencyNanos) {
+            return new Entry(kind, source, request, response, latencyNanos, null, null, null);
+        }
+
+        Key key() {
+            return Key.of(kind, source, request);
+        }
+    }
+
+    public record Chunk(String text, long atNanos) {
+    }
+
+    private record Location(long offset, int length) {
+    }
+
+    private record Key(Kind kind, long high, long low) {
+
+        static Key of(Kind kind, String source, String request) {
+            try {
+                MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+                sha256.update(source.getBytes(StandardCharsets.UTF_8));
+                sha256.update((byte) 0);
+                ByteBuffer digest = ByteBuffer.wrap(sha256.digest(request.getBytes(StandardCharsets.UTF_8)));
+                return new Key(kind, digest.getLong(), digest.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.travel.travelapp.cassette;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Records every call and stream of a {@code ChatClient} to the cassette, or in replay answers them from it
+ * without calling the model.
+ * <p>
+ * It runs innermost, right before the model, so the recorded latency is the model's own (including any tool
+ * calls it made) and the other advisors, like the bulkhead, still run during replay.
+ */
+public class CassetteAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final Cassette cassette;
+    private final String model;
+
+    public CassetteAdvisor(Cassette cassette, String model) {
+        this.cassette = cassette;
+        this.model = model;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        String key = describe(request.prompt());
+        if (cassette.getMode() == Cassette.Mode.REPLAY) {
+            Cassette.Entry entry = cassette.next(Cassette.Kind.CHAT, model, key)
+                    .orElseThrow(() -> new CassetteMissException(Cassette.Kind.CHAT, model));
+            sleep(cassette.replayDelay(entry.latencyNanos()));
+            return response(entry.response(), request, usage(entry));
+        }
+
+        long started = System.nanoTime();
+        ChatClientResponse response = chain.nextCall(request);
+        long latencyNanos = System.nanoTime() - started;
+        ChatResponse chatResponse = response.chatResponse();
+        if (chatResponse != null) {
+            Usage usage = chatResponse.getMetadata().getUsage();
+            cassette.append(new Cassette.Entry(Cassette.Kind.CHAT, model, key, text(chatResponse), latencyNanos, null,
+                    usage != null ? usage.getPromptTokens() : null, usage != null ? usage.getCompletionTokens() : null));
+        }
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        String key = describe(request.prompt());
+        if (cassette.getMode() == Cassette.Mode.REPLAY) {
+            return Flux.defer(() -> replayStream(request, key));
+        }
+
+        return Flux.defer(() -> {
+            long started = System.nanoTime();
+            List<Cassette.Chunk> chunks = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            return chain.nextStream(request)
+                    .doOnNext(response -> {
+                        String chunk = response.chatResponse() != null ? text(response.chatResponse()) : null;
+                        if (chunk != null && !chunk.isEmpty()) {
+                            chunks.add(new Cassette.Chunk(chunk, System.nanoTime() - started));
+                            text.append(chunk);
+                        }
+                    })
+                    // Only complete streams are worth replaying
+                    .doOnComplete(() -> cassette.append(new Cassette.Entry(Cassette.Kind.CHAT_STREAM, model, key,
+                            text.toString(), System.nanoTime() - started, chunks, null, null)));
+        });
+    }
+
+    private Flux<ChatClientResponse> replayStream(ChatClientRequest request, String key) {
+        Cassette.Entry entry = cassette.next(Cassette.Kind.CHAT_STREAM, model, key)
+                .orElseThrow(() -> new CassetteMissException(Cassette.Kind.CHAT_STREAM, model));
+        List<Cassette.Chunk> chunks = entry.chunks() != null ? entry.chunks() : List.of();
+        List<Mono<ChatClientResponse>> paced = new ArrayList<>();
+        long previous = 0;
+        for (Cassette.Chunk chunk : chunks) {
+            Duration delay = cassette.replayDelay(chunk.atNanos() - previous);
+            previous = chunk.atNanos();
+            Mono<ChatClientResponse> response = Mono.fromSupplier(() -> response(chunk.text(), request, null));
+            paced.add(delay.isZero() ? response : response.delaySubscription(delay));
+        }
+        return Flux.concat(paced);
+    }
+
+    /**
+     * The part of a prompt that determines the answer: every message, the model and the tools it may call.
+     * Tool context is left out, it only carries per-call bookkeeping.
+     */
+    static String describe(Prompt prompt) {
+        StringBuilder description = new StringBuilder();
+        ChatOptions options = prompt.getOptions();
+        if (options != null && options.getModel() != null) {
+            description.append("model: ").append(options.getModel()).append('\n');
+        }
+        if (options instanceof ToolCallingChatOptions toolOptions) {
+            TreeSet<String> tools = new TreeSet<>(toolOptions.getToolNames());
+            for (ToolCallback callback : toolOptions.getToolCallbacks()) {
+                tools.add(callback.getToolDefinition().name());
+            }
+            if (!tools.isEmpty()) {
+                description.append("tools: ").append(String.join(",", tools)).append('\n');
+            }
+        }
+        for (Message message : prompt.getInstructions()) {
+            description.append(message.getMessageType().getValue()).append(": ").append(message.getText()).append('\n');
+        }
+        return description.toString();
+    }
+
+    private static ChatClientResponse response(String text, ChatClientRequest request, Usage usage) {
+        List<Generation> generations = List.of(new Generation(new AssistantMessage(text)));
+        ChatResponse chatResponse = usage != null
+                ? new ChatResponse(generations, ChatResponseMetadata.builder().usage(usage).build())
+                : new ChatResponse(generations);
+        return ChatClientResponse.builder().chatResponse(chatResponse).context(request.context()).build();
+    }
+
+    private static Usage usage(Cassette.Entry entry) {
+        return entry.promptTokens() != null || entry.completionTokens() != null
+                ? new DefaultUsage(entry.promptTokens(), entry.completionTokens())
+                : null;
+    }
+
+    private static String text(ChatResponse chatResponse) {
+        return chatResponse.getResult() != null && chatResponse.getResult().getOutput() != null
+                ? chatResponse.getResult().getOutput().getText()
+                : null;
+    }
+
+    private static void sleep(Duration delay) {
+        if (delay.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while replaying a model response", e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "CassetteAdvisor[" + model + "]";
+    }
+
+    @Override
+    public int getOrder() {
+        // Right before Spring AI's own advisor that calls the model
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+}
@@ -0,0 +1,19 @@
+package org.travel.travelapp.cassette;
+
+import lombok.Getter;
+
+/**
+ * Thrown in replay when the cassette has no recording of a request, so there is nothing to serve.
+ */
+@Getter
+public class CassetteMissException extends RuntimeException {
+
+    private final Cassette.Kind kind;
+    private final String source;
+
+    public CassetteMissException(Cassette.Kind kind, String source) {
+        super("No recorded " + kind.name().toLowerCase() + " for '" + source + "' matches this request");
+        this.kind = kind;
+        this.source = source;
+    }
+}
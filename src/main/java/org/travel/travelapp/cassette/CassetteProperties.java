@@ -0,0 +1,17 @@
+package org.travel.travelapp.cassette;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Where the {@code record} and {@code replay} profiles keep their cassette, and how replay paces responses.
+ */
+@Data
+@ConfigurationProperties(prefix = "travel.cassette")
+public class CassetteProperties {
+
+    private Path path = Path.of("cassettes", "travelapp.cassette");
+    private Cassette.Latency replayLatency = Cassette.Latency.RECORDED;
+}
@@ -0,0 +1,92 @@
+package org.travel.travelapp.cassette;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Records each call of an MCP tool with its result to the cassette, or in replay answers it from the cassette.
+ * Calls are matched on the tool name and the canonicalized JSON arguments.
+ */
+public class CassetteToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final ToolDefinition toolDefinition;
+    private final String toolName;
+    private final Cassette cassette;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter canonicalWriter;
+
+    /**
+     * @param delegate the real tool, or {@code null} in replay, where only the recorded definition is known
+     */
+    public CassetteToolCallback(ToolCallback delegate, ToolDefinition toolDefinition, String toolName,
+                                Cassette cassette, ObjectMapper objectMapper) {
+        this.delegate = delegate;
+        this.toolDefinition = toolDefinition;
+        this.toolName = toolName;
+        this.cassette = cassette;
+        this.objectMapper = objectMapper;
+        this.canonicalWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return toolDefinition;
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return recordOrReplay(toolInput, () -> delegate.call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return recordOrReplay(toolInput, () -> delegate.call(toolInput, toolContext));
+    }
+
+    private String recordOrReplay(String toolInput, Supplier<String> call) {
+        String arguments = canonicalize(toolInput);
+        if (cassette.getMode() == Cassette.Mode.REPLAY) {
+            Cassette.Entry entry = cassette.next(Cassette.Kind.TOOL, toolName, arguments)
+                    .orElseThrow(() -> new CassetteMissException(Cassette.Kind.TOOL, toolName));
+            sleep(cassette.replayDelay(entry.latencyNanos()));
+            return entry.response();
+        }
+
+        long started = System.nanoTime();
+        String result = call.get();
+        cassette.append(Cassette.Entry.of(Cassette.Kind.TOOL, toolName, arguments, result, System.nanoTime() - started));
+        return result;
+    }
+
+    private String canonicalize(String toolInput) {
+        if (toolInput == null || toolInput.isBlank()) {
+            return "{}";
+        }
+        try {
+            return canonicalWriter.writeValueAsString(objectMapper.readValue(toolInput, Object.class));
+        } catch (JsonProcessingException e) {
+            return toolInput;
+        }
+    }
+
+    private static void sleep(Duration delay) {
+        if (delay.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while replaying a tool result", e);
+        }
+    }
+}
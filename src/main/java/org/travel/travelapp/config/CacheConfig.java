@@ -0,0 +1,37 @@
+package org.travel.travelapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.travel.travelapp.cache.TtlCache;
+import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.service.TripPlanKey;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Generated trip plans, keyed on the normalized request.
+     * Identical requests within the TTL reuse the plan instead of running Claude and the MCP tools again.
+     */
+    @Bean
+    public TtlCache<TripPlanKey, TripPlan> tripPlanCache(@Value("${travel.cache.trip-plan.ttl:10m}") Duration ttl,
+                                                         @Value("${travel.cache.trip-plan.max-size:500}") int maxSize,
+                                                         MeterRegistry meterRegistry) {
+        return new TtlCache<TripPlanKey, TripPlan>(ttl, maxSize).bindTo(meterRegistry, "tripPlans");
+    }
+
+    /**
+     * LRU memo of prior sanitizations, keyed by a hash of the normalized description.
+     * Repeated descriptions skip the round-trip to the local model.
+     */
+    @Bean
+    public TtlCache<String, String> sanitizationMemo(@Value("${travel.cache.sanitization.ttl:24h}") Duration ttl,
+                                                     @Value("${travel.cache.sanitization.max-size:10000}") int maxSize,
+                                                     MeterRegistry meterRegistry) {
+        return new TtlCache<String, String>(ttl, maxSize).bindTo(meterRegistry, "sanitizations");
+    }
+}
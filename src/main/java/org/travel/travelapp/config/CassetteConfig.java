@@ -0,0 +1,32 @@
+package org.travel.travelapp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.travel.travelapp.cassette.Cassette;
+import org.travel.travelapp.cassette.CassetteProperties;
+
+import java.io.IOException;
+
+@Configuration
+public class CassetteConfig {
+
+    /**
+     * With the {@code record} profile, every Claude/Gemma exchange and MCP tool call is appended to the cassette.
+     */
+    @Bean(destroyMethod = "close")
+    @Profile("record & !replay")
+    public Cassette recordingCassette(CassetteProperties properties, ObjectMapper objectMapper) throws IOException {
+        return Cassette.open(properties.getPath(), Cassette.Mode.RECORD, properties.getReplayLatency(), objectMapper);
+    }
+
+    /**
+     * With the {@code replay} profile, models and MCP tools are answered from a cassette recorded earlier.
+     */
+    @Bean(destroyMethod = "close")
+    @Profile("replay")
+    public Cassette replayingCassette(CassetteProperties properties, ObjectMapper objectMapper) throws IOException {
+        return Cassette.open(properties.getPath(), Cassette.Mode.REPLAY, properties.getReplayLatency(), objectMapper);
+    }
+}
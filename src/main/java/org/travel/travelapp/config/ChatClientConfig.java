@@ -1,17 +1,22 @@
 package org.travel.travelapp.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.observation.ObservationRegistry;
-import io.modelcontextprotocol.client.McpSyncClient;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.observation.ChatClientObservationConvention;
 import org.springframework.ai.chat.model.ChatModel;
-import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
 import org.springframework.ai.model.chat.client.autoconfigure.ChatClientBuilderConfigurer;
-import org.springframework.ai.tool.ToolCallback;
-import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestClientCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.travel.travelapp.anthropic.PromptCachingInterceptor;
+import org.travel.travelapp.bulkhead.BulkheadAdvisor;
+import org.travel.travelapp.bulkhead.BulkheadRegistry;
+import org.travel.travelapp.cassette.Cassette;
+import org.travel.travelapp.cassette.CassetteAdvisor;
 
 import javax.tools.Tool;
 import java.util.List;
@@ -26,15 +31,21 @@ public class ChatClientConfig {
     @Bean
     public ChatClient localGemmaChatClient(ChatClientBuilderConfigurer configurer,
                                            ChatModel openAiChatModel,
-                                           ObjectProvider<ObservationRegistry> observationRegistryProvider,
-                                           ObjectProvider<ChatClientObservationConvention> observationConventionProvider) {
+                                           ObservationRegistry observationRegistry,
+                                           ObjectProvider<ChatClientObservationConvention> observationConventionProvider,
+                                           BulkheadRegistry bulkheadRegistry,
+                                           ObjectProvider<Cassette> cassette) {
 
         ChatClient.Builder builder = ChatClient.builder(
                 openAiChatModel,
-                observationRegistryProvider.getIfUnique(() -> ObservationRegistry.NOOP),
+                observationRegistry,
                 observationConventionProvider.getIfUnique(() -> null)
         );
 
+        // The single local model process falls over first under load, so calls go through its bulkhead
+        builder.defaultAdvisors(new BulkheadAdvisor(bulkheadRegistry.get(BulkheadRegistry.GEMMA)));
+        cassette.ifAvailable(recording -> builder.defaultAdvisors(new CassetteAdvisor(recording, BulkheadRegistry.GEMMA)));
+
         return configurer.configure(builder).build();
     }
 
@@ -45,25 +56,40 @@ public class ChatClientConfig {
     @Bean
     public ChatClient claudeChatClient(ChatClientBuilderConfigurer configurer,
                                        ChatModel anthropicChatModel,
-                                       ObjectProvider<ObservationRegistry> obsRegistry,
+                                       ObservationRegistry observationRegistry,
                                        ObjectProvider<ChatClientObservationConvention> obsConvention,
-                                       List<McpSyncClient> mcpSyncClients,
-                                       ObjectProvider<List<Tool>> extraToolsProvider) {
+                                       BulkheadRegistry bulkheadRegistry,
+                                       ObjectProvider<List<Tool>> extraToolsProvider,
+                                       ObjectProvider<Cassette> cassette) {
 
         ChatClient.Builder builder = ChatClient.builder(
                 anthropicChatModel,
-                obsRegistry.getIfUnique(() -> ObservationRegistry.NOOP),
+                observationRegistry,
                 obsConvention.getIfUnique(() -> null)
         );
 
-        ToolCallbackProvider provider = new SyncMcpToolCallbackProvider(mcpSyncClients);
-
-        // Get tools from all clients
-        ToolCallback[] tools = provider.getToolCallbacks();
-
-        builder.defaultToolCallbacks(tools);
+        // MCP tools are attached per prompt from McpToolRegistry, only the ones the planner step needs
+        builder.defaultAdvisors(new BulkheadAdvisor(bulkheadRegistry.get(BulkheadRegistry.CLAUDE)));
+        cassette.ifAvailable(recording -> builder.defaultAdvisors(new CassetteAdvisor(recording, BulkheadRegistry.CLAUDE)));
 
 
         return configurer.configure(builder).build();
     }
+
+    /**
+     * Marks the Claude tools + system prompt prefix as cacheable on every Anthropic Messages call.
+     * Applies to the blocking RestClient that Spring AI uses for {@code call()}; streamed calls go through WebClient.
+     */
+    @Bean
+    public RestClientCustomizer anthropicPromptCaching(@Value("${travel.anthropic.prompt-cache.enabled:true}") boolean enabled,
+                                                       @Value("${spring.ai.anthropic.completions-path:/v1/messages}") String messagesPath,
+                                                       ObjectMapper objectMapper,
+                                                       MeterRegistry meterRegistry) {
+        if (!enabled) {
+            return builder -> {
+            };
+        }
+        PromptCachingInterceptor interceptor = new PromptCachingInterceptor(messagesPath, objectMapper, meterRegistry);
+        return builder -> builder.requestInterceptor(interceptor);
+    }
 }
@@ -0,0 +1,44 @@
+package org.travel.travelapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * How trip plans are generated, and which MCP tools the deterministic mode calls.
+ */
+@Data
+@ConfigurationProperties(prefix = "travel.planner")
+public class PlannerProperties {
+
+    public enum Mode {
+        // Claude drives the MCP tool loop for each plan section
+        AGENTIC,
+        // Java calls the MCP tools directly; one short Claude call ranks the results and writes the summary
+        DETERMINISTIC;
+
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private Mode mode = Mode.AGENTIC;
+    private Tools tools = new Tools();
+    private int maxAttractions = 10;
+    // MCP tools attached per plan section (summary, attractions, flights), by tool or server name.
+    // A section without an entry gets every tool; an empty entry gets none.
+    private Map<String, List<String>> stepTools = new HashMap<>();
+
+    @Data
+    public static class Tools {
+        private String placeSearch = "maps_search_places";
+        private String distance = "maps_distance_matrix";
+        private String geocode = "maps_geocode";
+        private String webSearch = "brave_web_search";
+        private String flightSearch = "search_flight_offers";
+    }
+}
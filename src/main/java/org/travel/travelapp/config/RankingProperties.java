@@ -0,0 +1,37 @@
+package org.travel.travelapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Locale;
+
+/**
+ * How flights and attractions are ordered and cut after a plan is parsed, unless a request asks otherwise.
+ */
+@Data
+@ConfigurationProperties(prefix = "travel.ranking")
+public class RankingProperties {
+
+    public enum FlightSort {
+        PRICE, DURATION, DEPARTURE, STOPS;
+
+        public static FlightSort parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public enum AttractionSort {
+        DISTANCE, NAME;
+
+        public static AttractionSort parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private FlightSort flightSort = FlightSort.PRICE;
+    private AttractionSort attractionSort = AttractionSort.DISTANCE;
+    private int maxFlights = 5;
+    private int maxAttractions = 10;
+    // Flights with more stops are dropped; unset keeps every flight
+    private Integer maxStops;
+}
@@ -0,0 +1,25 @@
+package org.travel.travelapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * How requests are scored for complexity, and which ones the local model plans instead of Claude.
+ */
+@Data
+@ConfigurationProperties(prefix = "travel.router")
+public class RouterProperties {
+
+    private boolean enabled = true;
+    // Requests scoring at or below this go to the local model first
+    private double maxLocalScore = 1.0;
+    // Added per day of the trip
+    private double dayWeight = 0.1;
+    // Added per distinct word of the description
+    private double descriptionWordWeight = 0.02;
+    // Added when the place or flight search isn't cached, so the cheap path would wait on live tool calls. Kept
+    // below the local budget: Claude's own tool calls never fill these caches, so short trips must go local uncached
+    private double uncachedWeight = 0.4;
+    // Output cap for the local model's plan, well below Claude's
+    private int localMaxTokens = 1536;
+}
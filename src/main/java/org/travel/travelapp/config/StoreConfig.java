@@ -0,0 +1,23 @@
+package org.travel.travelapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.travel.travelapp.store.ItineraryStore;
+import org.travel.travelapp.store.ItineraryStoreProperties;
+
+import java.io.IOException;
+import java.time.Clock;
+
+@Configuration
+public class StoreConfig {
+
+    /**
+     * Every generated itinerary, so it can be fetched again by id instead of being regenerated.
+     */
+    @Bean(destroyMethod = "close")
+    public ItineraryStore itineraryStore(ItineraryStoreProperties properties, MeterRegistry meterRegistry) throws IOException {
+        return new ItineraryStore(properties.getDirectory(), (int) properties.getSegmentSize().toBytes(),
+                properties.getRetention(), properties.getMinLiveRatio(), Clock.systemUTC(), meterRegistry);
+    }
+}
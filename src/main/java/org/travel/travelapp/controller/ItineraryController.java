@@ -1,23 +1,60 @@
 package org.travel.travelapp.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+import org.travel.travelapp.bulkhead.DownstreamOverloadedException;
+import org.travel.travelapp.config.RankingProperties;
+import org.travel.travelapp.deadline.Deadline;
+import org.travel.travelapp.deadline.DeadlineProperties;
+import org.travel.travelapp.dto.BatchItineraryRequest;
+import org.travel.travelapp.dto.BatchItineraryResponse;
+import org.travel.travelapp.dto.ItineraryJob;
 import org.travel.travelapp.dto.ItineraryRequest;
 import org.travel.travelapp.dto.ItineraryResponse;
-import org.travel.travelapp.dto.TripPlan;
-import org.travel.travelapp.service.ItinerarySanitizerService;
-import org.travel.travelapp.service.TripPlannerService;
+import org.travel.travelapp.service.BatchItineraryService;
+import org.travel.travelapp.service.ItineraryJobService;
+import org.travel.travelapp.service.ItineraryService;
+import org.travel.travelapp.service.JobQueueFullException;
+import org.travel.travelapp.service.TripPlanRanker;
+import org.travel.travelapp.store.ItineraryStore;
+import reactor.core.publisher.Flux;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/itinerary")
@@ -26,43 +63,192 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class ItineraryController {
 
-    private final ItinerarySanitizerService sanitizerService;
-    private final TripPlannerService tripPlannerService;
+    private final ItineraryService itineraryService;
+    private final ItineraryJobService itineraryJobService;
+    private final BatchItineraryService batchItineraryService;
+    private final ItineraryStore itineraryStore;
+    private final ObjectMapper objectMapper;
+    private final DeadlineProperties deadlineProperties;
+    private final TripPlanRanker tripPlanRanker;
 
+    /**
+     * Planned as an async task, so a client that disconnects gets it cancelled, interrupting the Claude and MCP
+     * calls in flight. The task's own timeout only backs up the deadline, which normally ends planning first.
+     * <p>
+     * The optional {@code flightSort}, {@code attractionSort}, {@code maxFlights} and {@code maxAttractions}
+     * parameters re-rank this response's flights and attractions; the stored itinerary keeps the default ranking.
+     */
     @PostMapping
-    public ResponseEntity<ItineraryResponse> createItinerary(@Valid @RequestBody ItineraryRequest request) {
+    public WebAsyncTask<ResponseEntity<ItineraryResponse>> createItinerary(@Valid @RequestBody ItineraryRequest request,
+                                                                           @RequestParam(required = false) String flightSort,
+                                                                           @RequestParam(required = false) String attractionSort,
+                                                                           @RequestParam(required = false) Integer maxFlights,
+                                                                           @RequestParam(required = false) Integer maxAttractions,
+                                                                           HttpServletRequest httpRequest) {
         log.info("Received itinerary request: from {} to {}, dates: {} to {}",
                 request.getFrom(), request.getTo(), request.getStartDate(), request.getEndDate());
 
-        // Step 1: Sanitize description using local AI
-        String sanitizedDescription = sanitizerService.sanitizeDescription(request.getDescription());
+        Deadline deadline = deadline(httpRequest);
+        TripPlanRanker.Ranking ranking = ranking(flightSort, attractionSort, maxFlights, maxAttractions);
+        return new WebAsyncTask<>(deadline.budget().plus(deadlineProperties.getGrace()).toMillis(), () -> {
+            ItineraryResponse response = itineraryService.createItinerary(request, deadline);
+            if (ranking != null) {
+                response.setTripPlan(tripPlanRanker.rank(response.getTripPlan(), ranking));
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        });
+    }
+
+    @PostMapping(params = "async=true")
+    public ResponseEntity<ItineraryJob> createItineraryAsync(@Valid @RequestBody ItineraryRequest request) {
+        log.info("Received async itinerary request: from {} to {}, dates: {} to {}",
+                request.getFrom(), request.getTo(), request.getStartDate(), request.getEndDate());
+
+        ItineraryJob job = itineraryJobService.submit(request);
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/itinerary/" + job.getId()))
+                .body(job);
+    }
+
+    /**
+     * Planned within one deadline for the whole batch, taken from the same header as a single itinerary's.
+     */
+    @PostMapping("/batch")
+    public WebAsyncTask<ResponseEntity<BatchItineraryResponse>> createItineraries(@Valid @RequestBody BatchItineraryRequest request,
+                                                                                  HttpServletRequest httpRequest) {
+        log.info("Received batch itinerary request with {} itineraries", request.getItineraries().size());
+
+        Deadline deadline = deadline(httpRequest);
+        return new WebAsyncTask<>(deadline.budget().plus(deadlineProperties.getGrace()).toMillis(), () ->
+                ResponseEntity.ok(batchItineraryService.createItineraries(request.getItineraries(), deadline)));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getItinerary(@PathVariable String id) throws JsonProcessingException {
+        Optional<ItineraryJob> job = itineraryJobService.find(id);
+        if (job.isPresent() && !job.get().isDone()) {
+            return ResponseEntity.ok(job.get());
+        }
+        // A completed job's itinerary may have been edited since; the store has its latest version
+        Optional<ItineraryStore.StoredItinerary> stored = itineraryStore.find(id);
+        if (stored.isPresent()) {
+            return storedAsJob(stored.get());
+        }
+        return job.<ResponseEntity<?>>map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Edits a stored itinerary: the request replaces the stored one, and only the sections it affects are planned
+     * again, e.g. just the flights when the dates or the number of adults change.
+     */
+    @PatchMapping("/{id}")
+    public WebAsyncTask<ResponseEntity<ItineraryResponse>> updateItinerary(@PathVariable String id,
+                                                                           @Valid @RequestBody ItineraryRequest request,
+                                                                           HttpServletRequest httpRequest) {
+        log.info("Received itinerary update for {}: from {} to {}, dates: {} to {}",
+                id, request.getFrom(), request.getTo(), request.getStartDate(), request.getEndDate());
+        if (itineraryJobService.find(id).filter(job -> !job.isDone()).isPresent()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Itinerary " + id + " is still being planned");
+        }
+
+        Deadline deadline = deadline(httpRequest);
+        return new WebAsyncTask<>(deadline.budget().plus(deadlineProperties.getGrace()).toMillis(), () ->
+                itineraryService.replanItinerary(id, request, deadline)
+                        .map(ResponseEntity::ok)
+                        .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
 
-        log.info("Original description: {}", request.getDescription());
-        log.info("Sanitized description: {}", sanitizedDescription);
+    /**
+     * A stored itinerary in the same envelope as a completed job. The itinerary JSON is streamed straight
+     * from the store's mapped file, without being parsed and serialized again.
+     */
+    private ResponseEntity<Resource> storedAsJob(ItineraryStore.StoredItinerary stored) throws JsonProcessingException {
+        LocalDateTime storedAt = LocalDateTime.ofInstant(stored.storedAt(), ZoneId.systemDefault());
+        ObjectNode envelope = objectMapper.valueToTree(
+                new ItineraryJob(stored.id(), ItineraryJob.Status.COMPLETED, storedAt, storedAt, null, null));
+        envelope.remove("itinerary");
+        String head = objectMapper.writeValueAsString(envelope);
+        byte[] prefix = (head.substring(0, head.length() - 1) + ",\"itinerary\":").getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = {'}'};
+        ByteBuffer itinerary = stored.json();
 
-        // Step 2: Generate trip plan using Claude with MCP tools
-        log.info("Generating trip plan with Claude and MCP servers...");
-        TripPlan tripPlan = tripPlannerService.generateTripPlan(request, sanitizedDescription);
-        log.info("Trip plan generated successfully");
+        InputStream body = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(prefix),
+                DefaultDataBufferFactory.sharedInstance.wrap(itinerary).asInputStream(),
+                new ByteArrayInputStream(suffix))));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(prefix.length + itinerary.remaining() + suffix.length)
+                .body(new InputStreamResource(body));
+    }
+
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamItinerary(@Valid @RequestBody ItineraryRequest request,
+                                                         HttpServletRequest httpRequest) {
+        log.info("Received streaming itinerary request: from {} to {}, dates: {} to {}",
+                request.getFrom(), request.getTo(), request.getStartDate(), request.getEndDate());
+
+        return itineraryService.streamItinerary(request, deadline(httpRequest));
+    }
 
-        // Step 3: Create response with generated ID, timestamp, and trip plan
-        ItineraryResponse response = new ItineraryResponse(
-                UUID.randomUUID().toString(),
-                request.getTo(),
-                request.getFrom(),
-                request.getStartDate(),
-                request.getEndDate(),
-                request.getNumberOfAdults(),
-                sanitizedDescription,  // Use sanitized description
-                LocalDateTime.now(),
-                "CREATED",
-                "Itinerary created with AI-powered trip plan and suggestions"
-        );
+    // The requested ranking on top of the defaults, or null when the request doesn't ask for one
+    private TripPlanRanker.Ranking ranking(String flightSort, String attractionSort, Integer maxFlights, Integer maxAttractions) {
+        if (flightSort == null && attractionSort == null && maxFlights == null && maxAttractions == null) {
+            return null;
+        }
+        TripPlanRanker.Ranking defaults = tripPlanRanker.defaults();
+        return new TripPlanRanker.Ranking(
+                flightSort != null
+                        ? parse("flightSort", flightSort, RankingProperties.FlightSort::parse, RankingProperties.FlightSort.values())
+                        : defaults.flightSort(),
+                limit("maxFlights", maxFlights, defaults.flightLimit()),
+                attractionSort != null
+                        ? parse("attractionSort", attractionSort, RankingProperties.AttractionSort::parse, RankingProperties.AttractionSort.values())
+                        : defaults.attractionSort(),
+                limit("maxAttractions", maxAttractions, defaults.attractionLimit()));
+    }
 
-        // Add trip plan to response
-        response.setTripPlan(tripPlan);
+    private static <E extends Enum<E>> E parse(String name, String value, Function<String, E> parser, E[] values) {
+        try {
+            return parser.apply(value);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid " + name + ": " + value + ", expected one of "
+                    + Arrays.stream(values).map(v -> v.name().toLowerCase(Locale.ROOT)).toList());
+        }
+    }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    // Only narrows what the plan kept: a cached plan holds no more than the default count
+    private static int limit(String name, Integer requested, int defaultLimit) {
+        if (requested == null) {
+            return defaultLimit;
+        }
+        if (requested < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, name + " must be positive");
+        }
+        return Math.min(requested, defaultLimit);
+    }
+
+    // The client's deadline from the header, capped, or the configured default
+    private Deadline deadline(HttpServletRequest httpRequest) {
+        String requested = httpRequest.getHeader(deadlineProperties.getHeader());
+        if (requested == null || requested.isBlank()) {
+            return Deadline.after(deadlineProperties.getBudget());
+        }
+        Duration budget;
+        try {
+            budget = DurationStyle.detectAndParse(requested.trim());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Invalid " + deadlineProperties.getHeader() + " header: " + requested);
+        }
+        if (budget.isNegative() || budget.isZero()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    deadlineProperties.getHeader() + " must be positive");
+        }
+        return Deadline.after(budget.compareTo(deadlineProperties.getMaxBudget()) > 0
+                ? deadlineProperties.getMaxBudget()
+                : budget);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
@@ -77,6 +263,26 @@ public class ItineraryController {
         return errors;
     }
 
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, String>> handleResponseStatus(ResponseStatusException ex) {
+        return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", String.valueOf(ex.getReason())));
+    }
+
+    @ExceptionHandler(JobQueueFullException.class)
+    public ResponseEntity<Map<String, String>> handleQueueFull(JobQueueFullException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                .body(Map.of("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(DownstreamOverloadedException.class)
+    public ResponseEntity<Map<String, String>> handleOverloaded(DownstreamOverloadedException ex) {
+        log.warn("Shedding itinerary request: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(Map.of("error", ex.getMessage(), "downstream", ex.getDownstream()));
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public Map<String, String> handleException(Exception ex) {
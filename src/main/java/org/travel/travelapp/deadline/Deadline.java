@@ -0,0 +1,99 @@
+package org.travel.travelapp.deadline;
+
+import org.springframework.ai.chat.model.ToolContext;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The time budget of one itinerary request, shared by every stage working on it.
+ * Stages ask for what is left, or for what is left of their share of the budget, and stop when it runs out.
+ * It is also the request's cancellation signal: once the client has gone away it counts as expired.
+ * Tools find it in the {@link ToolContext}, like the {@code ToolCallTally}.
+ */
+public final class Deadline {
+
+    public static final String CONTEXT_KEY = "deadline";
+
+    private final long startedNanos = System.nanoTime();
+    private final long budgetNanos;
+    private final CompletableFuture<Void> cancelled = new CompletableFuture<>();
+
+    private Deadline(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(budget.toNanos());
+    }
+
+    /**
+     * No time limit, for background work like batches and precomputation. It can still be cancelled.
+     */
+    public static Deadline none() {
+        return new Deadline(Long.MAX_VALUE);
+    }
+
+    /**
+     * The deadline a model call put in the tool context, or none if it didn't.
+     */
+    public static Deadline of(ToolContext toolContext) {
+        if (toolContext != null && toolContext.getContext().get(CONTEXT_KEY) instanceof Deadline deadline) {
+            return deadline;
+        }
+        return none();
+    }
+
+    public boolean isBounded() {
+        return budgetNanos != Long.MAX_VALUE;
+    }
+
+    public Duration budget() {
+        return Duration.ofNanos(budgetNanos);
+    }
+
+    public long remainingNanos() {
+        if (cancelled.isDone()) {
+            return 0;
+        }
+        if (!isBounded()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, budgetNanos - (System.nanoTime() - startedNanos));
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(remainingNanos());
+    }
+
+    /**
+     * Time left until the given share of the budget has passed since the request started, never more than
+     * what is left overall. A stage that starts late gets only what remains of its share.
+     */
+    public Duration remainingShare(double share) {
+        if (!isBounded()) {
+            return remaining();
+        }
+        long shareLeft = (long) (budgetNanos * share) - (System.nanoTime() - startedNanos);
+        return Duration.ofNanos(Math.max(0, Math.min(shareLeft, remainingNanos())));
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() == 0;
+    }
+
+    public void cancel() {
+        cancelled.complete(null);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.isDone();
+    }
+
+    /**
+     * Runs the action when the request is cancelled, or right away if it already was.
+     */
+    public void onCancel(Runnable action) {
+        cancelled.thenRun(action);
+    }
+}
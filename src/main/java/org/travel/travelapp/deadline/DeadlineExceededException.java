@@ -0,0 +1,17 @@
+package org.travel.travelapp.deadline;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a stage ran out of its share of the request's deadline, or the request was cancelled.
+ */
+@Getter
+public class DeadlineExceededException extends RuntimeException {
+
+    private final String stage;
+
+    public DeadlineExceededException(String stage) {
+        super("Deadline exceeded during " + stage);
+        this.stage = stage;
+    }
+}
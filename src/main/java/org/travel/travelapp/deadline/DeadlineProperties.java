@@ -0,0 +1,39 @@
+package org.travel.travelapp.deadline;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Per-request deadline, how it is split across stages, and hedging of slow Claude calls.
+ */
+@Data
+@ConfigurationProperties(prefix = "travel.deadline")
+public class DeadlineProperties {
+
+    // Used when the request doesn't set its own deadline
+    private Duration budget = Duration.ofSeconds(120);
+    // Upper bound for a deadline asked for in the header
+    private Duration maxBudget = Duration.ofMinutes(5);
+    // Request header carrying the client's deadline, e.g. "45s" or "1500ms"
+    private String header = "X-Request-Deadline";
+    // Share of the budget the sanitizer may use, counted from the start of the request
+    private double sanitizerShare = 0.2;
+    // Share of the budget a single MCP tool call may use
+    private double toolCallShare = 0.5;
+    // Extra time the servlet container waits for a blocking request past its deadline before giving up on it
+    private Duration grace = Duration.ofSeconds(5);
+    private Hedge hedge = new Hedge();
+
+    @Data
+    public static class Hedge {
+        // A hedge doubles the tokens of the calls it fires for, so it is opt-in
+        private boolean enabled = false;
+        // Latency percentile of recent calls after which a second, identical call is sent
+        private double percentile = 0.95;
+        // Recent calls needed before the percentile is trusted
+        private int minSamples = 20;
+        private Duration minDelay = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,82 @@
+package org.travel.travelapp.deadline;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bounds an MCP tool call by the deadline of the request that made it: at most its share of the budget,
+ * and never past the deadline itself. The call is interrupted when time runs out or the request is cancelled,
+ * which also cancels the pending MCP request. The model is told the tool timed out, so it can carry on without it.
+ * Calls without a deadline in their tool context run unbounded.
+ */
+public class DeadlineToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final String toolName;
+    private final double toolCallShare;
+
+    public DeadlineToolCallback(ToolCallback delegate, String toolName, double toolCallShare) {
+        this.delegate = delegate;
+        this.toolName = toolName;
+        this.toolCallShare = toolCallShare;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return delegate.call(toolInput);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        Deadline deadline = Deadline.of(toolContext);
+        if (!deadline.isBounded() && !deadline.isCancelled()) {
+            return delegate.call(toolInput, toolContext);
+        }
+        if (deadline.isExpired()) {
+            throw exceeded();
+        }
+
+        FutureTask<String> call = new FutureTask<>(() -> delegate.call(toolInput, toolContext));
+        Thread.ofVirtual().name("tool-" + toolName).start(call);
+        deadline.onCancel(() -> call.cancel(true));
+        long timeout = Math.min(deadline.remainingNanos(), (long) (deadline.budget().toNanos() * toolCallShare));
+        try {
+            return call.get(timeout, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | CancellationException e) {
+            call.cancel(true);
+            throw exceeded();
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw exceeded();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new ToolExecutionException(getToolDefinition(), e.getCause());
+        }
+    }
+
+    private ToolExecutionException exceeded() {
+        return new ToolExecutionException(getToolDefinition(), new DeadlineExceededException("tool " + toolName));
+    }
+}
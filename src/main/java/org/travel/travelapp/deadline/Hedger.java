@@ -0,0 +1,127 @@
+package org.travel.travelapp.deadline;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a blocking call within the request's deadline, cancelling it when the deadline runs out.
+ * <p>
+ * With hedging enabled, a call still running after the configured percentile of its recent latencies gets
+ * an identical second call; whichever succeeds first is used and the other is cancelled. Calls are tracked
+ * by name, so each kind of call has its own latency history. Hedges sent and the attempt that won are counted
+ * as {@code hedge.calls{call, outcome=sent|primary|hedge}}.
+ */
+@Component
+@Slf4j
+public class Hedger {
+
+    private static final int WINDOW_SIZE = 200;
+
+    private final DeadlineProperties.Hedge properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    public Hedger(DeadlineProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getHedge();
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T call(String name, Deadline deadline, Callable<T> call) {
+        return run(name, deadline, call, true);
+    }
+
+    /**
+     * Like {@link #call(String, Deadline, Callable)}, but never hedged, for a downstream that a second call
+     * would only slow down further, like the single local model process.
+     */
+    public <T> T within(String name, Deadline deadline, Callable<T> call) {
+        return run(name, deadline, call, false);
+    }
+
+    private <T> T run(String name, Deadline deadline, Callable<T> call, boolean hedged) {
+        LatencyWindow window = latencies.computeIfAbsent(name, n -> new LatencyWindow(WINDOW_SIZE));
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        CompletionService<T> race = new ExecutorCompletionService<>(executor);
+        long started = System.nanoTime();
+        try {
+            // Step 1: Start the call, and give it until the hedge delay to finish on its own
+            Future<T> primary = race.submit(call);
+            int pending = 1;
+            Future<T> done = null;
+            Duration hedgeDelay = hedged ? hedgeDelay(window) : null;
+            if (hedgeDelay != null) {
+                done = race.poll(Math.min(hedgeDelay.toNanos(), deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+                if (done == null && !deadline.isExpired()) {
+                    log.info("{} call still running after {} ms, sending a hedge", name, hedgeDelay.toMillis());
+                    meterRegistry.counter("hedge.calls", "call", name, "outcome", "sent").increment();
+                    race.submit(call);
+                    pending++;
+                }
+            }
+
+            // Step 2: Take the first attempt that succeeds, within the deadline
+            ExecutionException failure = null;
+            while (pending > 0) {
+                if (done == null) {
+                    done = race.poll(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        meterRegistry.counter("deadline.exceeded", "stage", name).increment();
+                        throw new DeadlineExceededException(name);
+                    }
+                }
+                pending--;
+                try {
+                    T result = done.get();
+                    window.record(System.nanoTime() - started);
+                    if (hedgeDelay != null) {
+                        meterRegistry.counter("hedge.calls", "call", name,
+                                "outcome", done == primary ? "primary" : "hedge").increment();
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    failure = e;
+                    done = null;
+                }
+            }
+            throw unwrap(failure);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException(name);
+        } finally {
+            // Cancels the attempt that lost, or every attempt when the deadline ran out
+            executor.shutdownNow();
+        }
+    }
+
+    private Duration hedgeDelay(LatencyWindow window) {
+        if (!properties.isEnabled() || window.size() < properties.getMinSamples()) {
+            return null;
+        }
+        Duration percentile = Duration.ofNanos(window.percentile(properties.getPercentile()));
+        return percentile.compareTo(properties.getMinDelay()) < 0 ? properties.getMinDelay() : percentile;
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (e.getCause() instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(e.getCause());
+    }
+}
@@ -0,0 +1,36 @@
+package org.travel.travelapp.deadline;
+
+import java.util.Arrays;
+
+/**
+ * The latencies of the most recent calls, for estimating a percentile of them.
+ */
+class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long percentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        return sorted[Math.clamp((long) Math.ceil(percentile * size) - 1, 0, size - 1)];
+    }
+}
@@ -0,0 +1,16 @@
+package org.travel.travelapp.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchItineraryRequest {
+
+    @NotEmpty(message = "At least one itinerary is required")
+    @Size(max = 50, message = "Maximum 50 itineraries per batch")
+    private List<@Valid ItineraryRequest> itineraries;
+}
@@ -0,0 +1,40 @@
+package org.travel.travelapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItineraryResponse {
+
+    private List<Result> results;
+    private Stats stats;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Result {
+        private int index;
+        private ItineraryResponse itinerary;
+        private String error;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Stats {
+        private int itineraries;
+        private int cachedPlans;                // served from the plan cache, without any section call
+        private int attractionLookups;          // one per distinct destination not cached
+        private int flightSearches;             // one per distinct route, date and party size not cached
+        private int summaries;                  // one per distinct request not cached
+        private int sectionCallsWithoutSharing; // three Claude section calls per itinerary when planned one by one
+        private int sectionCallsSaved;
+    }
+}
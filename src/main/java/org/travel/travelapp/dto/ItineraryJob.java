@@ -0,0 +1,37 @@
+package org.travel.travelapp.dto;
+
+import lombok.Value;
+import lombok.With;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of an asynchronously generated itinerary.
+ * The itinerary is only set once the job has completed.
+ */
+@Value
+@With
+public class ItineraryJob {
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    String id;
+    Status status;
+    LocalDateTime submittedAt;
+    LocalDateTime completedAt;
+    ItineraryResponse itinerary;
+    String error;
+
+    public static ItineraryJob pending(String id) {
+        return new ItineraryJob(id, Status.PENDING, LocalDateTime.now(), null, null, null);
+    }
+
+    public boolean isDone() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+}
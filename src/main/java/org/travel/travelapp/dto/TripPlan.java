@@ -1,9 +1,20 @@
 package org.travel.travelapp.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -15,6 +26,10 @@ public class TripPlan {
     private List<Attraction> attractions;
     private List<Flight> flights;
 
+    // Sections that could not be generated and hold fallback content instead
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<String> degradedSections = new ArrayList<>();
+
     @Data
     @AllArgsConstructor
     @NoArgsConstructor
@@ -36,5 +51,57 @@ public class TripPlan {
         private String duration;
         private Integer stops;
         private String bookingClass;
+
+        // Typed counterparts of the display fields above, which are filled in from each other after parsing
+        private BigDecimal priceAmount;
+        private String currency; // ISO 4217 code
+        @JsonDeserialize(using = LenientLocalDateTimeDeserializer.class)
+        private LocalDateTime departureAt;
+        @JsonDeserialize(using = LenientLocalDateTimeDeserializer.class)
+        private LocalDateTime arrivalAt;
+        private Integer durationMinutes;
+
+        // Constructor with the display fields only, for backwards compatibility
+        public Flight(String airline, String price, String departureTime, String arrivalTime,
+                      String duration, Integer stops, String bookingClass) {
+            this.airline = airline;
+            this.price = price;
+            this.departureTime = departureTime;
+            this.arrivalTime = arrivalTime;
+            this.duration = duration;
+            this.stops = stops;
+            this.bookingClass = bookingClass;
+        }
+    }
+
+    /**
+     * Reads a local ISO date-time, dropping an offset if the model added one; anything unreadable becomes
+     * {@code null} instead of failing the whole plan.
+     */
+    public static class LenientLocalDateTimeDeserializer extends StdDeserializer<LocalDateTime> {
+
+        public LenientLocalDateTimeDeserializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return parseLenient(parser.getValueAsString());
+        }
+
+        public static LocalDateTime parseLenient(String text) {
+            if (text == null || text.isBlank()) {
+                return null;
+            }
+            try {
+                return LocalDateTime.parse(text.trim());
+            } catch (DateTimeParseException e) {
+                try {
+                    return OffsetDateTime.parse(text.trim()).toLocalDateTime();
+                } catch (DateTimeParseException ignored) {
+                    return null;
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,24 @@
+package org.travel.travelapp.dto;
+
+/**
+ * One incremental piece of a trip plan, emitted as soon as it is complete.
+ * The type doubles as the Server-Sent Event name.
+ */
+public record TripPlanEvent(String type, Object data) {
+
+    public static final String SUMMARY = "summary";
+    public static final String ATTRACTION = "attraction";
+    public static final String FLIGHT = "flight";
+
+    public static TripPlanEvent summary(String summary) {
+        return new TripPlanEvent(SUMMARY, summary);
+    }
+
+    public static TripPlanEvent attraction(TripPlan.Attraction attraction) {
+        return new TripPlanEvent(ATTRACTION, attraction);
+    }
+
+    public static TripPlanEvent flight(TripPlan.Flight flight) {
+        return new TripPlanEvent(FLIGHT, flight);
+    }
+}
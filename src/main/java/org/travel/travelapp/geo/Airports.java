@@ -0,0 +1,65 @@
+package org.travel.travelapp.geo;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * IATA codes for the cities a flight search can be asked about, loaded from the bundled {@code geo/airports.tsv}.
+ * The flight search only takes codes, while requests name the cities as the user typed them.
+ * <p>
+ * Each line of the file is {@code name<TAB>code}, where the code is the city's metropolitan code when it has
+ * several airports. Lines starting with {@code #} are comments.
+ */
+@Component
+@Slf4j
+public class Airports {
+
+    private static final Pattern IATA_CODE = Pattern.compile("[A-Z]{3}");
+
+    private final Map<String, String> codes = new HashMap<>();
+
+    public Airports() throws IOException {
+        try (InputStream in = new ClassPathResource("geo/airports.tsv").getInputStream()) {
+            read(in);
+        }
+        log.info("Loaded IATA codes for {} city names", codes.size());
+    }
+
+    /**
+     * The IATA code for the place, or {@code null} when it isn't known. A place that is a code already, such as
+     * "LHR", is returned as it is; a country after a comma, as in "London, UK", is ignored.
+     */
+    public String code(String place) {
+        if (place == null) {
+            return null;
+        }
+        String stripped = place.strip();
+        return IATA_CODE.matcher(stripped).matches() ? stripped : codes.get(Gazetteer.cityKey(stripped));
+    }
+
+    private void read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length != 2 || !IATA_CODE.matcher(fields[1]).matches()) {
+                log.warn("Skipping malformed airports line: {}", line);
+                continue;
+            }
+            codes.putIfAbsent(Gazetteer.cityKey(fields[0]), fields[1]);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.travel.travelapp.geo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * City centres and known points of interest, loaded from the bundled {@code geo/cities.tsv} and
+ * {@code geo/pois.tsv} plus everything resolved through Maps since, so distances from the centre can be
+ * computed in-process.
+ * <p>
+ * Each line of the files is {@code name<TAB>latitude<TAB>longitude}; the learned file prefixes it with
+ * {@code city} or {@code poi}. Lines starting with {@code #} are comments.
+ */
+@Component
+@Slf4j
+public class Gazetteer {
+
+    private static final double SAME_POI_KM = 0.1;
+
+    private final GeoProperties properties;
+    private final Map<String, GeoPoint> cities = new ConcurrentHashMap<>();
+    private final PoiIndex pois = new PoiIndex();
+
+    public Gazetteer(GeoProperties properties, MeterRegistry meterRegistry) throws IOException {
+        this.properties = properties;
+        if (properties.isEnabled()) {
+            load();
+        }
+        Gauge.builder("geo.gazetteer.size", cities, Map::size).tag("kind", "city").register(meterRegistry);
+        Gauge.builder("geo.gazetteer.size", pois, PoiIndex::size).tag("kind", "poi").register(meterRegistry);
+    }
+
+    /**
+     * The centre of the city, or {@code null} when it isn't known yet. A country after a comma, as in
+     * "London, UK", is ignored.
+     */
+    public GeoPoint cityCenter(String city) {
+        return city == null ? null : cities.get(cityKey(city));
+    }
+
+    /**
+     * The known POI of this name around the city centre, or {@code null}.
+     */
+    public GeoPoint poi(String name, GeoPoint cityCenter) {
+        return name == null ? null : pois.find(name, cityCenter, properties.getSearchRadiusKm());
+    }
+
+    public void learnCity(String city, GeoPoint center) {
+        if (cities.putIfAbsent(cityKey(city), center) == null) {
+            persist("city", city, center);
+        }
+    }
+
+    public synchronized void learnPoi(String name, GeoPoint point) {
+        // Place searches keep returning the same POIs, each is only saved once
+        if (pois.find(name, point, SAME_POI_KM) == null) {
+            pois.add(name, point);
+            persist("poi", name, point);
+        }
+    }
+
+    private void load() throws IOException {
+        try (InputStream in = new ClassPathResource("geo/cities.tsv").getInputStream()) {
+            read(in, "city");
+        }
+        try (InputStream in = new ClassPathResource("geo/pois.tsv").getInputStream()) {
+            read(in, "poi");
+        }
+        int bundled = cities.size() + pois.size();
+        Path learned = properties.getLearnedFile();
+        if (Files.exists(learned)) {
+            try (InputStream in = Files.newInputStream(learned)) {
+                read(in, null);
+            }
+        }
+        log.info("Loaded gazetteer with {} cities and {} points of interest ({} learned)",
+                cities.size(), pois.size(), cities.size() + pois.size() - bundled);
+    }
+
+    /**
+     * @param kind what every line is, or {@code null} when each line starts with its kind
+     */
+    private void read(InputStream in, String kind) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            int offset = kind == null ? 1 : 0;
+            if (fields.length != 3 + offset) {
+                log.warn("Skipping malformed gazetteer line: {}", line);
+                continue;
+            }
+            GeoPoint point;
+            try {
+                point = new GeoPoint(Double.parseDouble(fields[offset + 1]), Double.parseDouble(fields[offset + 2]));
+            } catch (NumberFormatException e) {
+                log.warn("Skipping malformed gazetteer line: {}", line);
+                continue;
+            }
+            String lineKind = kind != null ? kind : fields[0];
+            if ("city".equals(lineKind)) {
+                cities.putIfAbsent(cityKey(fields[offset]), point);
+            } else {
+                pois.add(fields[offset], point);
+            }
+        }
+    }
+
+    // Requests name the city as "City, Country", the bundled file by the city alone
+    static String cityKey(String city) {
+        int comma = city.indexOf(',');
+        return PoiIndex.normalize(comma > 0 ? city.substring(0, comma) : city);
+    }
+
+    private synchronized void persist(String kind, String name, GeoPoint point) {
+        // Tabs and line breaks would break the format, and never matter to a name
+        String line = kind + "\t" + name.replaceAll("[\\t\\r\\n]+", " ") + "\t" + point.latitude() + "\t" + point.longitude() + "\n";
+        try {
+            Path learned = properties.getLearnedFile();
+            if (learned.getParent() != null) {
+                Files.createDirectories(learned.getParent());
+            }
+            Files.writeString(learned, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Could not save {} '{}' to the gazetteer: {}", kind, name, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.travel.travelapp.geo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * The embedded gazetteer that places attractions relative to the city centre without a Maps call per attraction.
+ */
+@Data
+@ConfigurationProperties(prefix = "travel.geo")
+public class GeoProperties {
+
+    private boolean enabled = true;
+    // Coordinates resolved through Maps are appended here and loaded again on startup
+    private Path learnedFile = Path.of("data", "geo", "learned.tsv");
+    // How far from the city centre a POI name is matched
+    private double searchRadiusKm = 40;
+}
@@ -0,0 +1,89 @@
+package org.travel.travelapp.geo;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Points of interest on a fixed grid of latitude/longitude cells, so a name is only matched against the POIs
+ * around a point: "Cathedral" near the Lisbon city centre is a different place from "Cathedral" in Seville.
+ */
+public class PoiIndex {
+
+    // About 11 km north to south; a search looks at every cell its radius touches
+    private static final double CELL_DEGREES = 0.1;
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final long COLUMNS = Math.round(360 / CELL_DEGREES);
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Map<Long, List<Poi>> cells = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public void add(String name, GeoPoint point) {
+        long column = Math.floorMod(column(point.longitude()), COLUMNS);
+        cells.computeIfAbsent(cell(row(point.latitude()), column), c -> new CopyOnWriteArrayList<>())
+                .add(new Poi(normalize(name), point));
+        size.incrementAndGet();
+    }
+
+    /**
+     * The POI of this name closest to {@code near}, if there is one within the radius.
+     */
+    public GeoPoint find(String name, GeoPoint near, double radiusKm) {
+        String key = normalize(name);
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        // Cells narrow towards the poles, so the same radius spans more of them
+        double lngSpan = Math.min(180, radiusKm / (KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(near.latitude())))));
+        GeoPoint best = null;
+        double bestDistance = radiusKm;
+        for (long row = row(near.latitude() - latSpan); row <= row(near.latitude() + latSpan); row++) {
+            for (long column = column(near.longitude() - lngSpan); column <= column(near.longitude() + lngSpan); column++) {
+                for (Poi poi : cells.getOrDefault(cell(row, Math.floorMod(column, COLUMNS)), List.of())) {
+                    if (!poi.name().equals(key)) {
+                        continue;
+                    }
+                    double distance = poi.point().distanceKm(near);
+                    if (distance <= bestDistance) {
+                        best = poi.point();
+                        bestDistance = distance;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Case, accents and punctuation don't distinguish names: "Musée d'Orsay" and "musee d orsay" are one key.
+     */
+    public static String normalize(String name) {
+        String stripped = DIACRITICS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+        return NON_ALPHANUMERIC.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static long row(double latitude) {
+        return (long) Math.floor(latitude / CELL_DEGREES);
+    }
+
+    // Not wrapped yet, so a search range crossing the antimeridian still counts up; cells wrap it
+    private static long column(double longitude) {
+        return (long) Math.floor((longitude + 180) / CELL_DEGREES);
+    }
+
+    private static long cell(long row, long column) {
+        return (row << 32) | (column & 0xffffffffL);
+    }
+
+    private record Poi(String name, GeoPoint point) {
+    }
+}
@@ -0,0 +1,92 @@
+package org.travel.travelapp.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.travel.travelapp.cache.TtlCache;
+
+import java.util.function.Supplier;
+
+/**
+ * Serves repeated MCP tool calls from a cache keyed on the canonicalized JSON arguments,
+ * so the same call with its arguments in a different order or spacing is still a hit.
+ * Failed calls are never cached. Every hit adds the latency of the call it replaced to
+ * {@code mcp.tool.cache.latency-saved}.
+ */
+public class CachingToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final TtlCache<String, CachedResult> cache;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter canonicalWriter;
+    private final Counter latencySaved;
+
+    public CachingToolCallback(ToolCallback delegate, String toolName, TtlCache<String, CachedResult> cache,
+                               ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.objectMapper = objectMapper;
+        this.canonicalWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.latencySaved = Counter.builder("mcp.tool.cache.latency-saved")
+                .tag("tool", toolName)
+                .baseUnit("seconds")
+                .description("Tool call time avoided by serving results from the cache")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return cached(toolInput, () -> delegate.call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return cached(toolInput, () -> delegate.call(toolInput, toolContext));
+    }
+
+    private String cached(String toolInput, Supplier<String> call) {
+        boolean[] loaded = {false};
+        CachedResult result = cache.get(canonicalize(toolInput), () -> {
+            loaded[0] = true;
+            long started = System.nanoTime();
+            String output = call.get();
+            return new CachedResult(output, System.nanoTime() - started);
+        });
+        if (!loaded[0]) {
+            latencySaved.increment(result.loadNanos() / 1e9);
+        }
+        return result.output();
+    }
+
+    String canonicalize(String toolInput) {
+        if (toolInput == null || toolInput.isBlank()) {
+            return "{}";
+        }
+        try {
+            // Maps sort their keys when written, so equal arguments always give the same key
+            return canonicalWriter.writeValueAsString(objectMapper.readValue(toolInput, Object.class));
+        } catch (JsonProcessingException e) {
+            return toolInput;
+        }
+    }
+
+    public record CachedResult(String output, long loadNanos) {
+    }
+}
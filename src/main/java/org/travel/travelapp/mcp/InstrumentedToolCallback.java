@@ -0,0 +1,63 @@
+package org.travel.travelapp.mcp;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.function.Supplier;
+
+/**
+ * Times every MCP tool invocation as {@code mcp.tool.calls}, tagged by tool, server and outcome,
+ * and adds it to the {@link ToolCallTally} of the model call that made it.
+ * Cache hits are included; the cache's own meters tell them apart.
+ */
+public class InstrumentedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final String toolName;
+    private final String server;
+    private final MeterRegistry meterRegistry;
+
+    public InstrumentedToolCallback(ToolCallback delegate, String toolName, String server, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.toolName = toolName;
+        this.server = server;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return timed(() -> delegate.call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        ToolCallTally.record(toolContext);
+        return timed(() -> delegate.call(toolInput, toolContext));
+    }
+
+    private String timed(Supplier<String> call) {
+        Timer.Sample started = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            String result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            started.stop(meterRegistry.timer("mcp.tool.calls", "tool", toolName, "server", server, "outcome", outcome));
+        }
+    }
+}
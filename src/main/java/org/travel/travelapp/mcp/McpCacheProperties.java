@@ -0,0 +1,39 @@
+package org.travel.travelapp.mcp;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MCP tool result cache settings: defaults plus per-tool overrides, keyed by the MCP server's tool name
+ * (e.g. {@code maps_distance_matrix}).
+ */
+@Data
+@ConfigurationProperties(prefix = "travel.mcp.cache")
+public class McpCacheProperties {
+
+    private Settings defaults = new Settings();
+    private Map<String, Settings> tools = new HashMap<>();
+
+    public Settings forTool(String name) {
+        Settings override = tools.get(name);
+        if (override == null) {
+            return defaults;
+        }
+        Settings merged = new Settings();
+        merged.setEnabled(override.getEnabled() != null ? override.getEnabled() : defaults.getEnabled());
+        merged.setTtl(override.getTtl() != null ? override.getTtl() : defaults.getTtl());
+        merged.setMaxSize(override.getMaxSize() != null ? override.getMaxSize() : defaults.getMaxSize());
+        return merged;
+    }
+
+    @Data
+    public static class Settings {
+        private Boolean enabled = true;
+        private Duration ttl = Duration.ofMinutes(5);
+        private Integer maxSize = 1000;
+    }
+}
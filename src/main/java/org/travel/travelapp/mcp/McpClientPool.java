@@ -0,0 +1,205 @@
+package org.travel.travelapp.mcp;
+
+import io.modelcontextprotocol.client.McpSyncClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A fixed number of MCP client processes for one server. Calls go to the live instance with the fewest
+ * calls in flight; instances that stop answering pings or hang on a call are replaced with a fresh process.
+ * Servers that can't be respawned (no stdio parameters) run as a pool of their single client.
+ */
+@Slf4j
+public class McpClientPool {
+
+    private final String server;
+    private final Supplier<McpSyncClient> factory;
+    private final List<Instance> instances = new ArrayList<>();
+    private final LongAdder restarts = new LongAdder();
+
+    /**
+     * @param initial the client Spring AI created for this server; it is initialized here unless Spring AI already did
+     * @param factory creates a new, uninitialized client for the server, or {@code null} if it can't be respawned
+     */
+    public McpClientPool(String server, McpSyncClient initial, Supplier<McpSyncClient> factory, int size) {
+        this.server = server;
+        this.factory = factory;
+        Instance first = new Instance(initial, false);
+        instances.add(first);
+
+        int extra = factory != null ? size - 1 : 0;
+        if (factory == null && size > 1) {
+            log.warn("MCP server {} can't be respawned, running it without a pool", server);
+        }
+
+        // Warm-up: start and initialize all processes in parallel so the first requests don't pay for it
+        try (ExecutorService starter = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> initialized = initial.isInitialized() ? null : starter.submit(initial::initialize);
+            List<Future<McpSyncClient>> started = new ArrayList<>();
+            for (int i = 0; i < extra; i++) {
+                started.add(starter.submit(this::startClient));
+            }
+            for (Future<McpSyncClient> client : started) {
+                try {
+                    instances.add(new Instance(client.get(), true));
+                } catch (Exception e) {
+                    log.error("Could not start a pooled process for MCP server {}: {}", server, e.getMessage());
+                }
+            }
+            if (initialized != null) {
+                try {
+                    initialized.get();
+                } catch (Exception e) {
+                    // The next health check restarts it
+                    log.error("Could not initialize MCP server {}: {}", server, e.getMessage());
+                    first.live = false;
+                }
+            }
+        }
+        log.info("MCP server {} running with {} process(es)", server, instances.size());
+    }
+
+    /**
+     * Runs the call on the least busy live instance.
+     */
+    public <T> T execute(Function<McpSyncClient, T> call) {
+        Instance instance = instances.stream()
+                .filter(candidate -> candidate.live)
+                .min(Comparator.comparingInt(candidate -> candidate.inFlight.get()))
+                .orElseThrow(() -> new IllegalStateException("No live process for MCP server " + server));
+
+        instance.inFlight.incrementAndGet();
+        Thread caller = Thread.currentThread();
+        instance.callsStartedAt.put(caller, System.nanoTime());
+        try {
+            return call.apply(instance.client);
+        } finally {
+            instance.callsStartedAt.remove(caller);
+            instance.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Pings idle instances and looks for calls stuck past the hang timeout; dead or hung instances are restarted.
+     */
+    public void checkHealth(Duration hangTimeout) {
+        long now = System.nanoTime();
+        for (Instance instance : instances) {
+            if (!instance.live) {
+                restart(instance);
+                continue;
+            }
+            boolean hung = instance.callsStartedAt.values().stream()
+                    .anyMatch(startedAt -> now - startedAt > hangTimeout.toNanos());
+            if (hung) {
+                log.warn("MCP server {} process has a call running longer than {}, restarting it", server, hangTimeout);
+                restart(instance);
+            } else if (instance.inFlight.get() == 0 && !ping(instance)) {
+                restart(instance);
+            }
+        }
+    }
+
+    public String getServer() {
+        return server;
+    }
+
+    public int size() {
+        return instances.size();
+    }
+
+    public int liveCount() {
+        return (int) instances.stream().filter(instance -> instance.live).count();
+    }
+
+    public int inFlight() {
+        return instances.stream().mapToInt(instance -> instance.inFlight.get()).sum();
+    }
+
+    public long restartCount() {
+        return restarts.sum();
+    }
+
+    /**
+     * Closes the processes this pool started; the initial client belongs to Spring AI.
+     */
+    public void close() {
+        for (Instance instance : instances) {
+            if (instance.owned) {
+                instance.client.close();
+            }
+        }
+    }
+
+    private boolean ping(Instance instance) {
+        try {
+            instance.client.ping();
+            return true;
+        } catch (Exception e) {
+            log.warn("MCP server {} process failed its liveness check: {}", server, e.getMessage());
+            return false;
+        }
+    }
+
+    private void restart(Instance instance) {
+        instance.live = false;
+        if (factory == null) {
+            // Nothing to respawn; keep trying the existing client
+            instance.live = ping(instance);
+            return;
+        }
+
+        McpSyncClient replaced = instance.client;
+        try {
+            instance.client = startClient();
+            instance.owned = true;
+            instance.live = true;
+            restarts.increment();
+            log.info("Restarted a process for MCP server {}", server);
+        } catch (Exception e) {
+            log.error("Could not restart a process for MCP server {}, will retry: {}", server, e.getMessage());
+            return;
+        }
+
+        // Calls still stuck on the old process fail once it's gone
+        try {
+            replaced.close();
+        } catch (Exception e) {
+            log.debug("Error closing replaced MCP client for {}: {}", server, e.getMessage());
+        }
+    }
+
+    private McpSyncClient startClient() {
+        McpSyncClient client = factory.get();
+        client.initialize();
+        client.listTools();
+        return client;
+    }
+
+    private static final class Instance {
+        private volatile McpSyncClient client;
+        private volatile boolean owned;
+        private volatile boolean live = true;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // A thread makes one call at a time, so its start time identifies the call
+        private final Map<Thread, Long> callsStartedAt = new ConcurrentHashMap<>();
+
+        private Instance(McpSyncClient client, boolean owned) {
+            this.client = client;
+            this.owned = owned;
+        }
+    }
+}
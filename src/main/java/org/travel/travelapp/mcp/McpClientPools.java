@@ -0,0 +1,135 @@
+package org.travel.travelapp.mcp;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.client.autoconfigure.properties.McpClientCommonProperties;
+import org.springframework.ai.mcp.client.autoconfigure.properties.McpStdioClientProperties;
+import org.springframework.ai.mcp.customizer.McpSyncClientCustomizer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * One {@link McpClientPool} per configured MCP server, built around the client Spring AI created for it.
+ * Pool size, live processes, in-flight calls and restarts are published as {@code mcp.pool.*} meters tagged by server.
+ * <p>
+ * Pools start in the background, all servers in parallel, so the application is up while the server processes
+ * are still spawning and handshaking; {@link #getStartingPools()} completes each pool as its processes are ready.
+ */
+@Component
+@Slf4j
+public class McpClientPools {
+
+    private final McpPoolProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService starter = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<CompletableFuture<McpClientPool>> startingPools = new ArrayList<>();
+
+    public McpClientPools(List<McpSyncClient> mcpSyncClients,
+                          McpStdioClientProperties stdioProperties,
+                          McpClientCommonProperties commonProperties,
+                          McpPoolProperties properties,
+                          ObjectProvider<McpSyncClientCustomizer> customizers,
+                          MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Map<String, ServerParameters> serverParameters = stdioProperties.toServerParameters();
+
+        for (McpSyncClient client : mcpSyncClients) {
+            String server = McpToolRegistry.serverName(client);
+            Supplier<McpSyncClient> factory = factory(server, serverParameters.get(server), commonProperties, customizers);
+            long startedAt = System.nanoTime();
+            startingPools.add(CompletableFuture
+                    .supplyAsync(() -> new McpClientPool(server, client, factory, properties.sizeFor(server)), starter)
+                    .whenComplete((pool, failure) -> started(server, pool, failure, startedAt)));
+        }
+    }
+
+    private void started(String server, McpClientPool pool, Throwable failure, long startedAt) {
+        Timer.builder("mcp.pool.startup")
+                .tag("server", server)
+                .tag("outcome", failure == null ? "success" : "error")
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        if (failure != null) {
+            log.error("Could not start MCP server {}: {}", server, failure.getMessage());
+            return;
+        }
+        Gauge.builder("mcp.pool.size", pool, McpClientPool::size)
+                .tag("server", server).register(meterRegistry);
+        Gauge.builder("mcp.pool.live", pool, McpClientPool::liveCount)
+                .tag("server", server).register(meterRegistry);
+        Gauge.builder("mcp.pool.in-flight", pool, McpClientPool::inFlight)
+                .tag("server", server).register(meterRegistry);
+        FunctionCounter.builder("mcp.pool.restarts", pool, McpClientPool::restartCount)
+                .tag("server", server).register(meterRegistry);
+    }
+
+    /**
+     * The pools that have started so far.
+     */
+    public List<McpClientPool> getPools() {
+        return startingPools.stream()
+                .filter(pool -> pool.state() == Future.State.SUCCESS)
+                .map(CompletableFuture::resultNow)
+                .toList();
+    }
+
+    /**
+     * Every pool, each completing once its processes are up, or failing if the server couldn't be started.
+     */
+    public List<CompletableFuture<McpClientPool>> getStartingPools() {
+        return startingPools;
+    }
+
+    @Scheduled(fixedDelayString = "${travel.mcp.pool.health-check-interval:15s}")
+    public void checkHealth() {
+        for (McpClientPool pool : getPools()) {
+            pool.checkHealth(properties.getHangTimeout());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        // Pools still starting are closed once they are up
+        startingPools.forEach(pool -> pool.thenAccept(McpClientPool::close));
+        starter.shutdown();
+    }
+
+    // Pooled clients get the same name and customizers as the one Spring AI created, so their tools keep the same prefix
+    private static Supplier<McpSyncClient> factory(String server, ServerParameters parameters,
+                                                   McpClientCommonProperties commonProperties,
+                                                   ObjectProvider<McpSyncClientCustomizer> customizers) {
+        if (parameters == null) {
+            return null;
+        }
+        McpSchema.Implementation clientInfo = new McpSchema.Implementation(
+                commonProperties.getName() + " - " + server, commonProperties.getVersion());
+        return () -> {
+            McpClient.SyncSpec spec = McpClient.sync(new StdioClientTransport(parameters))
+                    .clientInfo(clientInfo)
+                    .requestTimeout(commonProperties.getRequestTimeout());
+            customizers.orderedStream().forEach(customizer -> customizer.customize(server, spec));
+            return spec.build();
+        };
+    }
+}
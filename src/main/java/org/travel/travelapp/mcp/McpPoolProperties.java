@@ -0,0 +1,26 @@
+package org.travel.travelapp.mcp;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How many stdio processes to run per MCP server, and how they are health-checked.
+ * Sizes can be overridden per server, keyed by the connection name from mcp_config.json.
+ */
+@Data
+@ConfigurationProperties(prefix = "travel.mcp.pool")
+public class McpPoolProperties {
+
+    private int size = 1;
+    private Map<String, Integer> sizes = new HashMap<>();
+    // A call running longer than this marks its process as hung and gets it restarted
+    private Duration hangTimeout = Duration.ofMinutes(2);
+
+    public int sizeFor(String server) {
+        return Math.max(1, sizes.getOrDefault(server, size));
+    }
+}
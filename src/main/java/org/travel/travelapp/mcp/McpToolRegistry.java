@@ -0,0 +1,399 @@
+package org.travel.travelapp.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.spec.McpSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.travel.travelapp.bulkhead.BulkheadRegistry;
+import org.travel.travelapp.bulkhead.BulkheadToolCallback;
+import org.travel.travelapp.cache.TtlCache;
+import org.travel.travelapp.cassette.Cassette;
+import org.travel.travelapp.cassette.CassetteToolCallback;
+import org.travel.travelapp.deadline.DeadlineProperties;
+import org.travel.travelapp.deadline.DeadlineToolCallback;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Tool callbacks for every tool exposed by the configured MCP servers, dispatched across each server's process pool.
+ * Each callback is wrapped in the bulkhead of the server that provides it, and in a result cache
+ * with the tool's own TTL unless caching is disabled for it, and bounded by the deadline of the request
+ * that calls it. Tools can be handed to
+ * Claude as callbacks, or called directly from Java by their MCP tool name.
+ * <p>
+ * Tools are discovered once and kept until the next refresh, which runs periodically and whenever
+ * a server announces that its tool list changed. The first discovery runs in the background while the servers
+ * start, and each server's tools are registered as soon as it answers; a lookup made before then waits for
+ * the tools it needs, up to {@code travel.mcp.tools.discovery-timeout}.
+ * <p>
+ * With a cassette, calls and tool definitions are recorded to it, or in replay the tools are rebuilt from
+ * their recorded definitions and answered from the cassette without any MCP server running.
+ */
+@Component
+@Slf4j
+public class McpToolRegistry {
+
+    private final McpClientPools mcpClientPools;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final McpCacheProperties cacheProperties;
+    private final DeadlineProperties deadlineProperties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Cassette cassette;
+
+    // Result caches outlive refreshes, so rediscovering a tool doesn't drop its cached results
+    private final Map<String, TtlCache<String, CachingToolCallback.CachedResult>> resultCaches = new ConcurrentHashMap<>();
+    private final Duration discoveryTimeout;
+    private final CompletableFuture<Void> discovered = new CompletableFuture<>();
+    private final Lock refreshing = new ReentrantLock();
+    // Signalled whenever tools are registered, for lookups waiting on the first discovery
+    private final Lock registration = new ReentrantLock();
+    private final Condition registered = registration.newCondition();
+    private volatile List<RegisteredTool> tools = List.of();
+
+    public McpToolRegistry(McpClientPools mcpClientPools,
+                           BulkheadRegistry bulkheadRegistry,
+                           McpCacheProperties cacheProperties,
+                           DeadlineProperties deadlineProperties,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           ObjectProvider<Cassette> cassetteProvider,
+                           @Value("${travel.mcp.tools.discovery-timeout:60s}") Duration discoveryTimeout) {
+        this.mcpClientPools = mcpClientPools;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.cacheProperties = cacheProperties;
+        this.deadlineProperties = deadlineProperties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.cassette = cassetteProvider.getIfAvailable();
+        this.discoveryTimeout = discoveryTimeout;
+        Thread.ofVirtual().name("mcp-discovery").start(() -> {
+            try {
+                refresh();
+            } finally {
+                discovered.complete(null);
+                signalRegistered();
+            }
+        });
+    }
+
+    /**
+     * Lists the tools of every MCP server again and swaps in the new set.
+     */
+    @Scheduled(initialDelayString = "${travel.mcp.tools.refresh-interval:10m}",
+            fixedDelayString = "${travel.mcp.tools.refresh-interval:10m}")
+    public void refresh() {
+        // A lock rather than synchronized: discovery blocks on the servers, which would pin a virtual thread
+        refreshing.lock();
+        try {
+            List<String> before = tools.stream().map(RegisteredTool::name).sorted().toList();
+            // In replay the recorded tools stand in for the servers, which need not be running
+            if (cassette != null && cassette.getMode() == Cassette.Mode.REPLAY) {
+                register(replayedTools());
+            } else {
+                discover();
+            }
+
+            List<String> after = tools.stream().map(RegisteredTool::name).sorted().toList();
+            if (!before.equals(after)) {
+                log.info("Registered {} tools from {} MCP server(s): {}", after.size(),
+                        tools.stream().map(RegisteredTool::server).distinct().count(), after);
+            }
+        } finally {
+            refreshing.unlock();
+        }
+    }
+
+    /**
+     * Lists the tools of every server in parallel, registering each server's tools as soon as they are in.
+     * A server that fails to answer keeps the tools it had.
+     */
+    private void discover() {
+        try (ExecutorService listing = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletionService<List<RegisteredTool>> listed = new ExecutorCompletionService<>(listing);
+            List<CompletableFuture<McpClientPool>> pools = mcpClientPools.getStartingPools();
+            for (CompletableFuture<McpClientPool> starting : pools) {
+                listed.submit(() -> {
+                    McpClientPool pool = starting.join();
+                    return pool.execute(McpSyncClient::listTools).tools().stream()
+                            .map(tool -> new RegisteredTool(pool.getServer(), tool.name(), callback(pool, tool)))
+                            .toList();
+                });
+            }
+            for (int i = 0; i < pools.size(); i++) {
+                try {
+                    register(listed.take().get());
+                } catch (ExecutionException e) {
+                    // Keep what we knew about this server rather than dropping its tools
+                    log.warn("Could not list the tools of an MCP server, keeping the previous ones: {}", e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Replaces the tools of the servers in the list, leaving the other servers' tools as they are
+    private void register(List<RegisteredTool> serverTools) {
+        Set<String> servers = serverTools.stream().map(RegisteredTool::server).collect(Collectors.toSet());
+        List<RegisteredTool> updated = new ArrayList<>(tools.stream().filter(tool -> !servers.contains(tool.server())).toList());
+        updated.addAll(serverTools);
+        tools = List.copyOf(updated);
+        signalRegistered();
+    }
+
+    private void signalRegistered() {
+        registration.lock();
+        try {
+            registered.signalAll();
+        } finally {
+            registration.unlock();
+        }
+    }
+
+    /**
+     * The registered tools once they satisfy the condition, or once the first discovery is over, whichever comes
+     * first. Only lookups made while the servers are still starting wait, and never longer than {@code maxWait}.
+     */
+    private List<RegisteredTool> awaitTools(Predicate<List<RegisteredTool>> ready, Duration maxWait) {
+        Duration wait = maxWait.compareTo(discoveryTimeout) < 0 ? maxWait : discoveryTimeout;
+        long remaining = wait.toNanos();
+        registration.lock();
+        try {
+            while (!discovered.isDone() && !ready.test(tools) && remaining > 0) {
+                remaining = registered.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            registration.unlock();
+        }
+        if (!discovered.isDone() && !ready.test(tools)) {
+            log.warn("MCP tools are still being discovered after {}, going on with {} tool(s)", wait, tools.size());
+        }
+        return tools;
+    }
+
+    /**
+     * Completes once the first discovery is over, whether or not every server answered.
+     */
+    public CompletableFuture<Void> getDiscovery() {
+        return discovered;
+    }
+
+    // Refreshed on a thread of its own: the event comes from an MCP client's thread, which the listing needs
+    @EventListener
+    public void onToolsChanged(McpToolsChangedEvent event) {
+        log.info("MCP server {} changed its tool list, refreshing", event.server());
+        Thread.ofVirtual().name("mcp-refresh").start(this::refresh);
+    }
+
+    public ToolCallback[] getToolCallbacks() {
+        return getToolCallbacks(null, discoveryTimeout);
+    }
+
+    /**
+     * The tools registered right now, without waiting for servers still starting, e.g. for metrics.
+     */
+    public ToolCallback[] getRegisteredToolCallbacks() {
+        return tools.stream().map(RegisteredTool::callback).toArray(ToolCallback[]::new);
+    }
+
+    /**
+     * Callbacks for the tools matching the allowlist, by MCP tool name or by server name.
+     * A {@code null} allowlist selects every tool.
+     */
+    public ToolCallback[] getToolCallbacks(Collection<String> allowlist) {
+        return getToolCallbacks(allowlist, discoveryTimeout);
+    }
+
+    /**
+     * Like {@link #getToolCallbacks(Collection)}, waiting at most {@code maxWait} for servers still starting.
+     */
+    public ToolCallback[] getToolCallbacks(Collection<String> allowlist, Duration maxWait) {
+        if (allowlist == null) {
+            return awaitTools(registered -> false, maxWait).stream()
+                    .map(RegisteredTool::callback)
+                    .toArray(ToolCallback[]::new);
+        }
+        // Waits until every allowlisted name is a known tool or server, as one that never shows up can't be told apart
+        return awaitTools(registered -> allowlist.stream().allMatch(name -> registered.stream()
+                        .anyMatch(tool -> tool.name().equals(name) || tool.server().equals(name))), maxWait).stream()
+                .filter(tool -> allowlist.contains(tool.name()) || allowlist.contains(tool.server()))
+                .map(RegisteredTool::callback)
+                .toArray(ToolCallback[]::new);
+    }
+
+    /**
+     * Rough token count of the tool schemas sent with a prompt, at about four characters per token.
+     */
+    public static int estimateSchemaTokens(ToolCallback... callbacks) {
+        int chars = 0;
+        for (ToolCallback callback : callbacks) {
+            ToolDefinition definition = callback.getToolDefinition();
+            chars += definition.name().length() + definition.description().length() + definition.inputSchema().length();
+        }
+        return chars / 4;
+    }
+
+    private ToolCallback callback(McpClientPool pool, McpSchema.Tool tool) {
+        ToolCallback callback = new PooledMcpToolCallback(pool, tool);
+        if (cassette != null) {
+            recordDefinition(pool.getServer(), tool.name(), callback.getToolDefinition());
+            callback = new CassetteToolCallback(callback, callback.getToolDefinition(), tool.name(), cassette, objectMapper);
+        }
+        return wrap(pool.getServer(), tool.name(), callback);
+    }
+
+    private ToolCallback wrap(String server, String toolName, ToolCallback callback) {
+        callback = new BulkheadToolCallback(callback, bulkheadRegistry.get(server));
+
+        // Cache hits are answered before the bulkhead, without taking a slot
+        McpCacheProperties.Settings cache = cacheProperties.forTool(toolName);
+        if (cache.getEnabled()) {
+            callback = new CachingToolCallback(callback, toolName,
+                    resultCaches.computeIfAbsent(toolName, name ->
+                            new TtlCache<String, CachingToolCallback.CachedResult>(cache.getTtl(), cache.getMaxSize())
+                                    .bindTo(meterRegistry, "mcp." + name)),
+                    objectMapper, meterRegistry);
+        }
+        // Timed out calls still show up in mcp.tool.calls, as errors
+        callback = new DeadlineToolCallback(callback, toolName, deadlineProperties.getToolCallShare());
+        return new InstrumentedToolCallback(callback, toolName, server, meterRegistry);
+    }
+
+    // Replay needs each tool's definition to offer it to the model; it is recorded once per tool
+    private void recordDefinition(String server, String toolName, ToolDefinition definition) {
+        if (cassette.getMode() != Cassette.Mode.RECORD
+                || cassette.contains(Cassette.Kind.TOOL_DEFINITION, server, toolName)) {
+            return;
+        }
+        try {
+            cassette.append(Cassette.Entry.of(Cassette.Kind.TOOL_DEFINITION, server, toolName,
+                    objectMapper.writeValueAsString(definition), 0));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not record the definition of tool {}: {}", toolName, e.getMessage());
+        }
+    }
+
+    private List<RegisteredTool> replayedTools() {
+        List<RegisteredTool> replayed = new ArrayList<>();
+        for (Cassette.Entry entry : cassette.all(Cassette.Kind.TOOL_DEFINITION)) {
+            try {
+                JsonNode recorded = objectMapper.readTree(entry.response());
+                ToolDefinition definition = ToolDefinition.builder()
+                        .name(recorded.path("name").asText())
+                        .description(recorded.path("description").asText())
+                        .inputSchema(recorded.path("inputSchema").asText())
+                        .build();
+                ToolCallback callback = new CassetteToolCallback(null, definition, entry.request(), cassette, objectMapper);
+                replayed.add(new RegisteredTool(entry.source(), entry.request(), wrap(entry.source(), entry.request(), callback)));
+            } catch (JsonProcessingException e) {
+                log.warn("Skipping unreadable recorded definition of tool {}: {}", entry.request(), e.getMessage());
+            }
+        }
+        return replayed;
+    }
+
+    public Optional<RegisteredTool> find(String toolName) {
+        return awaitTools(registered -> registered.stream().anyMatch(tool -> tool.name().equals(toolName)), discoveryTimeout).stream()
+                .filter(tool -> tool.name().equals(toolName))
+                .findFirst();
+    }
+
+    /**
+     * Calls an MCP tool directly, bypassing the model, and returns the text content of its result.
+     */
+    public String callTool(String toolName, Map<String, Object> arguments, ToolContext toolContext) {
+        RegisteredTool tool = find(toolName)
+                .orElseThrow(() -> new IllegalArgumentException("No MCP server exposes tool " + toolName));
+        try {
+            String result = tool.callback().call(objectMapper.writeValueAsString(arguments), toolContext);
+            return textContent(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize arguments for tool " + toolName, e);
+        }
+    }
+
+    /**
+     * Whether calling the tool with these arguments would be answered from its result cache.
+     */
+    public boolean isCached(String toolName, Map<String, Object> arguments) {
+        TtlCache<String, CachingToolCallback.CachedResult> cache = resultCaches.get(toolName);
+        if (cache == null) {
+            return false;
+        }
+        try {
+            // The same canonical form the caching callback keys its results on
+            return cache.contains(objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsString(arguments));
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+
+    // Tool results are serialized as a list of MCP content items; only the text items are of interest
+    private String textContent(String result) throws JsonProcessingException {
+        JsonNode content = objectMapper.readTree(result);
+        if (!content.isArray()) {
+            return result;
+        }
+        StringBuilder text = new StringBuilder();
+        for (JsonNode item : content) {
+            if (item.hasNonNull("text")) {
+                if (!text.isEmpty()) {
+                    text.append('\n');
+                }
+                text.append(item.get("text").asText());
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Connection name of the client as configured in mcp_config.json.
+     * Spring AI names clients {@code "<client name> - <connection name>"}.
+     */
+    public static String serverName(McpSyncClient client) {
+        String clientName = client.getClientInfo().name();
+        int separator = clientName.lastIndexOf(" - ");
+        return separator >= 0 ? clientName.substring(separator + 3) : clientName;
+    }
+
+    /**
+     * A tool as exposed by its MCP server. {@code name} is the server's own tool name, while the callback
+     * carries the client-prefixed name Spring AI presents to the model.
+     */
+    public record RegisteredTool(String server, String name, ToolCallback callback) {
+    }
+}
@@ -0,0 +1,23 @@
+package org.travel.travelapp.mcp;
+
+import io.modelcontextprotocol.client.McpClient;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.mcp.customizer.McpSyncClientCustomizer;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns MCP {@code tools/list_changed} notifications into {@link McpToolsChangedEvent}s, so the tool registry
+ * can refresh without depending on the clients being built.
+ */
+@Component
+@RequiredArgsConstructor
+public class McpToolsChangeNotifier implements McpSyncClientCustomizer {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void customize(String name, McpClient.SyncSpec spec) {
+        spec.toolsChangeConsumer(tools -> eventPublisher.publishEvent(new McpToolsChangedEvent(name)));
+    }
+}
@@ -0,0 +1,7 @@
+package org.travel.travelapp.mcp;
+
+/**
+ * Published when an MCP server notifies that its tool list changed.
+ */
+public record McpToolsChangedEvent(String server) {
+}
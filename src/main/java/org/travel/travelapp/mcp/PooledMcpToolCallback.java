@@ -0,0 +1,39 @@
+package org.travel.travelapp.mcp;
+
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.SyncMcpToolCallback;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+/**
+ * Calls an MCP tool on whichever process of its server's pool is least busy.
+ * The call itself is Spring AI's {@link SyncMcpToolCallback}, bound to the chosen client.
+ */
+public class PooledMcpToolCallback implements ToolCallback {
+
+    private final McpClientPool pool;
+    private final McpSchema.Tool tool;
+    private final ToolDefinition toolDefinition;
+
+    public PooledMcpToolCallback(McpClientPool pool, McpSchema.Tool tool) {
+        this.pool = pool;
+        this.tool = tool;
+        this.toolDefinition = pool.execute(client -> new SyncMcpToolCallback(client, tool).getToolDefinition());
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return toolDefinition;
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return pool.execute(client -> new SyncMcpToolCallback(client, tool).call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return pool.execute(client -> new SyncMcpToolCallback(client, tool).call(toolInput, toolContext));
+    }
+}
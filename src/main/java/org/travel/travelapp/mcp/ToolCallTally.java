@@ -0,0 +1,31 @@
+package org.travel.travelapp.mcp;
+
+import org.springframework.ai.chat.model.ToolContext;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the MCP tool calls made on behalf of one model call. It travels in the {@link ToolContext},
+ * which Spring AI hands to every tool the model invokes, whichever thread runs it.
+ */
+public final class ToolCallTally {
+
+    public static final String CONTEXT_KEY = "toolCallTally";
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    public Map<String, Object> toolContext() {
+        return Map.of(CONTEXT_KEY, this);
+    }
+
+    public int count() {
+        return calls.get();
+    }
+
+    static void record(ToolContext toolContext) {
+        if (toolContext != null && toolContext.getContext().get(CONTEXT_KEY) instanceof ToolCallTally tally) {
+            tally.calls.incrementAndGet();
+        }
+    }
+}
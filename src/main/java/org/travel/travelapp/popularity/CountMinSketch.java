@@ -0,0 +1,69 @@
+package org.travel.travelapp.popularity;
+
+/**
+ * Fixed-size frequency estimator: counts can be overestimated when keys collide, but never underestimated.
+ * Uses conservative update, which only raises the counters that hold the current minimum,
+ * so heavy keys don't inflate the estimates of the light keys they collide with.
+ * Not thread-safe.
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final long[] counters;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || width < 1) {
+            throw new IllegalArgumentException("Depth and width must be positive");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.counters = new long[depth * width];
+    }
+
+    /**
+     * Counts one occurrence of the key and returns its new estimate.
+     */
+    public long add(Object key) {
+        int hash = key.hashCode();
+        long estimate = estimate(hash);
+        long updated = estimate + 1;
+        for (int row = 0; row < depth; row++) {
+            int cell = cell(row, hash);
+            if (counters[cell] < updated) {
+                counters[cell] = updated;
+            }
+        }
+        return updated;
+    }
+
+    public long estimate(Object key) {
+        return estimate(key.hashCode());
+    }
+
+    /**
+     * Halves every count, so the sketch follows recent traffic instead of all-time totals.
+     */
+    public void halve() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= 1;
+        }
+    }
+
+    private long estimate(int hash) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[cell(row, hash)]);
+        }
+        return min;
+    }
+
+    // A different mix of the hash per row, so keys colliding in one row rarely collide in the others
+    private int cell(int row, int hash) {
+        long mixed = (hash & 0xFFFFFFFFL) * 0x9E3779B97F4A7C15L + (row + 1) * 0xBF58476D1CE4E5B9L;
+        mixed ^= mixed >>> 31;
+        mixed *= 0x94D049BB133111EBL;
+        mixed ^= mixed >>> 29;
+        return row * width + (int) Math.floorMod(mixed, (long) width);
+    }
+}
@@ -0,0 +1,64 @@
+package org.travel.travelapp.popularity;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The K most frequent keys of a stream, with counts estimated by a {@link CountMinSketch}.
+ * Memory stays bounded by the sketch size plus K tracked keys, however many distinct keys are seen.
+ */
+public class HeavyHitters<K> {
+
+    private final CountMinSketch sketch;
+    private final int capacity;
+    private final Map<K, Long> top = new HashMap<>();
+
+    public HeavyHitters(int capacity, int sketchDepth, int sketchWidth) {
+        this.capacity = capacity;
+        this.sketch = new CountMinSketch(sketchDepth, sketchWidth);
+    }
+
+    /**
+     * Counts one occurrence of the key and returns whether it is now among the top K.
+     */
+    public synchronized boolean record(K key) {
+        long estimate = sketch.add(key);
+        if (top.containsKey(key) || top.size() < capacity) {
+            top.put(key, estimate);
+            return true;
+        }
+        Map.Entry<K, Long> coldest = top.entrySet().stream().min(Map.Entry.comparingByValue()).orElseThrow();
+        if (estimate <= coldest.getValue()) {
+            return false;
+        }
+        top.remove(coldest.getKey());
+        top.put(key, estimate);
+        return true;
+    }
+
+    /**
+     * Tracked keys with their estimated counts, most frequent first.
+     */
+    public synchronized List<Map.Entry<K, Long>> top() {
+        List<Map.Entry<K, Long>> entries = new ArrayList<>();
+        top.forEach((key, count) -> entries.add(Map.entry(key, count)));
+        entries.sort(Map.Entry.<K, Long>comparingByValue(Comparator.reverseOrder()));
+        return entries;
+    }
+
+    public synchronized boolean contains(K key) {
+        return top.containsKey(key);
+    }
+
+    /**
+     * Halves all counts; keys whose count drops to zero stop being tracked.
+     */
+    public synchronized void decay() {
+        sketch.halve();
+        top.replaceAll((key, count) -> count >>> 1);
+        top.values().removeIf(count -> count == 0);
+    }
+}
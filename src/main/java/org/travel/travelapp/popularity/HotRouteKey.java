@@ -0,0 +1,21 @@
+package org.travel.travelapp.popularity;
+
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.service.TripPlanKey;
+
+import java.time.LocalDate;
+
+/**
+ * A route and travel window, the unit that popularity is tracked and plans are precomputed for.
+ * Unlike {@link TripPlanKey} it leaves out the description and party size, which vary from user to user.
+ */
+public record HotRouteKey(String from, String to, LocalDate startDate, LocalDate endDate) {
+
+    public static HotRouteKey of(ItineraryRequest request) {
+        return new HotRouteKey(
+                TripPlanKey.normalize(request.getFrom()),
+                TripPlanKey.normalize(request.getTo()),
+                request.getStartDate(),
+                request.getEndDate());
+    }
+}
@@ -0,0 +1,135 @@
+package org.travel.travelapp.popularity;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.service.TripPlannerService;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refreshes the precomputed plans of the hottest routes off-peak, within a concurrency and Claude token budget.
+ * Outcomes are counted as {@code trip.plan.precompute{outcome}} and the tokens spent as {@code trip.plan.precompute.tokens}.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class HotRoutePrecomputer {
+
+    private final HotRouteTracker hotRouteTracker;
+    private final TripPlannerService tripPlannerService;
+    private final HotRouteProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    // Running average of what a plan really costs, so reservations get closer to it run by run
+    private final AtomicLong tokensPerPlan = new AtomicLong();
+
+    @Scheduled(cron = "${travel.hot-routes.refresh-cron:0 0 4 * * *}")
+    public void refresh() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<HotRouteTracker.HotRoute> hottest = hotRouteTracker.hottest();
+        hotRouteTracker.retain(hottest.stream().map(HotRouteTracker.HotRoute::key).toList());
+        log.info("Precomputing trip plans for {} hot route(s)", hottest.size());
+
+        Budget budget = new Budget(properties.getTokenBudget());
+        Semaphore permits = new Semaphore(properties.getMaxConcurrency());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (HotRouteTracker.HotRoute route : hottest) {
+                // Step 1: Wait for a free slot, then reserve the plan's expected tokens
+                permits.acquireUninterruptibly();
+                long reserved = estimatedTokensPerPlan();
+                if (!budget.reserve(reserved)) {
+                    permits.release();
+                    long skipped = hottest.size() - hottest.indexOf(route);
+                    meterRegistry.counter("trip.plan.precompute", "outcome", "skipped").increment(skipped);
+                    log.info("Token budget of {} reached, skipping {} colder route(s)", properties.getTokenBudget(), skipped);
+                    break;
+                }
+
+                // Step 2: Plan the route and settle the reservation against what it really used
+                executor.submit(() -> {
+                    try {
+                        precompute(route, budget, reserved);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        log.info("Precomputing finished, {} of {} tokens spent", budget.spent, properties.getTokenBudget());
+    }
+
+    private void precompute(HotRouteTracker.HotRoute route, Budget budget, long reserved) {
+        String outcome = "error";
+        long tokens = reserved;
+        try {
+            TripPlannerService.PrecomputedPlan plan = tripPlannerService.precomputeTripPlan(copyOf(route.sample()));
+            tokens = plan.tokens();
+            // A plan with fallback sections would pin the degradation for the whole TTL
+            if (plan.tripPlan().getDegradedSections().isEmpty()) {
+                hotRouteTracker.store(route, plan.tripPlan());
+                outcome = "stored";
+            } else {
+                outcome = "degraded";
+            }
+            if (tokens > 0) {
+                tokensPerPlan.accumulateAndGet(tokens, (average, latest) -> average == 0 ? latest : (average + latest) / 2);
+            }
+        } catch (Exception e) {
+            log.warn("Could not precompute trip plan for {} to {}: {}", route.key().from(), route.key().to(), e.getMessage());
+        } finally {
+            budget.settle(reserved, tokens);
+            meterRegistry.counter("trip.plan.precompute", "outcome", outcome).increment();
+            meterRegistry.counter("trip.plan.precompute.tokens").increment(tokens);
+        }
+    }
+
+    private long estimatedTokensPerPlan() {
+        long measured = tokensPerPlan.get();
+        return measured > 0 ? measured : properties.getEstimatedTokensPerPlan();
+    }
+
+    // The plan is generic for the route: the sample's own description is not used
+    private static ItineraryRequest copyOf(ItineraryRequest sample) {
+        ItineraryRequest request = new ItineraryRequest();
+        request.setFrom(sample.getFrom());
+        request.setTo(sample.getTo());
+        request.setStartDate(sample.getStartDate());
+        request.setEndDate(sample.getEndDate());
+        request.setNumberOfAdults(sample.getNumberOfAdults());
+        return request;
+    }
+
+    private static final class Budget {
+
+        private final long limit;
+        private long spent;
+        private long reserved;
+
+        Budget(long limit) {
+            this.limit = limit;
+        }
+
+        synchronized boolean reserve(long tokens) {
+            if (spent + reserved + tokens > limit) {
+                return false;
+            }
+            reserved += tokens;
+            return true;
+        }
+
+        synchronized void settle(long reservation, long actual) {
+            reserved -= reservation;
+            spent += actual;
+        }
+    }
+}
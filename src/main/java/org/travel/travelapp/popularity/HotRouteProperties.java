@@ -0,0 +1,29 @@
+package org.travel.travelapp.popularity;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Popularity tracking of routes and the budget for precomputing their plans off-peak.
+ */
+@Data
+@ConfigurationProperties(prefix = "travel.hot-routes")
+public class HotRouteProperties {
+
+    private boolean enabled = true;
+    // Number of routes tracked, and at most precomputed per run
+    private int topK = 50;
+    private int sketchDepth = 4;
+    private int sketchWidth = 4096;
+    // Estimated requests a route needs before it is worth precomputing
+    private long minRequests = 5;
+    // How long a precomputed plan is served before it is considered stale
+    private Duration ttl = Duration.ofHours(24);
+    private int maxConcurrency = 2;
+    // Claude tokens a single precompute run may spend
+    private long tokenBudget = 500_000;
+    // Reservation per plan until real usage has been measured
+    private long estimatedTokensPerPlan = 20_000;
+}
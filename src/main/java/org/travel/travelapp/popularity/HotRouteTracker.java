@@ -0,0 +1,102 @@
+package org.travel.travelapp.popularity;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.TripPlan;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks how often each route is requested, and holds the plans precomputed for the hottest ones.
+ * Hit/miss of foreground lookups is counted as {@code trip.plan.precomputed{outcome}}.
+ */
+@Component
+public class HotRouteTracker {
+
+    private final HotRouteProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final HeavyHitters<HotRouteKey> popularity;
+    // Latest request seen for each tracked route, used as the template for precomputing it
+    private final Map<HotRouteKey, ItineraryRequest> samples = new ConcurrentHashMap<>();
+    private final Map<HotRouteKey, Precomputed> precomputed = new ConcurrentHashMap<>();
+
+    public HotRouteTracker(HotRouteProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.popularity = new HeavyHitters<>(properties.getTopK(), properties.getSketchDepth(), properties.getSketchWidth());
+
+        Gauge.builder("trip.plan.precomputed.size", precomputed, Map::size).register(meterRegistry);
+    }
+
+    public void record(ItineraryRequest request) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        HotRouteKey key = HotRouteKey.of(request);
+        if (popularity.record(key)) {
+            samples.put(key, request);
+        }
+    }
+
+    /**
+     * The plan precomputed for this request's route, if there is one that isn't stale.
+     * Flight prices depend on the party size, so the plan only matches requests for the same number of adults.
+     */
+    public Optional<TripPlan> precomputed(ItineraryRequest request) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        Precomputed plan = precomputed.get(HotRouteKey.of(request));
+        boolean fresh = plan != null
+                && Objects.equals(plan.numberOfAdults(), request.getNumberOfAdults())
+                && plan.computedAt().plus(properties.getTtl()).isAfter(Instant.now());
+        meterRegistry.counter("trip.plan.precomputed", "outcome", fresh ? "hit" : "miss").increment();
+        return fresh ? Optional.of(plan.tripPlan()) : Optional.empty();
+    }
+
+    /**
+     * Routes worth precomputing, most requested first: popular enough and not yet departed.
+     */
+    public List<HotRoute> hottest() {
+        LocalDate today = LocalDate.now();
+        return popularity.top().stream()
+                .filter(entry -> entry.getValue() >= properties.getMinRequests())
+                .filter(entry -> entry.getKey().startDate() != null && !entry.getKey().startDate().isBefore(today))
+                .filter(entry -> samples.containsKey(entry.getKey()))
+                .map(entry -> new HotRoute(entry.getKey(), entry.getValue(), samples.get(entry.getKey())))
+                .toList();
+    }
+
+    public void store(HotRoute route, TripPlan tripPlan) {
+        precomputed.put(route.key(), new Precomputed(tripPlan, route.sample().getNumberOfAdults(), Instant.now()));
+    }
+
+    /**
+     * Drops precomputed plans and samples of routes that are no longer hot.
+     */
+    public void retain(Collection<HotRouteKey> hot) {
+        precomputed.keySet().retainAll(hot);
+        samples.keySet().removeIf(key -> !popularity.contains(key));
+    }
+
+    @Scheduled(fixedDelayString = "${travel.hot-routes.decay-interval:1d}", initialDelayString = "${travel.hot-routes.decay-interval:1d}")
+    public void decay() {
+        popularity.decay();
+    }
+
+    public record HotRoute(HotRouteKey key, long requests, ItineraryRequest sample) {
+    }
+
+    private record Precomputed(TripPlan tripPlan, Integer numberOfAdults, Instant computedAt) {
+    }
+}
@@ -0,0 +1,170 @@
+package org.travel.travelapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.travel.travelapp.cache.TtlCache;
+import org.travel.travelapp.deadline.Deadline;
+import org.travel.travelapp.dto.BatchItineraryResponse;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.ItineraryResponse;
+import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.store.ItineraryStore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Plans many itineraries at once, sharing section lookups between them.
+ * Itineraries already in the plan cache are served from it. For the rest, attractions research runs once per
+ * destination and flight searches once per route, date and party size; only the summary is written per itinerary.
+ * Everything is bounded by the batch's deadline, like a single itinerary: sections still running when it runs out
+ * degrade. Each itinerary is stored like a single one, so it can be fetched and edited by id afterwards.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BatchItineraryService {
+
+    private final ItinerarySanitizerService sanitizerService;
+    private final TripPlannerService tripPlannerService;
+    private final TtlCache<TripPlanKey, TripPlan> tripPlanCache;
+    private final ItineraryStore itineraryStore;
+    private final ObjectMapper objectMapper;
+    private final TripPlanRanker tripPlanRanker;
+
+    public BatchItineraryResponse createItineraries(List<ItineraryRequest> requests, Deadline deadline) {
+        log.info("Planning batch of {} itineraries", requests.size());
+
+        ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            // Step 1: Sanitize every description, so each itinerary can be looked up in the plan cache
+            List<Future<String>> sanitized = new ArrayList<>();
+            for (ItineraryRequest request : requests) {
+                sanitized.add(scope.submit(() -> sanitizerService.sanitizeDescription(request.getDescription())));
+            }
+            List<String> descriptions = new ArrayList<>();
+            List<TripPlanKey> keys = new ArrayList<>();
+            List<TripPlan> cached = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                String description = sanitizedOrOriginal(requests.get(i), sanitized.get(i), deadline);
+                TripPlanKey key = TripPlanKey.of(requests.get(i), description);
+                descriptions.add(description);
+                keys.add(key);
+                cached.add(tripPlanCache.getIfPresent(key).orElse(null));
+            }
+
+            // Step 2: Start the shared lookups for the itineraries the cache didn't have, each at most once per group
+            Map<String, Future<List<TripPlan.Attraction>>> attractionsByDestination = new HashMap<>();
+            Map<FlightKey, Future<List<TripPlan.Flight>>> flightsByRoute = new HashMap<>();
+            Map<TripPlanKey, Future<String>> summaries = new HashMap<>();
+            for (int i = 0; i < requests.size(); i++) {
+                if (cached.get(i) != null) {
+                    continue;
+                }
+                ItineraryRequest request = requests.get(i);
+                String description = descriptions.get(i);
+                attractionsByDestination.computeIfAbsent(keys.get(i).to(),
+                        destination -> scope.submit(() -> tripPlannerService.researchAttractions(request, deadline)));
+                flightsByRoute.computeIfAbsent(FlightKey.of(request),
+                        route -> scope.submit(() -> tripPlannerService.searchFlights(request, deadline)));
+                summaries.computeIfAbsent(keys.get(i),
+                        key -> scope.submit(() -> tripPlannerService.writeSummary(request, description, deadline)));
+            }
+
+            // Step 3: Assemble each itinerary from the cache or the shared results
+            List<BatchItineraryResponse.Result> results = new ArrayList<>();
+            int fromCache = 0;
+            for (int i = 0; i < requests.size(); i++) {
+                ItineraryRequest request = requests.get(i);
+                TripPlanKey key = keys.get(i);
+                try {
+                    TripPlan tripPlan = cached.get(i);
+                    if (tripPlan != null) {
+                        fromCache++;
+                    } else {
+                        tripPlan = tripPlanRanker.rank(tripPlannerService.mergeSections(request,
+                                summaries.get(key),
+                                attractionsByDestination.get(key.to()),
+                                flightsByRoute.get(FlightKey.of(request)),
+                                deadline));
+                        if (tripPlan.getDegradedSections().isEmpty()) {
+                            tripPlanCache.put(key, tripPlan);
+                        }
+                    }
+
+                    ItineraryResponse response = ItineraryService.newResponse(UUID.randomUUID().toString(),
+                            request, descriptions.get(i));
+                    response.setTripPlan(tripPlan);
+                    store(response);
+                    results.add(new BatchItineraryResponse.Result(i, response, null));
+
+                } catch (Exception e) {
+                    log.error("Error planning batch itinerary {}: {}", i, e.getMessage(), e);
+                    results.add(new BatchItineraryResponse.Result(i, null, e.getMessage()));
+                }
+            }
+
+            BatchItineraryResponse.Stats stats = stats(requests.size(), fromCache,
+                    attractionsByDestination.size(), flightsByRoute.size(), summaries.size());
+            log.info("Batch planned with {} Claude section calls instead of {} ({} plans from the cache)",
+                    stats.getSectionCallsWithoutSharing() - stats.getSectionCallsSaved(),
+                    stats.getSectionCallsWithoutSharing(), stats.getCachedPlans());
+
+            return new BatchItineraryResponse(results, stats);
+
+        } finally {
+            scope.shutdownNow();
+        }
+    }
+
+    private static BatchItineraryResponse.Stats stats(int itineraries, int cachedPlans, int attractionLookups,
+                                                     int flightSearches, int summaries) {
+        int withoutSharing = itineraries * PlanSection.values().length;
+        int made = attractionLookups + flightSearches + summaries;
+        return new BatchItineraryResponse.Stats(itineraries, cachedPlans, attractionLookups, flightSearches, summaries,
+                withoutSharing, withoutSharing - made);
+    }
+
+    private void store(ItineraryResponse response) {
+        try {
+            itineraryStore.append(response.getId(), objectMapper.writeValueAsBytes(response));
+        } catch (Exception e) {
+            log.warn("Could not store itinerary {}: {}", response.getId(), e.getMessage());
+        }
+    }
+
+    // Like a single itinerary, one whose sanitization doesn't finish in time is planned with its own description
+    private static String sanitizedOrOriginal(ItineraryRequest request, Future<String> sanitized, Deadline deadline) {
+        try {
+            return sanitized.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return request.getDescription();
+        } catch (ExecutionException e) {
+            return request.getDescription();
+        } catch (TimeoutException e) {
+            sanitized.cancel(true);
+            return request.getDescription();
+        }
+    }
+
+    // Flight offers depend on the party size as well as the route and date
+    private record FlightKey(String from, String to, LocalDate departureDate, Integer numberOfAdults) {
+        static FlightKey of(ItineraryRequest request) {
+            return new FlightKey(TripPlanKey.normalize(request.getFrom()), TripPlanKey.normalize(request.getTo()),
+                    request.getStartDate(), request.getNumberOfAdults());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.travel.travelapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.travel.travelapp.geo.Gazetteer;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Cheap deterministic check in front of the local sanitization model.
+ * Descriptions that are short, use plain characters and read as travel vocabulary are classified as clean
+ * and skip the model; anything else is ambiguous and still goes through Gemma.
+ * <p>
+ * Capitalised words are not vocabulary: only cities the gazetteer knows are let through, a few at most, and they
+ * are left out of the known-word ratio instead of raising it. "Museum Visit Then Disregard Previous Directions"
+ * therefore reads as mostly unknown words, however it is capitalised.
+ */
+@Component
+public class DescriptionPreClassifier {
+
+    public enum Verdict {
+        CLEAN,
+        AMBIGUOUS
+    }
+
+    // Letters, digits, whitespace and the punctuation found in ordinary sentences
+    private static final Pattern PLAIN_TEXT = Pattern.compile("[\\p{L}\\p{N}\\s.,;:!?'()&/\\-]+");
+    private static final Pattern TOKEN_SPLIT = Pattern.compile("[\\s.,;:!?()&/\\-]+");
+
+    private static final Set<String> TRAVEL_WORDS = Set.of(
+            "trip", "travel", "travelling", "traveling", "vacation", "holiday", "holidays", "weekend", "getaway",
+            "day", "days", "night", "nights", "week", "weeks", "morning", "afternoon", "evening",
+            "museum", "museums", "gallery", "galleries", "art", "history", "historic", "historical", "culture",
+            "cultural", "architecture", "castle", "castles", "palace", "cathedral", "church", "churches", "temple",
+            "temples", "monument", "monuments", "ruins", "old", "town", "city", "cities", "village", "villages",
+            "food", "foodie", "cuisine", "restaurant", "restaurants", "cafe", "cafes", "coffee", "wine", "wines",
+            "tasting", "street", "market", "markets", "local", "dishes", "dinner", "lunch", "breakfast", "bars",
+            "nightlife", "beach", "beaches", "sea", "ocean", "island", "islands", "coast", "lake", "lakes",
+            "river", "mountain", "mountains", "hiking", "hike", "walking", "walk", "walks", "tour", "tours",
+            "sightseeing", "sights", "views", "viewpoint", "viewpoints", "nature", "park", "parks", "garden",
+            "gardens", "outdoor", "outdoors", "adventure", "relax", "relaxing", "relaxation", "spa", "shopping",
+            "shops", "music", "concert", "concerts", "festival", "festivals", "family", "kids", "children",
+            "friends", "couple", "honeymoon", "romantic", "budget", "luxury", "hotel", "hotels", "hostel",
+            "accommodation", "stay", "visit", "visiting", "explore", "exploring", "see", "seeing", "photography",
+            "boat", "cruise", "train", "bike", "cycling", "ski", "skiing", "snorkeling", "diving", "surfing",
+            "wildlife", "zoo", "aquarium", "theatre", "theater", "opera", "landmarks", "attractions", "famous"
+    );
+
+    private static final Set<String> FILLER_WORDS = Set.of(
+            "a", "an", "the", "and", "or", "with", "without", "for", "of", "in", "on", "at", "to", "from", "by",
+            "some", "lots", "lot", "many", "few", "plus", "also", "maybe", "mostly", "mainly", "especially",
+            "interested", "like", "love", "enjoy", "want", "would", "we", "i", "our", "my", "us", "me",
+            "good", "great", "best", "nice", "cheap", "quiet", "short", "long", "full", "half", "first",
+            "one", "two", "three", "four", "five", "six", "seven", "eight", "nine", "ten"
+    );
+
+    // Words that suggest instructions, spam or off-topic content and always need the model
+    private static final Set<String> SUSPICIOUS_WORDS = Set.of(
+            "ignore", "instruction", "instructions", "prompt", "system", "assistant", "pretend", "password",
+            "http", "https", "www", "click", "subscribe", "buy", "sale", "discount", "casino", "crypto",
+            "bitcoin", "loan", "viagra", "disregard", "forget", "override", "reveal", "jailbreak", "developer",
+            "rules", "respond", "reply", "output", "repeat"
+    );
+
+    // More place names than any real description needs is a sign of padding
+    private static final int MAX_PLACE_NAMES = 3;
+
+    private final boolean enabled;
+    private final int maxLength;
+    private final double minKnownRatio;
+    private final Gazetteer gazetteer;
+
+    public DescriptionPreClassifier(Gazetteer gazetteer,
+                                    @Value("${travel.sanitizer.fast-path.enabled:true}") boolean enabled,
+                                    @Value("${travel.sanitizer.fast-path.max-length:120}") int maxLength,
+                                    @Value("${travel.sanitizer.fast-path.min-known-ratio:0.8}") double minKnownRatio) {
+        this.enabled = enabled;
+        this.maxLength = maxLength;
+        this.minKnownRatio = minKnownRatio;
+        this.gazetteer = gazetteer;
+    }
+
+    public Verdict classify(String description) {
+        if (!enabled || description == null) {
+            return Verdict.AMBIGUOUS;
+        }
+
+        String text = description.strip();
+        if (text.isEmpty() || text.length() > maxLength || !PLAIN_TEXT.matcher(text).matches()) {
+            return Verdict.AMBIGUOUS;
+        }
+
+        int tokens = 0;
+        int known = 0;
+        int travel = 0;
+        int places = 0;
+        for (String token : TOKEN_SPLIT.split(text)) {
+            if (token.isEmpty() || token.equals("'")) {
+                continue;
+            }
+            String word = token.toLowerCase(Locale.ROOT);
+            if (SUSPICIOUS_WORDS.contains(word)) {
+                return Verdict.AMBIGUOUS;
+            }
+            if (isPlaceName(token)) {
+                // Neutral: neither known nor unknown
+                if (++places > MAX_PLACE_NAMES) {
+                    return Verdict.AMBIGUOUS;
+                }
+                continue;
+            }
+            tokens++;
+            if (TRAVEL_WORDS.contains(word)) {
+                travel++;
+                known++;
+            } else if (FILLER_WORDS.contains(word) || isNumber(word)) {
+                known++;
+            }
+        }
+
+        if (tokens == 0 || travel == 0) {
+            return Verdict.AMBIGUOUS;
+        }
+        return (double) known / tokens >= minKnownRatio ? Verdict.CLEAN : Verdict.AMBIGUOUS;
+    }
+
+    private static boolean isNumber(String word) {
+        return word.chars().allMatch(Character::isDigit);
+    }
+
+    // A city the gazetteer knows; capitalised vocabulary, such as "Museums", is counted as a word instead
+    private boolean isPlaceName(String token) {
+        return Character.isUpperCase(token.codePointAt(0))
+                && !TRAVEL_WORDS.contains(token.toLowerCase(Locale.ROOT))
+                && gazetteer.cityCenter(token) != null;
+    }
+}
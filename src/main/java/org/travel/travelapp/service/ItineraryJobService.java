@@ -0,0 +1,115 @@
+package org.travel.travelapp.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.travel.travelapp.dto.ItineraryJob;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.ItineraryResponse;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates itineraries in the background so the HTTP request can return immediately.
+ * Work runs on a fixed number of virtual-thread workers behind a bounded queue;
+ * when the queue is full new jobs are rejected rather than piling up.
+ */
+@Service
+@Slf4j
+public class ItineraryJobService {
+
+    private final ItineraryService itineraryService;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ItineraryJob> jobs = new ConcurrentHashMap<>();
+    private final Duration retention;
+    private final Duration retryAfter;
+    private final MeterRegistry meterRegistry;
+
+    public ItineraryJobService(ItineraryService itineraryService,
+                               MeterRegistry meterRegistry,
+                               @Value("${travel.jobs.workers:16}") int workers,
+                               @Value("${travel.jobs.queue-capacity:100}") int queueCapacity,
+                               @Value("${travel.jobs.retention:30m}") Duration retention,
+                               @Value("${travel.jobs.retry-after:5s}") Duration retryAfter) {
+        this.itineraryService = itineraryService;
+        this.meterRegistry = meterRegistry;
+        this.retention = retention;
+        this.retryAfter = retryAfter;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofVirtual().name("itinerary-job-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("itinerary.jobs.queued", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("itinerary.jobs.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    public ItineraryJob submit(ItineraryRequest request) {
+        ItineraryJob job = ItineraryJob.pending(UUID.randomUUID().toString());
+        jobs.put(job.getId(), job);
+
+        try {
+            executor.execute(() -> run(job.getId(), request));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            meterRegistry.counter("itinerary.jobs.rejected").increment();
+            log.warn("Rejected itinerary job, queue is full ({} queued)", executor.getQueue().size());
+            throw new JobQueueFullException(retryAfter);
+        }
+
+        log.info("Queued itinerary job {}", job.getId());
+        return job;
+    }
+
+    public Optional<ItineraryJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    @Scheduled(fixedDelayString = "${travel.jobs.eviction-interval:1m}")
+    public void evictExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.isDone() && job.getCompletedAt().isBefore(cutoff));
+        int evicted = before - jobs.size();
+        if (evicted > 0) {
+            log.info("Evicted {} expired itinerary jobs", evicted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(String id, ItineraryRequest request) {
+        jobs.computeIfPresent(id, (key, job) -> job.withStatus(ItineraryJob.Status.RUNNING));
+        try {
+            ItineraryResponse itinerary = itineraryService.createItinerary(request, id);
+            jobs.computeIfPresent(id, (key, job) -> job
+                    .withStatus(ItineraryJob.Status.COMPLETED)
+                    .withCompletedAt(LocalDateTime.now())
+                    .withItinerary(itinerary));
+            log.info("Itinerary job {} completed", id);
+
+        } catch (Exception e) {
+            log.error("Itinerary job {} failed: {}", id, e.getMessage(), e);
+            jobs.computeIfPresent(id, (key, job) -> job
+                    .withStatus(ItineraryJob.Status.FAILED)
+                    .withCompletedAt(LocalDateTime.now())
+                    .withError(e.getMessage()));
+        }
+    }
+}
@@ -1,21 +1,38 @@
 package org.travel.travelapp.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.travel.travelapp.batch.MalformedBatchException;
+import org.travel.travelapp.batch.MicroBatcher;
+import org.travel.travelapp.bulkhead.DownstreamOverloadedException;
+import org.travel.travelapp.cache.TtlCache;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ItinerarySanitizerService {
 
     private final ChatClient localGemmaChatClient;
+    private final DescriptionPreClassifier preClassifier;
+    private final TtlCache<String, String> sanitizationMemo;
+    private final MeterRegistry meterRegistry;
+    private final MicroBatcher<String, String> batcher;
 
     private static final String SYSTEM_PROMPT = """
             You are an AI assistant specialized in sanitizing travel itinerary descriptions.
@@ -29,40 +46,177 @@ public class ItinerarySanitizerService {
             7. If no sanitization is needed return text as is.
             """;
 
+    private static final String BATCH_INSTRUCTIONS = """
+            You will receive several descriptions, each between a <<<N>>> line and a <<<END N>>> line.
+            Sanitize each one on its own, as if it were the only one, and answer with every description in
+            the same order and between the same numbered lines. If a description is entirely unrelated to
+            travel, leave its block empty. Write nothing outside the numbered blocks.
+            """;
+
+    // A numbered block of the batched answer; anything else in the answer makes it malformed
+    private static final Pattern BATCH_BLOCK = Pattern.compile("<<<(\\d{1,4})>>>(.*?)<<<END \\1>>>", Pattern.DOTALL);
+    private static final Pattern BATCH_DELIMITER = Pattern.compile("<<<(END )?\\d+>>>");
+
+    public ItinerarySanitizerService(ChatClient localGemmaChatClient,
+                                     DescriptionPreClassifier preClassifier,
+                                     TtlCache<String, String> sanitizationMemo,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${travel.sanitizer.batch.enabled:true}") boolean batchEnabled,
+                                     @Value("${travel.sanitizer.batch.window:20ms}") Duration batchWindow,
+                                     @Value("${travel.sanitizer.batch.max-size:8}") int batchMaxSize) {
+        this.localGemmaChatClient = localGemmaChatClient;
+        this.preClassifier = preClassifier;
+        this.sanitizationMemo = sanitizationMemo;
+        this.meterRegistry = meterRegistry;
+        this.batcher = new MicroBatcher<>("sanitizer", batchWindow, batchEnabled ? batchMaxSize : 1,
+                this::callModelBatch, this::callModel, meterRegistry);
+    }
 
     public String sanitizeDescription(String description) {
+        Timer.Sample started = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            String sanitized = sanitize(description);
+            outcome = "success";
+            return sanitized;
+        } finally {
+            started.stop(meterRegistry.timer("itinerary.stage", "stage", "sanitize", "outcome", outcome));
+        }
+    }
+
+    private String sanitize(String description) {
         if (description == null || description.isBlank()) {
+            recordPath("blank");
             return description;
         }
 
-        try {
-            log.info("Sanitizing itinerary description: {}", description);
-
-            String userPrompt = String.format(
-                "Please sanitize this travel itinerary description by removing any text " +
-                "unrelated to travel. Return only the sanitized text:\n\n%s",
-                description
-            );
-
-            Prompt prompt = new Prompt(List.of(
-                new SystemMessage(SYSTEM_PROMPT),
-                new UserMessage(userPrompt)
-            ));
-
-            String sanitized = localGemmaChatClient.prompt(prompt)
-                .call()
-                .content();
-
-            log.info("Sanitized description: {}", sanitized);
+        // Fast path: clearly clean travel text does not need the model
+        if (preClassifier.classify(description) == DescriptionPreClassifier.Verdict.CLEAN) {
+            log.info("Description classified as clean, skipping AI sanitization");
+            recordPath("fast_path");
+            return description.trim();
+        }
 
-            // If the response is empty or just whitespace, return empty string
-            return sanitized != null ? sanitized.trim() : "";
+        try {
+            boolean[] modelCalled = {false};
+            String sanitized = sanitizationMemo.get(memoKey(description), () -> {
+                modelCalled[0] = true;
+                // Concurrent descriptions that reach the model are sanitized together in one call
+                return batcher.call(description);
+            });
+            recordPath(modelCalled[0] ? "model" : "memo");
+            return sanitized;
 
+        } catch (DownstreamOverloadedException e) {
+            // Passing unsanitized text through under load would silently skip sanitization
+            recordPath("shed");
+            throw e;
         } catch (Exception e) {
             log.error("Error sanitizing description with AI: {}", e.getMessage(), e);
             // Fallback: return original description if AI fails
             log.warn("Returning original description due to AI sanitization failure");
+            recordPath("fallback");
             return description;
         }
     }
+
+    private String callModel(String description) {
+        log.info("Sanitizing itinerary description: {}", description);
+
+        String userPrompt = String.format(
+            "Please sanitize this travel itinerary description by removing any text " +
+            "unrelated to travel. Return only the sanitized text:\n\n%s",
+            description
+        );
+
+        Prompt prompt = new Prompt(List.of(
+            new SystemMessage(SYSTEM_PROMPT),
+            new UserMessage(userPrompt)
+        ));
+
+        String sanitized = localGemmaChatClient.prompt(prompt)
+            .call()
+            .content();
+
+        log.info("Sanitized description: {}", sanitized);
+
+        // If the response is empty or just whitespace, return empty string
+        return sanitized != null ? sanitized.trim() : "";
+    }
+
+    /**
+     * Sanitizes several descriptions in one model call, each sent and expected back in its own numbered block.
+     */
+    private List<String> callModelBatch(List<String> descriptions) {
+        log.info("Sanitizing {} itinerary descriptions in one call", descriptions.size());
+
+        StringBuilder userPrompt = new StringBuilder(
+                "Please sanitize each of these travel itinerary descriptions by removing any text unrelated to travel:\n\n");
+        for (int i = 0; i < descriptions.size(); i++) {
+            String description = descriptions.get(i);
+            // A description that could close its own block would make the answer ambiguous
+            if (BATCH_DELIMITER.matcher(description).find()) {
+                throw new MalformedBatchException("Description " + (i + 1) + " contains a batch delimiter");
+            }
+            userPrompt.append("<<<").append(i + 1).append(">>>\n")
+                    .append(description)
+                    .append("\n<<<END ").append(i + 1).append(">>>\n\n");
+        }
+
+        Prompt prompt = new Prompt(List.of(
+            new SystemMessage(SYSTEM_PROMPT + BATCH_INSTRUCTIONS),
+            new UserMessage(userPrompt.toString())
+        ));
+
+        String sanitized = localGemmaChatClient.prompt(prompt)
+            .call()
+            .content();
+
+        return demultiplex(sanitized, descriptions.size());
+    }
+
+    /**
+     * Splits a batched answer back into one sanitized description per input. The answer has to be exactly the
+     * blocks numbered 1 to {@code count} in order, with only whitespace between them, or none of it is used.
+     */
+    static List<String> demultiplex(String output, int count) {
+        if (output == null) {
+            throw new MalformedBatchException("Empty answer");
+        }
+        List<String> sanitized = new ArrayList<>(count);
+        Matcher block = BATCH_BLOCK.matcher(output);
+        int end = 0;
+        while (block.find()) {
+            if (!output.substring(end, block.start()).isBlank()) {
+                throw new MalformedBatchException("Text outside the numbered blocks");
+            }
+            if (Integer.parseInt(block.group(1)) != sanitized.size() + 1) {
+                throw new MalformedBatchException("Block " + block.group(1) + " out of order");
+            }
+            sanitized.add(block.group(2).trim());
+            end = block.end();
+        }
+        if (!output.substring(end).isBlank()) {
+            throw new MalformedBatchException("Text outside the numbered blocks");
+        }
+        if (sanitized.size() != count) {
+            throw new MalformedBatchException("Expected " + count + " blocks but got " + sanitized.size());
+        }
+        return sanitized;
+    }
+
+    private void recordPath(String path) {
+        meterRegistry.counter("sanitizer.requests", "path", path).increment();
+    }
+
+    // Descriptions differing only in case or whitespace share a memo entry
+    private static String memoKey(String description) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(TripPlanKey.normalize(description).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
@@ -0,0 +1,369 @@
+package org.travel.travelapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.travel.travelapp.bulkhead.DownstreamOverloadedException;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.ItineraryResponse;
+import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.deadline.Deadline;
+import org.travel.travelapp.deadline.DeadlineProperties;
+import org.travel.travelapp.dto.TripPlanEvent;
+import org.travel.travelapp.store.ItineraryStore;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the full itinerary flow: description sanitization, trip plan generation and response assembly.
+ * Every completed itinerary is kept in the {@link ItineraryStore} so it can be fetched again by id.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ItineraryService {
+
+    private final ItinerarySanitizerService sanitizerService;
+    private final TripPlannerService tripPlannerService;
+    private final AsyncTaskExecutor applicationTaskExecutor;
+    private final MeterRegistry meterRegistry;
+    private final ItineraryStore itineraryStore;
+    private final ObjectMapper objectMapper;
+    private final DeadlineProperties deadlineProperties;
+    private final TripPlanRanker tripPlanRanker;
+
+    public ItineraryResponse createItinerary(ItineraryRequest request, Deadline deadline) {
+        return createItinerary(request, UUID.randomUUID().toString(), deadline);
+    }
+
+    public ItineraryResponse createItinerary(ItineraryRequest request, String id) {
+        return createItinerary(request, id, Deadline.after(deadlineProperties.getBudget()));
+    }
+
+    /**
+     * Plans the itinerary within the deadline: once it runs out, whatever sections are done are returned
+     * and the rest fall back. An interrupt, e.g. because the client went away, cancels all of the work.
+     */
+    public ItineraryResponse createItinerary(ItineraryRequest request, String id, Deadline deadline) {
+        Timer.Sample started = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ItineraryResponse response = planItinerary(request, id, deadline);
+            if (Thread.currentThread().isInterrupted()) {
+                outcome = "cancelled";
+                throw new CancellationException("Itinerary " + id + " was cancelled");
+            }
+            outcome = "success";
+            store(response);
+            return response;
+        } finally {
+            started.stop(meterRegistry.timer("itinerary.stage", "stage", "total", "outcome", outcome));
+        }
+    }
+
+    private ItineraryResponse planItinerary(ItineraryRequest request, String id, Deadline deadline) {
+        // Step 1: Sanitize description using local AI, without holding up the planner sections that don't need it
+        CompletableFuture<String> sanitized = sanitizeWithin(request, deadline, request.getDescription());
+
+        // Step 2: Generate trip plan using Claude with MCP tools
+        log.info("Generating trip plan with Claude and MCP servers...");
+        TripPlan tripPlan = tripPlannerService.generateTripPlan(request, sanitized, deadline);
+        log.info("Trip plan generated successfully");
+
+        String sanitizedDescription = sanitized.join();
+        log.info("Original description: {}", request.getDescription());
+        log.info("Sanitized description: {}", sanitizedDescription);
+
+        // Step 3: Create response with generated ID, timestamp, and trip plan
+        ItineraryResponse response = newResponse(id, request, sanitizedDescription);
+
+        // Add trip plan to response
+        response.setTripPlan(tripPlan);
+
+        return response;
+    }
+
+    /**
+     * Re-plans a stored itinerary for an edited request, regenerating only the sections the edit affects and
+     * reusing the rest of the stored plan. The new version is stored under the same id. Empty when no itinerary
+     * is stored under the id.
+     */
+    public Optional<ItineraryResponse> replanItinerary(String id, ItineraryRequest request, Deadline deadline) {
+        Optional<ItineraryStore.StoredItinerary> stored = itineraryStore.find(id);
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        Timer.Sample started = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ItineraryResponse previous = read(stored.get());
+
+            // Step 1: Sanitize the description, so it compares with the stored one, which was sanitized too.
+            // Without a sanitized description the stored one is kept: the raw text would never compare equal to it,
+            // and mustn't replace it
+            String sanitizedDescription = sanitized(sanitizeWithin(request, deadline, null), previous.getDescription());
+
+            // Step 2: Work out which sections the edit affects
+            Set<PlanSection> sections = changedSections(previous, request, sanitizedDescription);
+
+            // Step 3: Regenerate those sections and keep the rest. An edit that affects none of them, such as a
+            // later return date, still updates the stored request, with the plan as it was
+            TripPlan tripPlan;
+            String message;
+            if (sections.isEmpty()) {
+                log.info("Itinerary {} changed no section of its plan, keeping the plan", id);
+                tripPlan = previous.getTripPlan();
+                message = "Itinerary updated, the trip plan still applies";
+                outcome = "unchanged";
+            } else {
+                tripPlan = tripPlannerService.replanSections(request, sanitizedDescription,
+                        previous.getTripPlan(), sections, deadline);
+                if (Thread.currentThread().isInterrupted()) {
+                    outcome = "cancelled";
+                    throw new CancellationException("Re-planning itinerary " + id + " was cancelled");
+                }
+                message = "Itinerary updated, regenerated " + String.join(", ",
+                        sections.stream().map(PlanSection::fieldName).toList());
+                outcome = "success";
+            }
+
+            ItineraryResponse response = newResponse(id, request, sanitizedDescription);
+            response.setCreatedAt(previous.getCreatedAt());
+            response.setStatus("UPDATED");
+            response.setMessage(message);
+            response.setTripPlan(tripPlan);
+            store(response);
+            return Optional.of(response);
+        } finally {
+            started.stop(meterRegistry.timer("itinerary.stage", "stage", "replan", "outcome", outcome));
+        }
+    }
+
+    /**
+     * Sections of the stored itinerary an edited request invalidates: flights depend on the route, departure date
+     * and travellers, attractions on the destination, and the summary on the destination and description.
+     * Sections that degraded last time are regenerated whatever changed.
+     */
+    static Set<PlanSection> changedSections(ItineraryResponse previous, ItineraryRequest request, String sanitizedDescription) {
+        Set<PlanSection> sections = EnumSet.noneOf(PlanSection.class);
+        boolean destinationChanged = !TripPlanKey.normalize(previous.getTo()).equals(TripPlanKey.normalize(request.getTo()));
+        if (destinationChanged
+                || !TripPlanKey.normalize(previous.getFrom()).equals(TripPlanKey.normalize(request.getFrom()))
+                || !Objects.equals(previous.getStartDate(), request.getStartDate())
+                || !Objects.equals(previous.getNumberOfAdults(), request.getNumberOfAdults())) {
+            sections.add(PlanSection.FLIGHTS);
+        }
+        if (destinationChanged) {
+            sections.add(PlanSection.ATTRACTIONS);
+        }
+        if (destinationChanged
+                || !TripPlanKey.normalize(previous.getDescription()).equals(TripPlanKey.normalize(sanitizedDescription))) {
+            sections.add(PlanSection.SUMMARY);
+        }
+        TripPlan tripPlan = previous.getTripPlan();
+        if (tripPlan == null) {
+            return EnumSet.allOf(PlanSection.class);
+        }
+        for (PlanSection section : PlanSection.values()) {
+            if (tripPlan.getDegradedSections().contains(section.fieldName())) {
+                sections.add(section);
+            }
+        }
+        return sections;
+    }
+
+    private ItineraryResponse read(ItineraryStore.StoredItinerary stored) {
+        try {
+            return objectMapper.readValue(new ByteBufferBackedInputStream(stored.json()), ItineraryResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read stored itinerary " + stored.id(), e);
+        }
+    }
+
+    // The sanitized description, or the fallback when sanitization failed or ran out of time
+    private static String sanitized(CompletableFuture<String> sanitizedDescription, String fallback) {
+        String sanitized;
+        try {
+            sanitized = sanitizedDescription.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DownstreamOverloadedException overloaded) {
+                throw overloaded;
+            }
+            log.warn("Sanitization failed, re-planning with the stored description: {}", e.getCause().getMessage());
+            return fallback;
+        }
+        return sanitized != null ? sanitized : fallback;
+    }
+
+    /**
+     * Streams the itinerary as Server-Sent Events: one {@code summary}, {@code attraction} or {@code flight}
+     * event per completed object, then a {@code complete} event carrying the assembled response.
+     * When the deadline runs out the model stream is cut and the {@code complete} event carries the partial plan,
+     * with the sections it didn't finish marked as degraded. A client that disconnects cancels the deadline,
+     * which stops the model stream and any tool call in flight.
+     */
+    public Flux<ServerSentEvent<Object>> streamItinerary(ItineraryRequest request, Deadline deadline) {
+        Timer.Sample started = Timer.start(meterRegistry);
+        AtomicBoolean firstEventSeen = new AtomicBoolean();
+
+        return Mono.fromCallable(() -> sanitizerService.sanitizeDescription(request.getDescription()))
+                .subscribeOn(Schedulers.fromExecutor(applicationTaskExecutor))
+                .timeout(deadline.remainingShare(deadlineProperties.getSanitizerShare()), Mono.fromSupplier(() -> {
+                    sanitizerTimedOut();
+                    return request.getDescription();
+                }))
+                .defaultIfEmpty("")
+                .flatMapMany(sanitizedDescription -> {
+                    ItineraryResponse response = newResponse(UUID.randomUUID().toString(), request, sanitizedDescription);
+                    TripPlan tripPlan = new TripPlan(null, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+                    response.setTripPlan(tripPlan);
+                    AtomicBoolean finished = new AtomicBoolean();
+                    AtomicReference<String> lastEvent = new AtomicReference<>();
+
+                    return tripPlannerService.streamTripPlan(request, sanitizedDescription, deadline)
+                            .doOnComplete(() -> finished.set(true))
+                            .take(deadline.remaining())
+                            .doOnNext(event -> {
+                                if (firstEventSeen.compareAndSet(false, true)) {
+                                    started.stop(meterRegistry.timer("itinerary.stream.first-event"));
+                                }
+                                collect(tripPlan, event);
+                                lastEvent.set(event.type());
+                            })
+                            .map(event -> ServerSentEvent.builder(event.data()).event(event.type()).build())
+                            .concatWith(Mono.fromSupplier(() -> {
+                                if (!finished.get()) {
+                                    markUnfinished(tripPlan, lastEvent.get());
+                                }
+                                // The events went out in the model's order, the assembled plan is ranked
+                                response.setTripPlan(tripPlanRanker.rank(tripPlan));
+                                store(response);
+                                return ServerSentEvent.<Object>builder(response).event("complete").id(response.getId()).build();
+                            }));
+                })
+                .doOnCancel(() -> {
+                    log.info("Client went away, cancelling itinerary stream");
+                    meterRegistry.counter("itinerary.cancelled", "mode", "stream").increment();
+                    deadline.cancel();
+                })
+                .doOnComplete(() -> started.stop(
+                        meterRegistry.timer("itinerary.stage", "stage", "total", "outcome", "success")))
+                .doOnError(e -> started.stop(
+                        meterRegistry.timer("itinerary.stage", "stage", "total", "outcome", "error")))
+                .onErrorResume(e -> {
+                    log.error("Error streaming itinerary: {}", e.getMessage(), e);
+                    return Flux.just(ServerSentEvent.<Object>builder(Map.of("error", String.valueOf(e.getMessage())))
+                            .event("error")
+                            .build());
+                });
+    }
+
+    /**
+     * Runs the sanitizer on the task executor, giving it its share of the deadline. Past that it is interrupted,
+     * and the result is {@code timedOut}, e.g. the original description, as used when sanitization fails.
+     */
+    private CompletableFuture<String> sanitizeWithin(ItineraryRequest request, Deadline deadline, String timedOut) {
+        CompletableFuture<String> sanitized = new CompletableFuture<>();
+        Future<?> task = applicationTaskExecutor.submit(() -> {
+            try {
+                sanitized.complete(sanitizerService.sanitizeDescription(request.getDescription()));
+            } catch (Throwable e) {
+                sanitized.completeExceptionally(e);
+            }
+        });
+        long share = deadline.remainingShare(deadlineProperties.getSanitizerShare()).toNanos();
+        CompletableFuture.delayedExecutor(share, TimeUnit.NANOSECONDS).execute(() -> {
+            if (sanitized.complete(timedOut)) {
+                sanitizerTimedOut();
+                task.cancel(true);
+            }
+        });
+        return sanitized;
+    }
+
+    private void sanitizerTimedOut() {
+        log.warn("Sanitizer ran out of its share of the deadline, going on without it");
+        meterRegistry.counter("deadline.exceeded", "stage", "sanitize").increment();
+    }
+
+    /**
+     * Marks the sections a cut-off stream didn't finish: those it never reached, and the one it was in.
+     */
+    private void markUnfinished(TripPlan tripPlan, String lastEvent) {
+        meterRegistry.counter("deadline.exceeded", "stage", "stream").increment();
+        Map<PlanSection, Boolean> reached = Map.of(
+                PlanSection.SUMMARY, tripPlan.getSummary() != null,
+                PlanSection.ATTRACTIONS, !tripPlan.getAttractions().isEmpty(),
+                PlanSection.FLIGHTS, !tripPlan.getFlights().isEmpty());
+        PlanSection inProgress = lastEvent == null ? null : switch (lastEvent) {
+            case TripPlanEvent.SUMMARY -> PlanSection.SUMMARY;
+            case TripPlanEvent.ATTRACTION -> PlanSection.ATTRACTIONS;
+            case TripPlanEvent.FLIGHT -> PlanSection.FLIGHTS;
+            default -> null;
+        };
+        for (PlanSection section : PlanSection.values()) {
+            if (!reached.get(section) || section == inProgress) {
+                tripPlan.getDegradedSections().add(section.fieldName());
+            }
+        }
+        log.warn("Itinerary stream ran out of time, degraded sections: {}", tripPlan.getDegradedSections());
+    }
+
+    // The itinerary was already generated; failing to keep it shouldn't fail the request
+    private void store(ItineraryResponse response) {
+        try {
+            itineraryStore.append(response.getId(), objectMapper.writeValueAsBytes(response));
+        } catch (Exception e) {
+            log.warn("Could not store itinerary {}: {}", response.getId(), e.getMessage());
+        }
+    }
+
+    private static void collect(TripPlan tripPlan, TripPlanEvent event) {
+        switch (event.type()) {
+            case TripPlanEvent.SUMMARY -> tripPlan.setSummary((String) event.data());
+            case TripPlanEvent.ATTRACTION -> tripPlan.getAttractions().add((TripPlan.Attraction) event.data());
+            case TripPlanEvent.FLIGHT -> tripPlan.getFlights().add((TripPlan.Flight) event.data());
+            default -> log.debug("Ignoring trip plan event {}", event.type());
+        }
+    }
+
+    static ItineraryResponse newResponse(String id, ItineraryRequest request, String sanitizedDescription) {
+        return new ItineraryResponse(
+                id,
+                request.getTo(),
+                request.getFrom(),
+                request.getStartDate(),
+                request.getEndDate(),
+                request.getNumberOfAdults(),
+                sanitizedDescription,  // Use sanitized description
+                LocalDateTime.now(),
+                "CREATED",
+                "Itinerary created with AI-powered trip plan and suggestions"
+        );
+    }
+}
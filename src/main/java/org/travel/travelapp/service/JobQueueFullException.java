@@ -0,0 +1,19 @@
+package org.travel.travelapp.service;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when the async itinerary queue is full and the job was rejected instead of queued.
+ */
+@Getter
+public class JobQueueFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public JobQueueFullException(Duration retryAfter) {
+        super("Itinerary queue is full, retry later");
+        this.retryAfter = retryAfter;
+    }
+}
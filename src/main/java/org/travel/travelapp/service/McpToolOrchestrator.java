@@ -0,0 +1,329 @@
+package org.travel.travelapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.stereotype.Service;
+import org.travel.travelapp.bulkhead.DownstreamOverloadedException;
+import org.travel.travelapp.config.PlannerProperties;
+import org.travel.travelapp.deadline.Deadline;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.geo.Airports;
+import org.travel.travelapp.geo.Gazetteer;
+import org.travel.travelapp.geo.GeoPoint;
+import org.travel.travelapp.geo.GeoProperties;
+import org.travel.travelapp.mcp.McpToolRegistry;
+import org.travel.travelapp.mcp.ToolCallTally;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Gathers the raw data for a trip plan by calling the MCP tools directly from Java instead of
+ * letting Claude drive the tool loop: a place search, a web search for context and a flight search.
+ * <p>
+ * Distances from the city centre are computed in-process from the {@link Gazetteer}. Maps is only asked to
+ * geocode the city or an attraction the place search and the gazetteer couldn't place, and what it returns
+ * is saved to the gazetteer for next time. With the gazetteer disabled, every attraction gets a distance
+ * matrix lookup instead, in parallel.
+ * <p>
+ * The flight search takes IATA codes, so it is only made when both cities resolve to one through {@link Airports};
+ * otherwise there are no flight offers and the flights section degrades.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class McpToolOrchestrator {
+
+    private final McpToolRegistry mcpToolRegistry;
+    private final PlannerProperties plannerProperties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Gazetteer gazetteer;
+    private final GeoProperties geoProperties;
+    private final Airports airports;
+
+    /**
+     * Tool output ready to be ranked: attractions with their distances filled in,
+     * plus the raw web research and flight offers. The offers are {@code null} when the search failed or
+     * couldn't be made.
+     */
+    public record ToolResults(List<TripPlan.Attraction> attractions, String attractionResearch, String flightOffers) {
+    }
+
+    /**
+     * Each tool call is bounded by the deadline; a call that runs out of time leaves a gap like a failed one.
+     */
+    public ToolResults collect(ItineraryRequest request, Deadline deadline) {
+        PlannerProperties.Tools tools = plannerProperties.getTools();
+        log.info("Collecting trip data for {} to {} with direct MCP tool calls", request.getFrom(), request.getTo());
+
+        ToolCallTally tally = new ToolCallTally();
+        Map<String, Object> context = new HashMap<>(tally.toolContext());
+        context.put(Deadline.CONTEXT_KEY, deadline);
+        ToolContext toolContext = new ToolContext(context);
+        ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            // Flights and web research don't depend on anything else, start them first
+            Map<String, Object> flightSearch = flightSearchArguments(request);
+            Future<String> flights = flightSearch != null
+                    ? scope.submit(() -> mcpToolRegistry.callTool(tools.getFlightSearch(), flightSearch, toolContext))
+                    : CompletableFuture.completedFuture(null);
+            Future<String> research = scope.submit(() -> mcpToolRegistry.callTool(tools.getWebSearch(), Map.of(
+                    "query", "top famous things to do and see in " + request.getTo(),
+                    "count", plannerProperties.getMaxAttractions()), toolContext));
+
+            List<Place> places = searchPlaces(request, toolContext);
+            if (geoProperties.isEnabled()) {
+                locate(request.getTo(), places, scope, toolContext);
+            } else {
+                // One distance lookup per attraction, all in parallel
+                List<Future<Double>> distances = new ArrayList<>();
+                for (Place place : places) {
+                    distances.add(scope.submit(() -> distanceFromCenter(request.getTo(), place.attraction().getAddress(), toolContext)));
+                }
+                for (int i = 0; i < places.size(); i++) {
+                    places.get(i).attraction().setDistanceFromCenter(await(distances.get(i), "distance"));
+                }
+            }
+
+            List<TripPlan.Attraction> attractions = places.stream()
+                    .map(Place::attraction)
+                    .sorted(Comparator.comparing(TripPlan.Attraction::getDistanceFromCenter,
+                            Comparator.nullsLast(Comparator.naturalOrder())))
+                    .toList();
+            return new ToolResults(attractions, await(research, "web search"), await(flights, "flight search"));
+
+        } finally {
+            scope.shutdownNow();
+            DistributionSummary.builder("trip.plan.tool.calls")
+                    .tag("step", "collect")
+                    .register(meterRegistry)
+                    .record(tally.count());
+        }
+    }
+
+    /**
+     * Just the flight search, bounded by the deadline like the calls in {@link #collect}. A failed search is
+     * {@code null}, so the caller can look for flights some other way; so is one that can't be made.
+     */
+    public String searchFlights(ItineraryRequest request, Deadline deadline) {
+        Map<String, Object> flightSearch = flightSearchArguments(request);
+        if (flightSearch == null) {
+            return null;
+        }
+        ToolCallTally tally = new ToolCallTally();
+        Map<String, Object> context = new HashMap<>(tally.toolContext());
+        context.put(Deadline.CONTEXT_KEY, deadline);
+        try {
+            return mcpToolRegistry.callTool(plannerProperties.getTools().getFlightSearch(), flightSearch,
+                    new ToolContext(context));
+        } catch (DownstreamOverloadedException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("MCP flight search failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Whether both ends of the trip resolve to IATA codes, which the flight search needs.
+     */
+    public boolean canSearchFlights(ItineraryRequest request) {
+        return flightSearchArguments(request) != null;
+    }
+
+    /**
+     * Whether the place and flight searches for this request would be answered from the tool result caches.
+     * A flight search that can't be made isn't waited for, so it doesn't count against it.
+     */
+    public boolean isCached(ItineraryRequest request) {
+        PlannerProperties.Tools tools = plannerProperties.getTools();
+        Map<String, Object> flightSearch = flightSearchArguments(request);
+        return mcpToolRegistry.isCached(tools.getPlaceSearch(), placeSearchArguments(request))
+                && (flightSearch == null || mcpToolRegistry.isCached(tools.getFlightSearch(), flightSearch));
+    }
+
+    private static Map<String, Object> placeSearchArguments(ItineraryRequest request) {
+        return Map.of("query", "top tourist attractions in " + request.getTo());
+    }
+
+    // Null when either city has no known IATA code: the search would only be rejected
+    private Map<String, Object> flightSearchArguments(ItineraryRequest request) {
+        String origin = airports.code(request.getFrom());
+        String destination = airports.code(request.getTo());
+        if (origin == null || destination == null) {
+            log.debug("No IATA code for {} or {}, skipping the flight search", request.getFrom(), request.getTo());
+            return null;
+        }
+        return Map.of(
+                "originLocationCode", origin,
+                "destinationLocationCode", destination,
+                "departureDate", request.getStartDate().toString(),
+                "adults", request.getNumberOfAdults(),
+                "max", 5);
+    }
+
+    /**
+     * An attraction from the place search, with its coordinates when the search returned them.
+     */
+    private record Place(TripPlan.Attraction attraction, GeoPoint location) {
+    }
+
+    private List<Place> searchPlaces(ItineraryRequest request, ToolContext toolContext) {
+        String result = mcpToolRegistry.callTool(plannerProperties.getTools().getPlaceSearch(),
+                placeSearchArguments(request), toolContext);
+
+        JsonNode places;
+        try {
+            places = objectMapper.readTree(result).path("places");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Place search returned malformed JSON", e);
+        }
+
+        List<Place> attractions = new ArrayList<>();
+        for (JsonNode place : places) {
+            if (attractions.size() >= plannerProperties.getMaxAttractions()) {
+                break;
+            }
+            attractions.add(new Place(new TripPlan.Attraction(
+                    place.path("name").asText(),
+                    null,
+                    null,
+                    place.path("formatted_address").asText(null)), location(place)));
+        }
+        log.info("Found {} attractions in {}", attractions.size(), request.getTo());
+        return attractions;
+    }
+
+    /**
+     * Fills in each attraction's straight-line distance from the city centre. Coordinates come from the place
+     * search, then the gazetteer, and only then from geocoding the address, in parallel.
+     */
+    private void locate(String city, List<Place> places, ExecutorService scope, ToolContext toolContext) {
+        // Step 1: The city centre, geocoded once if the gazetteer doesn't know the city yet
+        GeoPoint center = gazetteer.cityCenter(city);
+        if (center == null) {
+            center = geocode(city, toolContext);
+            recordLookup("city", center != null ? "maps" : "unresolved");
+            if (center == null) {
+                log.warn("Could not locate {}, attractions are left without a distance", city);
+                return;
+            }
+            gazetteer.learnCity(city, center);
+        } else {
+            recordLookup("city", "gazetteer");
+        }
+
+        // Step 2: Each attraction from its search result or the gazetteer, or else geocoded
+        GeoPoint[] locations = new GeoPoint[places.size()];
+        List<Future<GeoPoint>> geocoded = new ArrayList<>();
+        for (int i = 0; i < places.size(); i++) {
+            TripPlan.Attraction attraction = places.get(i).attraction();
+            Future<GeoPoint> lookup = null;
+            if (places.get(i).location() != null) {
+                locations[i] = places.get(i).location();
+                gazetteer.learnPoi(attraction.getName(), locations[i]);
+                recordLookup("poi", "place_search");
+            } else {
+                locations[i] = gazetteer.poi(attraction.getName(), center);
+                if (locations[i] != null) {
+                    recordLookup("poi", "gazetteer");
+                } else if (attraction.getAddress() != null) {
+                    lookup = scope.submit(() -> geocode(attraction.getAddress(), toolContext));
+                }
+            }
+            geocoded.add(lookup);
+        }
+        for (int i = 0; i < places.size(); i++) {
+            if (geocoded.get(i) != null) {
+                locations[i] = await(geocoded.get(i), "geocode");
+                recordLookup("poi", locations[i] != null ? "maps" : "unresolved");
+                if (locations[i] != null) {
+                    gazetteer.learnPoi(places.get(i).attraction().getName(), locations[i]);
+                }
+            }
+        }
+
+        // Step 3: Haversine distances, rounded to 10 m
+        for (int i = 0; i < places.size(); i++) {
+            if (locations[i] != null) {
+                double km = center.distanceKm(locations[i]);
+                places.get(i).attraction().setDistanceFromCenter(Math.round(km * 100) / 100.0);
+            }
+        }
+    }
+
+    private GeoPoint geocode(String address, ToolContext toolContext) {
+        String result = mcpToolRegistry.callTool(plannerProperties.getTools().getGeocode(),
+                Map.of("address", address), toolContext);
+        try {
+            return location(objectMapper.readTree(result));
+        } catch (JsonProcessingException e) {
+            log.warn("Geocoding '{}' returned malformed JSON", address);
+            return null;
+        }
+    }
+
+    // Place search results and geocoding answers carry "location", raw Places API results "geometry.location"
+    private static GeoPoint location(JsonNode result) {
+        JsonNode location = result.has("location") ? result.path("location") : result.path("geometry").path("location");
+        if (!location.path("lat").isNumber() || !location.path("lng").isNumber()) {
+            return null;
+        }
+        GeoPoint point = new GeoPoint(location.path("lat").asDouble(), location.path("lng").asDouble());
+        return point.isValid() ? point : null;
+    }
+
+    private void recordLookup(String kind, String source) {
+        meterRegistry.counter("geo.lookups", "kind", kind, "source", source).increment();
+    }
+
+    private Double distanceFromCenter(String city, String address, ToolContext toolContext)
+            throws JsonProcessingException {
+        if (address == null) {
+            return null;
+        }
+        String result = mcpToolRegistry.callTool(plannerProperties.getTools().getDistance(), Map.of(
+                "origins", List.of(city + " city center"),
+                "destinations", List.of(address),
+                "mode", "walking"), toolContext);
+
+        JsonNode element = objectMapper.readTree(result).path("results").path(0).path("elements").path(0);
+        if (!"OK".equals(element.path("status").asText()) || !element.path("distance").has("value")) {
+            return null;
+        }
+        // Distance matrix values are in meters
+        return element.path("distance").path("value").asDouble() / 1000.0;
+    }
+
+    // A failed lookup leaves a gap for the ranking call instead of failing the whole plan
+    private static <T> T await(Future<T> result, String lookup) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DownstreamOverloadedException overloaded) {
+                throw overloaded;
+            }
+            log.warn("MCP {} failed: {}", lookup, e.getCause().getMessage());
+            return null;
+        }
+    }
+}
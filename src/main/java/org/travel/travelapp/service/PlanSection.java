@@ -0,0 +1,18 @@
+package org.travel.travelapp.service;
+
+import java.util.Locale;
+
+/**
+ * Independently generated parts of a {@link org.travel.travelapp.dto.TripPlan}.
+ * Each section maps to the top-level JSON field Claude returns it under.
+ */
+public enum PlanSection {
+
+    SUMMARY,
+    ATTRACTIONS,
+    FLIGHTS;
+
+    public String fieldName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,36 @@
+package org.travel.travelapp.service;
+
+import org.travel.travelapp.dto.ItineraryRequest;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Normalized identity of a trip plan request, used as the trip plan cache key.
+ * Two requests that differ only in casing or surrounding whitespace map to the same key.
+ */
+public record TripPlanKey(String from,
+                          String to,
+                          LocalDate startDate,
+                          LocalDate endDate,
+                          Integer numberOfAdults,
+                          String description) {
+
+    public static TripPlanKey of(ItineraryRequest request, String sanitizedDescription) {
+        return new TripPlanKey(
+                normalize(request.getFrom()),
+                normalize(request.getTo()),
+                request.getStartDate(),
+                request.getEndDate(),
+                request.getNumberOfAdults(),
+                normalize(sanitizedDescription)
+        );
+    }
+
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
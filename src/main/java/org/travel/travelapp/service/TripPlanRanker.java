@@ -0,0 +1,263 @@
+package org.travel.travelapp.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.travel.travelapp.config.RankingProperties;
+import org.travel.travelapp.dto.TripPlan;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Post-processing of a parsed plan, so the prompts don't have to ask the model to sort anything.
+ * <p>
+ * Each flight gets its typed fields filled in from the display strings the model wrote, or the other way
+ * around. Duplicate and filtered-out flights and attractions are dropped, and the rest are ranked by the
+ * configured comparators and cut to the configured counts. Plans are ranked with the defaults before they
+ * are cached; a request can re-rank its own copy, which can only narrow what was kept. Dropped entries are
+ * counted as {@code trip.plan.ranking.dropped{section, reason=duplicate|filtered|limit}}.
+ */
+@Component
+@RequiredArgsConstructor
+public class TripPlanRanker {
+
+    private static final Pattern AMOUNT = Pattern.compile("\\d[\\d,]*(?:\\.\\d+)?");
+    private static final Pattern CURRENCY_CODE = Pattern.compile("\\b[A-Z]{3}\\b");
+    private static final Map<String, String> CURRENCY_SYMBOLS = Map.of("$", "USD", "€", "EUR", "£", "GBP", "¥", "JPY");
+    private static final Pattern HOURS_MINUTES = Pattern.compile("(?i)^\\s*(?:(\\d+)\\s*h(?:ours?|rs?)?)?\\s*(?:(\\d+)\\s*m(?:in(?:utes?|s)?)?)?\\s*$");
+    private static final DateTimeFormatter CLOCK = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final RankingProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * How a plan is ranked: the sort order and how many of each to keep.
+     */
+    public record Ranking(RankingProperties.FlightSort flightSort, int flightLimit,
+                          RankingProperties.AttractionSort attractionSort, int attractionLimit) {
+    }
+
+    public Ranking defaults() {
+        return new Ranking(properties.getFlightSort(), properties.getMaxFlights(),
+                properties.getAttractionSort(), properties.getMaxAttractions());
+    }
+
+    public TripPlan rank(TripPlan tripPlan) {
+        return rank(tripPlan, defaults());
+    }
+
+    /**
+     * A ranked copy of the plan; the plan itself may be shared through the cache and is left as it is.
+     */
+    public TripPlan rank(TripPlan tripPlan, Ranking ranking) {
+        if (tripPlan == null) {
+            return null;
+        }
+        return new TripPlan(
+                tripPlan.getSummary(),
+                tripPlan.getAttractions() != null ? rankAttractions(tripPlan.getAttractions(), ranking) : null,
+                tripPlan.getFlights() != null ? rankFlights(tripPlan.getFlights(), ranking) : null,
+                new ArrayList<>(tripPlan.getDegradedSections()));
+    }
+
+    private List<TripPlan.Flight> rankFlights(List<TripPlan.Flight> flights, Ranking ranking) {
+        // Step 1: Typed fields, and drop what can't be shown or is filtered out
+        Map<String, TripPlan.Flight> unique = new LinkedHashMap<>();
+        for (TripPlan.Flight flight : flights) {
+            TripPlan.Flight normalized = normalize(flight);
+            if (normalized == null || (isBlank(normalized.getAirline()) && normalized.getPriceAmount() == null)) {
+                dropped("flights", "filtered");
+                continue;
+            }
+            if (properties.getMaxStops() != null && normalized.getStops() != null
+                    && normalized.getStops() > properties.getMaxStops()) {
+                dropped("flights", "filtered");
+                continue;
+            }
+            // Step 2: The same flight offered twice keeps its cheapest fare
+            TripPlan.Flight previous = unique.putIfAbsent(flightKey(normalized), normalized);
+            if (previous != null) {
+                dropped("flights", "duplicate");
+                if (byPrice().compare(normalized, previous) < 0) {
+                    unique.put(flightKey(normalized), normalized);
+                }
+            }
+        }
+
+        // Step 3: Rank and cut
+        List<TripPlan.Flight> ranked = new ArrayList<>(unique.values());
+        ranked.sort(flightOrder(ranking.flightSort()));
+        return limit(ranked, ranking.flightLimit(), "flights");
+    }
+
+    private List<TripPlan.Attraction> rankAttractions(List<TripPlan.Attraction> attractions, Ranking ranking) {
+        Map<String, TripPlan.Attraction> unique = new LinkedHashMap<>();
+        for (TripPlan.Attraction attraction : attractions) {
+            if (attraction == null || isBlank(attraction.getName())) {
+                dropped("attractions", "filtered");
+                continue;
+            }
+            if (unique.putIfAbsent(TripPlanKey.normalize(attraction.getName()), attraction) != null) {
+                dropped("attractions", "duplicate");
+            }
+        }
+
+        List<TripPlan.Attraction> ranked = new ArrayList<>(unique.values());
+        ranked.sort(attractionOrder(ranking.attractionSort()));
+        return limit(ranked, ranking.attractionLimit(), "attractions");
+    }
+
+    /**
+     * A copy of the flight with the typed fields parsed from the display strings where the model left them out,
+     * and the display strings written from the typed fields where it left those out.
+     */
+    public TripPlan.Flight normalize(TripPlan.Flight flight) {
+        if (flight == null) {
+            return null;
+        }
+        BigDecimal amount = flight.getPriceAmount() != null ? flight.getPriceAmount() : parseAmount(flight.getPrice());
+        String currency = flight.getCurrency() != null ? flight.getCurrency() : parseCurrency(flight.getPrice());
+        LocalDateTime departureAt = flight.getDepartureAt() != null
+                ? flight.getDepartureAt()
+                : TripPlan.LenientLocalDateTimeDeserializer.parseLenient(flight.getDepartureTime());
+        LocalDateTime arrivalAt = flight.getArrivalAt() != null
+                ? flight.getArrivalAt()
+                : TripPlan.LenientLocalDateTimeDeserializer.parseLenient(flight.getArrivalTime());
+        Integer minutes = flight.getDurationMinutes() != null ? flight.getDurationMinutes() : parseMinutes(flight.getDuration());
+
+        return new TripPlan.Flight(
+                flight.getAirline(),
+                !isBlank(flight.getPrice()) ? flight.getPrice() : formatPrice(amount, currency),
+                // ISO times from the model are shown as a clock time, as before
+                departureAt != null ? departureAt.format(CLOCK) : flight.getDepartureTime(),
+                arrivalAt != null ? arrivalAt.format(CLOCK) : flight.getArrivalTime(),
+                !isBlank(flight.getDuration()) ? flight.getDuration() : formatMinutes(minutes),
+                flight.getStops(),
+                flight.getBookingClass(),
+                amount,
+                currency,
+                departureAt,
+                arrivalAt,
+                minutes);
+    }
+
+    private static Comparator<TripPlan.Flight> flightOrder(RankingProperties.FlightSort sort) {
+        return switch (sort) {
+            case PRICE -> byPrice().thenComparing(TripPlan.Flight::getDurationMinutes, nullsLast());
+            case DURATION -> Comparator.comparing(TripPlan.Flight::getDurationMinutes, nullsLast()).thenComparing(byPrice());
+            case DEPARTURE -> Comparator.comparing(TripPlan.Flight::getDepartureAt, nullsLast()).thenComparing(byPrice());
+            case STOPS -> Comparator.comparing(TripPlan.Flight::getStops, nullsLast()).thenComparing(byPrice());
+        };
+    }
+
+    private static Comparator<TripPlan.Attraction> attractionOrder(RankingProperties.AttractionSort sort) {
+        Comparator<TripPlan.Attraction> byName = Comparator.comparing(attraction -> attraction.getName().toLowerCase(Locale.ROOT));
+        return switch (sort) {
+            case DISTANCE -> Comparator.comparing(TripPlan.Attraction::getDistanceFromCenter, nullsLast()).thenComparing(byName);
+            case NAME -> byName;
+        };
+    }
+
+    // Amounts are compared as they are; plans quote every fare in the currency of the flight search
+    private static Comparator<TripPlan.Flight> byPrice() {
+        return Comparator.comparing(TripPlan.Flight::getPriceAmount, nullsLast());
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<T> nullsLast() {
+        return Comparator.nullsLast(Comparator.naturalOrder());
+    }
+
+    private static String flightKey(TripPlan.Flight flight) {
+        return String.join("|",
+                TripPlanKey.normalize(flight.getAirline()),
+                String.valueOf(flight.getDepartureAt() != null ? flight.getDepartureAt() : flight.getDepartureTime()),
+                String.valueOf(flight.getArrivalAt() != null ? flight.getArrivalAt() : flight.getArrivalTime()),
+                String.valueOf(flight.getStops()));
+    }
+
+    private <T> List<T> limit(List<T> ranked, int limit, String section) {
+        if (limit < 0 || ranked.size() <= limit) {
+            return ranked;
+        }
+        meterRegistry.counter("trip.plan.ranking.dropped", "section", section, "reason", "limit")
+                .increment(ranked.size() - limit);
+        return new ArrayList<>(ranked.subList(0, limit));
+    }
+
+    private void dropped(String section, String reason) {
+        meterRegistry.counter("trip.plan.ranking.dropped", "section", section, "reason", reason).increment();
+    }
+
+    static BigDecimal parseAmount(String price) {
+        if (price == null) {
+            return null;
+        }
+        Matcher amount = AMOUNT.matcher(price);
+        return amount.find() ? new BigDecimal(amount.group().replace(",", "")) : null;
+    }
+
+    static String parseCurrency(String price) {
+        if (price == null) {
+            return null;
+        }
+        Matcher code = CURRENCY_CODE.matcher(price);
+        if (code.find()) {
+            return code.group();
+        }
+        return CURRENCY_SYMBOLS.entrySet().stream()
+                .filter(symbol -> price.contains(symbol.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    // "2h 35m", "2 hours 35 minutes", "155m" or an ISO-8601 duration like "PT2H35M"
+    static Integer parseMinutes(String duration) {
+        if (isBlank(duration)) {
+            return null;
+        }
+        if (duration.trim().toUpperCase(Locale.ROOT).startsWith("PT")) {
+            try {
+                return (int) Duration.parse(duration.trim().toUpperCase(Locale.ROOT)).toMinutes();
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        Matcher parts = HOURS_MINUTES.matcher(duration);
+        if (!parts.matches() || (parts.group(1) == null && parts.group(2) == null)) {
+            return null;
+        }
+        int hours = parts.group(1) != null ? Integer.parseInt(parts.group(1)) : 0;
+        int minutes = parts.group(2) != null ? Integer.parseInt(parts.group(2)) : 0;
+        return hours * 60 + minutes;
+    }
+
+    private static String formatPrice(BigDecimal amount, String currency) {
+        if (amount == null) {
+            return null;
+        }
+        String formatted = amount.setScale(2, RoundingMode.HALF_UP).toPlainString();
+        return currency != null ? currency + " " + formatted : formatted;
+    }
+
+    private static String formatMinutes(Integer minutes) {
+        return minutes == null ? null : String.format("%dh %02dm", minutes / 60, minutes % 60);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,117 @@
+package org.travel.travelapp.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.travel.travelapp.config.RouterProperties;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.TripPlan;
+
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which model plans a request, from a complexity score of the trip length, how much the description asks
+ * for, and whether the tool data it needs is already cached. Simple requests go to the local model over the tool
+ * data collected directly, mostly from the caches; the rest, and any local plan that fails
+ * {@link #validate validation}, go to Claude.
+ * <p>
+ * Only the local route's own tool calls fill the caches it checks, since Claude calls the tools with arguments of
+ * its own, so uncached data only adds to the score: a short, plain trip goes local the first time too, and a longer
+ * one once the same searches are cached.
+ * <p>
+ * Decisions are counted as {@code trip.plan.routes{route}}, scores recorded as {@code trip.plan.complexity} and
+ * escalations as {@code trip.plan.escalations{reason}}; their ratio to local routes is the escalation rate.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TripPlanRouter {
+
+    private static final Pattern WORD_SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    public enum Route {
+        LOCAL,
+        CLAUDE;
+
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public record Decision(Route route, double score) {
+    }
+
+    private final RouterProperties properties;
+    private final McpToolOrchestrator mcpToolOrchestrator;
+    private final MeterRegistry meterRegistry;
+
+    public Decision route(ItineraryRequest request) {
+        if (!properties.isEnabled()) {
+            return new Decision(Route.CLAUDE, Double.NaN);
+        }
+        double score = score(request, mcpToolOrchestrator.isCached(request));
+        Route route = score <= properties.getMaxLocalScore() ? Route.LOCAL : Route.CLAUDE;
+
+        DistributionSummary.builder("trip.plan.complexity").register(meterRegistry).record(score);
+        meterRegistry.counter("trip.plan.routes", "route", route.tag()).increment();
+        log.info("Routing trip plan for {} to {} to {} (complexity {})",
+                request.getFrom(), request.getTo(), route.tag(), String.format("%.2f", score));
+        return new Decision(route, score);
+    }
+
+    double score(ItineraryRequest request, boolean toolDataCached) {
+        long days = request.getStartDate() != null && request.getEndDate() != null
+                ? Math.max(1, ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()))
+                : 1;
+        return days * properties.getDayWeight()
+                + distinctWords(request.getDescription()) * properties.getDescriptionWordWeight()
+                + (toolDataCached ? 0 : properties.getUncachedWeight());
+    }
+
+    /**
+     * Why a locally generated plan can't be served, or {@code null} if it can: it must have a summary,
+     * only attractions the place search actually found, and flights whenever there were flight offers.
+     */
+    public String validate(TripPlan tripPlan, McpToolOrchestrator.ToolResults toolResults) {
+        if (tripPlan.getSummary() == null || tripPlan.getSummary().isBlank()) {
+            return "summary";
+        }
+        Set<String> found = toolResults.attractions().stream()
+                .map(attraction -> TripPlanKey.normalize(attraction.getName()))
+                .collect(Collectors.toSet());
+        if (tripPlan.getAttractions() == null || (tripPlan.getAttractions().isEmpty() && !found.isEmpty())) {
+            return "attractions";
+        }
+        boolean grounded = tripPlan.getAttractions().stream()
+                .allMatch(attraction -> found.contains(TripPlanKey.normalize(attraction.getName())));
+        if (!grounded) {
+            return "ungrounded";
+        }
+        boolean hadOffers = toolResults.flightOffers() != null && !toolResults.flightOffers().isBlank();
+        if (hadOffers && (tripPlan.getFlights() == null || tripPlan.getFlights().isEmpty())) {
+            return "flights";
+        }
+        return null;
+    }
+
+    public void recordEscalation(String reason) {
+        meterRegistry.counter("trip.plan.escalations", "reason", reason).increment();
+    }
+
+    private static long distinctWords(String description) {
+        if (description == null || description.isBlank()) {
+            return 0;
+        }
+        return Arrays.stream(WORD_SPLIT.split(description.toLowerCase(Locale.ROOT)))
+                .filter(word -> word.length() > 2)
+                .distinct()
+                .count();
+    }
+}
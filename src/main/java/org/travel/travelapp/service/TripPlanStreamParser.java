@@ -0,0 +1,148 @@
+package org.travel.travelapp.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.dto.TripPlanEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental parser for a trip plan JSON object arriving as a stream of text chunks.
+ * The summary and every attraction and flight are emitted as soon as their JSON value is closed,
+ * instead of waiting for the whole document. Not thread-safe; use one instance per stream.
+ */
+public class TripPlanStreamParser {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final TripPlan tripPlan = new TripPlan();
+
+    private boolean started;
+    private boolean finished;
+    private int depth;
+    private String rootField;
+    private TokenBuffer capture;
+
+    public TripPlanStreamParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        tripPlan.setAttractions(new ArrayList<>());
+        tripPlan.setFlights(new ArrayList<>());
+    }
+
+    /**
+     * Feeds the next chunk of model output and returns the events it completed.
+     */
+    public List<TripPlanEvent> feed(String chunk) {
+        if (finished || chunk == null || chunk.isEmpty()) {
+            return List.of();
+        }
+        if (!started) {
+            // Skip anything before the JSON object, such as a markdown code fence
+            int start = chunk.indexOf('{');
+            if (start < 0) {
+                return List.of();
+            }
+            chunk = chunk.substring(start);
+            started = true;
+        }
+
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        List<TripPlanEvent> events = new ArrayList<>();
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            JsonToken token;
+            while (!finished && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                handle(token, events);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Claude streamed malformed trip plan JSON", e);
+        }
+        return events;
+    }
+
+    /**
+     * Signals the end of the stream and returns the plan assembled from everything parsed so far.
+     */
+    public TripPlan finish() {
+        feeder.endOfInput();
+        return tripPlan;
+    }
+
+    public boolean isComplete() {
+        return finished;
+    }
+
+    private void handle(JsonToken token, List<TripPlanEvent> events) throws IOException {
+        if (capture != null) {
+            capture.copyCurrentEvent(parser);
+        }
+
+        switch (token) {
+            case START_OBJECT, START_ARRAY -> {
+                depth++;
+                // Objects directly inside the root "attractions"/"flights" arrays are captured whole
+                if (token == JsonToken.START_OBJECT && depth == 3 && capture == null && isItemArray(rootField)) {
+                    capture = new TokenBuffer(parser, null);
+                    capture.copyCurrentEvent(parser);
+                }
+            }
+            case END_OBJECT, END_ARRAY -> {
+                depth--;
+                if (capture != null && depth == 2) {
+                    events.add(completeItem());
+                }
+                if (depth == 0) {
+                    finished = true;
+                }
+            }
+            case FIELD_NAME -> {
+                if (depth == 1) {
+                    rootField = parser.currentName();
+                }
+            }
+            case VALUE_STRING -> {
+                if (depth == 1 && PlanSection.SUMMARY.fieldName().equals(rootField)) {
+                    tripPlan.setSummary(parser.getText());
+                    events.add(TripPlanEvent.summary(tripPlan.getSummary()));
+                }
+            }
+            default -> {
+                // Scalars are only of interest inside captured objects
+            }
+        }
+    }
+
+    private TripPlanEvent completeItem() throws IOException {
+        TokenBuffer item = capture;
+        capture = null;
+        try (JsonParser itemParser = item.asParser(objectMapper)) {
+            if (PlanSection.ATTRACTIONS.fieldName().equals(rootField)) {
+                TripPlan.Attraction attraction = objectMapper.readValue(itemParser, TripPlan.Attraction.class);
+                tripPlan.getAttractions().add(attraction);
+                return TripPlanEvent.attraction(attraction);
+            }
+            TripPlan.Flight flight = objectMapper.readValue(itemParser, TripPlan.Flight.class);
+            tripPlan.getFlights().add(flight);
+            return TripPlanEvent.flight(flight);
+        }
+    }
+
+    private static boolean isItemArray(String field) {
+        return PlanSection.ATTRACTIONS.fieldName().equals(field) || PlanSection.FLIGHTS.fieldName().equals(field);
+    }
+}
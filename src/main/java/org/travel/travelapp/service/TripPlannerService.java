@@ -1,62 +1,575 @@
 package org.travel.travelapp.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.stereotype.Service;
+import org.travel.travelapp.bulkhead.DownstreamOverloadedException;
+import org.travel.travelapp.cache.TtlCache;
+import org.travel.travelapp.config.PlannerProperties;
+import org.travel.travelapp.config.RouterProperties;
+import org.travel.travelapp.deadline.Deadline;
+import org.travel.travelapp.deadline.DeadlineProperties;
+import org.travel.travelapp.deadline.Hedger;
 import org.travel.travelapp.dto.ItineraryRequest;
 import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.dto.TripPlanEvent;
+import org.travel.travelapp.mcp.McpToolRegistry;
+import org.travel.travelapp.mcp.ToolCallTally;
+import org.travel.travelapp.popularity.HotRouteTracker;
+import reactor.core.publisher.Flux;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class TripPlannerService {
 
+    // Raw tool output can be long; the ranking call only needs the top of it
+    private static final int MAX_TOOL_OUTPUT_CHARS = 6000;
+
+    // Claude tokens spent by a precompute run, inherited by the section threads it starts
+    private static final InheritableThreadLocal<LongAdder> TOKEN_ACCOUNT = new InheritableThreadLocal<>();
+
     private final ChatClient claudeChatClient;
+    private final ChatClient localGemmaChatClient;
     private final ObjectMapper objectMapper;
-
+    private final TtlCache<TripPlanKey, TripPlan> tripPlanCache;
+    private final McpToolOrchestrator mcpToolOrchestrator;
+    private final McpToolRegistry mcpToolRegistry;
+    private final PlannerProperties plannerProperties;
+    private final MeterRegistry meterRegistry;
+    private final HotRouteTracker hotRouteTracker;
+    private final Hedger hedger;
+    private final TripPlanRouter tripPlanRouter;
+    private final RouterProperties routerProperties;
+    private final TripPlanRanker tripPlanRanker;
+    private final DeadlineProperties deadlineProperties;
 
     public TripPlan generateTripPlan(ItineraryRequest request, String sanitizedDescription) {
+        return generateTripPlan(request, CompletableFuture.completedFuture(sanitizedDescription), Deadline.none());
+    }
+
+    /**
+     * Builds on the plan precomputed for a hot route if there is one, and otherwise plans it within the deadline
+     * on the route the {@link TripPlanRouter} picks for it.
+     */
+    public TripPlan generateTripPlan(ItineraryRequest request, Future<String> sanitizedDescription, Deadline deadline) {
+        hotRouteTracker.record(request);
+        Optional<TripPlan> precomputed = hotRouteTracker.precomputed(request);
+        if (precomputed.isPresent()) {
+            try {
+                return fromPrecomputed(request, precomputed.get(), awaitDescription(request, sanitizedDescription),
+                        deadline);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Trip planning was cancelled");
+            }
+        }
+        return planTripPlan(request, sanitizedDescription, deadline, tripPlanRouter.route(request).route());
+    }
+
+    /**
+     * A precomputed plan was written without a description, so it is only served as it is to requests without one.
+     * Otherwise its attractions and flights are reused and the summary is written for the request's description,
+     * and the plan cached like any other.
+     */
+    private TripPlan fromPrecomputed(ItineraryRequest request, TripPlan precomputed, String sanitizedDescription,
+                                     Deadline deadline) {
+        if (sanitizedDescription == null || sanitizedDescription.isBlank()) {
+            log.info("Serving precomputed trip plan for {} to {}", request.getFrom(), request.getTo());
+            return precomputed;
+        }
+        TripPlanKey key = TripPlanKey.of(request, sanitizedDescription);
+        Optional<TripPlan> cached = tripPlanCache.getIfPresent(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        log.info("Writing a summary for the precomputed trip plan for {} to {}", request.getFrom(), request.getTo());
+        ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<String> summary = scope.submit(() ->
+                    generateSection(request, sanitizedDescription, PlanSection.SUMMARY, deadline).getSummary());
+            // The reused sections were ranked when the plan was precomputed
+            TripPlan tripPlan = mergeSections(request, summary,
+                    CompletableFuture.completedFuture(precomputed.getAttractions()),
+                    CompletableFuture.completedFuture(precomputed.getFlights()), deadline);
+            if (tripPlan.getDegradedSections().isEmpty()) {
+                tripPlanCache.put(key, tripPlan);
+            }
+            return tripPlan;
+        } finally {
+            scope.shutdownNow();
+        }
+    }
+
+    /**
+     * Plans a hot route ahead of demand with Claude, without a description, reporting the Claude tokens it spent.
+     */
+    public PrecomputedPlan precomputeTripPlan(ItineraryRequest request) {
+        LongAdder tokens = new LongAdder();
+        TOKEN_ACCOUNT.set(tokens);
+        try {
+            TripPlan tripPlan = planTripPlan(request, CompletableFuture.completedFuture(""), Deadline.none(),
+                    TripPlanRouter.Route.CLAUDE);
+            return new PrecomputedPlan(tripPlan, tokens.sum());
+        } finally {
+            TOKEN_ACCOUNT.remove();
+        }
+    }
+
+    /**
+     * Generates the plan as independent sections running concurrently on virtual threads.
+     * The MCP flight search starts immediately when both cities have IATA codes, so it overlaps with sanitization
+     * still in progress; the Claude calls only start once the plan cache has missed, and the flights section maps
+     * the offers already found.
+     * In deterministic mode the MCP tools are called from Java instead and Claude only ranks their output.
+     * The generation runs on its own thread with a budget of its own, at least the default one, since identical
+     * requests arriving meanwhile share it: the deadline or cancellation of the request that started it is not
+     * imposed on them. Each request waits for it only as long as its own deadline allows. Sections still running
+     * when the generation's budget runs out are cancelled and replaced by their fallbacks.
+     * On the local route the plan is drafted by Gemma instead, and only escalated to Claude when that fails.
+     */
+    private TripPlan planTripPlan(ItineraryRequest request, Future<String> sanitizedDescription, Deadline deadline,
+                                  TripPlanRouter.Route route) {
         log.info("Generating trip plan for {} to {} ({} to {})",
                 request.getFrom(), request.getTo(),
                 request.getStartDate(), request.getEndDate());
 
+        PlannerProperties.Mode mode = plannerProperties.getMode();
+        ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor();
         try {
-            // Build comprehensive prompt for Claude
-            String systemPrompt = buildSystemPrompt();
-            String userPrompt = buildUserPrompt(request, sanitizedDescription);
+            // Flights depend on neither the description nor the attractions. Only the search runs this early:
+            // it costs no tokens, so a cache hit wastes nothing but the tool call. It needs IATA codes for both
+            // cities; without them Claude looks for flights with the tools, as for any other section
+            Future<String> flightOffers = mode == PlannerProperties.Mode.AGENTIC && route == TripPlanRouter.Route.CLAUDE
+                    && mcpToolOrchestrator.canSearchFlights(request)
+                    ? scope.submit(() -> mcpToolOrchestrator.searchFlights(request, deadline))
+                    : null;
 
-            // Call Claude with MCP tools available
-            String claudeResponse = callClaudeWithMcp(systemPrompt, userPrompt);
+            String description = awaitDescription(request, sanitizedDescription);
 
-            // Parse Claude's response into structured trip plan
-            return parseTripPlan(claudeResponse, request);
+            // Identical requests share the cached plan or join the generation already in flight
+            Duration remaining = deadline.remaining();
+            Deadline generation = Deadline.after(remaining.compareTo(deadlineProperties.getBudget()) > 0
+                    ? remaining : deadlineProperties.getBudget());
+            return tripPlanCache.get(TripPlanKey.of(request, description), () -> {
+                Timer.Sample started = Timer.start(meterRegistry);
+                // Latency per route, with escalated local plans apart from both
+                String[] servedBy = {route.tag()};
+                ExecutorService sections = Executors.newVirtualThreadPerTaskExecutor();
+                try {
+                    TripPlan plan;
+                    if (route == TripPlanRouter.Route.LOCAL) {
+                        plan = planLocally(request, description, generation, servedBy);
+                    } else {
+                        plan = mode == PlannerProperties.Mode.AGENTIC
+                                ? assemblePlan(sections, request, description, flightOffers, generation)
+                                : rankToolResults(request, description, mcpToolOrchestrator.collect(request, generation), generation);
+                    }
+                    // Order and counts are decided here rather than by the model
+                    return tripPlanRanker.rank(plan);
+                } finally {
+                    sections.shutdownNow();
+                    started.stop(meterRegistry.timer("trip.plan.generation", "mode", mode.tag(), "route", servedBy[0]));
+                }
+            }, plan -> plan.getDegradedSections().isEmpty(), remaining);
 
+        } catch (DownstreamOverloadedException e) {
+            // Shed load is reported to the client rather than hidden behind a fallback plan
+            throw e;
+        } catch (InterruptedException e) {
+            // The client went away; nobody is waiting for a plan
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Trip planning was cancelled");
+        } catch (TimeoutException e) {
+            // The generation goes on for the cache and for requests with more time left
+            log.warn("Trip plan for {} to {} wasn't ready within the deadline, using fallback", request.getFrom(), request.getTo());
+            meterRegistry.counter("deadline.exceeded", "stage", "plan").increment();
+            return createFallbackTripPlan(request);
         } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // The client went away while waiting for the generation
+                throw new CancellationException("Trip planning was cancelled");
+            }
             log.error("Error generating trip plan: {}", e.getMessage(), e);
+            // Fallback plans are built outside the cache so they are never stored
             return createFallbackTripPlan(request);
+        } finally {
+            // Abandon whatever is still running, e.g. a flight search made redundant by a cache hit
+            scope.shutdownNow();
+        }
+    }
+
+    /**
+     * Streams the plan from a single Claude call, emitting the summary and each attraction and flight
+     * as soon as its JSON object is complete. A cached or precomputed plan is replayed immediately instead,
+     * a precomputed one once it has a summary for the description.
+     */
+    public Flux<TripPlanEvent> streamTripPlan(ItineraryRequest request, String sanitizedDescription, Deadline deadline) {
+        TripPlanKey key = TripPlanKey.of(request, sanitizedDescription);
+        return Flux.defer(() -> {
+            hotRouteTracker.record(request);
+            Optional<TripPlan> precomputed = hotRouteTracker.precomputed(request);
+            if (precomputed.isPresent()) {
+                log.info("Replaying precomputed trip plan for {} to {}", request.getFrom(), request.getTo());
+                return Flux.fromIterable(toEvents(fromPrecomputed(request, precomputed.get(), sanitizedDescription, deadline)));
+            }
+
+            Optional<TripPlan> cached = tripPlanCache.getIfPresent(key);
+            if (cached.isPresent()) {
+                log.info("Replaying cached trip plan for {} to {}", request.getFrom(), request.getTo());
+                return Flux.fromIterable(toEvents(cached.get()));
+            }
+
+            Prompt prompt = new Prompt(List.of(
+                    new SystemMessage(buildSystemPrompt()),
+                    new UserMessage(buildUserPrompt(request, sanitizedDescription, EnumSet.allOf(PlanSection.class)))
+            ));
+            TripPlanStreamParser parser = new TripPlanStreamParser(objectMapper);
+            ToolCallTally tally = new ToolCallTally();
+
+            log.info("Streaming trip plan from Claude with MCP tools enabled...");
+            return claudeChatClient.prompt(prompt)
+                    .toolCallbacks(toolsFor(EnumSet.allOf(PlanSection.class), deadline))
+                    .toolContext(toolContext(tally, deadline))
+                    .stream()
+                    .content()
+                    .concatMapIterable(parser::feed)
+                    // Events go out in the model's order; only the typed flight fields are filled in on the way
+                    .map(event -> TripPlanEvent.FLIGHT.equals(event.type())
+                            ? TripPlanEvent.flight(tripPlanRanker.normalize((TripPlan.Flight) event.data()))
+                            : event)
+                    .doOnComplete(() -> {
+                        TripPlan tripPlan = parser.finish();
+                        // Only a fully parsed plan is worth serving to the next identical request
+                        if (parser.isComplete() && tripPlan.getSummary() != null) {
+                            tripPlanCache.put(key, tripPlanRanker.rank(tripPlan));
+                        } else {
+                            meterRegistry.counter("trip.plan.parse.failures").increment();
+                        }
+                    })
+                    .doFinally(signal -> recordToolCalls("stream", tally));
+        });
+    }
+
+    public List<TripPlan.Attraction> researchAttractions(ItineraryRequest request, Deadline deadline) {
+        return generateSection(request, null, PlanSection.ATTRACTIONS, deadline).getAttractions();
+    }
+
+    public List<TripPlan.Flight> searchFlights(ItineraryRequest request, Deadline deadline) {
+        return generateSection(request, null, PlanSection.FLIGHTS, deadline).getFlights();
+    }
+
+    public String writeSummary(ItineraryRequest request, String sanitizedDescription, Deadline deadline) {
+        return generateSection(request, sanitizedDescription, PlanSection.SUMMARY, deadline).getSummary();
+    }
+
+    /**
+     * Regenerates only the given sections of a previous plan and keeps the others as they were. The sections
+     * run concurrently, as in a full plan, and their tool calls are mostly answered from the tool result caches.
+     * In deterministic mode the tool data is collected again (mostly from the caches) and one Claude call ranks it.
+     * The new plan is cached under the edited request, as if it had been planned from scratch.
+     */
+    public TripPlan replanSections(ItineraryRequest request, String sanitizedDescription, TripPlan previous,
+                                   Set<PlanSection> sections, Deadline deadline) {
+        log.info("Re-planning {} of the trip plan for {} to {}", sections, request.getFrom(), request.getTo());
+        ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            // Step 1: In deterministic mode all regenerated sections come from a single ranking call
+            CompletableFuture<TripPlan> ranked = plannerProperties.getMode() == PlannerProperties.Mode.DETERMINISTIC
+                    ? CompletableFuture.supplyAsync(() -> rankToolResults(request, sanitizedDescription,
+                            mcpToolOrchestrator.collect(request, deadline), deadline), scope)
+                    : null;
+
+            // Step 2: Start the regenerated sections, the others are ready already
+            Future<String> summary = section(scope, PlanSection.SUMMARY, sections, previous, TripPlan::getSummary,
+                    ranked, () -> generateSection(request, sanitizedDescription, PlanSection.SUMMARY, deadline));
+            Future<List<TripPlan.Attraction>> attractions = section(scope, PlanSection.ATTRACTIONS, sections, previous,
+                    TripPlan::getAttractions, ranked, () -> generateSection(request, null, PlanSection.ATTRACTIONS, deadline));
+            Future<List<TripPlan.Flight>> flights = section(scope, PlanSection.FLIGHTS, sections, previous,
+                    TripPlan::getFlights, ranked, () -> generateSection(request, null, PlanSection.FLIGHTS, deadline));
+
+            // Step 3: Merge and rank as a full plan would be; reused sections were ranked before and stay as they are
+            TripPlan tripPlan = tripPlanRanker.rank(mergeSections(request, summary, attractions, flights, deadline));
+            if (tripPlan.getDegradedSections().isEmpty()) {
+                tripPlanCache.put(TripPlanKey.of(request, sanitizedDescription), tripPlan);
+            }
+            return tripPlan;
+        } finally {
+            scope.shutdownNow();
+        }
+    }
+
+    private <T> Future<T> section(ExecutorService scope, PlanSection section, Set<PlanSection> sections, TripPlan previous,
+                                  Function<TripPlan, T> field, CompletableFuture<TripPlan> ranked,
+                                  Supplier<TripPlan> generate) {
+        if (!sections.contains(section)) {
+            meterRegistry.counter("trip.plan.replan.sections", "section", section.fieldName(), "outcome", "reused").increment();
+            return CompletableFuture.completedFuture(field.apply(previous));
+        }
+        meterRegistry.counter("trip.plan.replan.sections", "section", section.fieldName(), "outcome", "regenerated").increment();
+        return ranked != null
+                ? ranked.thenApply(field)
+                : scope.submit(() -> field.apply(generate.get()));
+    }
+
+    private static List<TripPlanEvent> toEvents(TripPlan tripPlan) {
+        List<TripPlanEvent> events = new ArrayList<>();
+        events.add(TripPlanEvent.summary(tripPlan.getSummary()));
+        tripPlan.getAttractions().forEach(attraction -> events.add(TripPlanEvent.attraction(attraction)));
+        tripPlan.getFlights().forEach(flight -> events.add(TripPlanEvent.flight(flight)));
+        return events;
+    }
+
+    /**
+     * The cheap route: Gemma turns the collected tool data, mostly served from the tool caches, into a plan under
+     * a tight output cap. A plan that fails validation, or a failed Gemma call, escalates to Claude ranking the
+     * same data, so the tools aren't called twice.
+     */
+    private TripPlan planLocally(ItineraryRequest request, String description, Deadline deadline, String[] servedBy) {
+        McpToolOrchestrator.ToolResults toolResults = mcpToolOrchestrator.collect(request, deadline);
+        String escalation;
+        try {
+            TripPlan draft = draftWithGemma(request, description, toolResults, deadline);
+            escalation = tripPlanRouter.validate(draft, toolResults);
+            if (escalation == null) {
+                return withFlightsFrom(draft, toolResults);
+            }
+        } catch (DownstreamOverloadedException e) {
+            escalation = "overloaded";
+        } catch (RuntimeException e) {
+            log.warn("Local trip plan failed: {}", e.getMessage());
+            escalation = "error";
+        }
+
+        log.info("Escalating trip plan for {} to {} to Claude: {}", request.getFrom(), request.getTo(), escalation);
+        tripPlanRouter.recordEscalation(escalation);
+        servedBy[0] = "escalated";
+        return rankToolResults(request, description, toolResults, deadline);
+    }
+
+    private TripPlan draftWithGemma(ItineraryRequest request, String description,
+                                    McpToolOrchestrator.ToolResults toolResults, Deadline deadline) {
+        Prompt prompt = new Prompt(List.of(
+                new SystemMessage(buildSystemPrompt()),
+                new UserMessage(buildRankingPrompt(request, description, toolResults))
+        ), ChatOptions.builder().maxTokens(routerProperties.getLocalMaxTokens()).build());
+
+        log.info("Calling Gemma to rank {} collected attractions...", toolResults.attractions().size());
+        Timer.Sample started = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            String response = hedger.within("gemma.ranking", deadline,
+                    () -> localGemmaChatClient.prompt(prompt).call().content());
+            if (response == null) {
+                throw new IllegalStateException("Gemma returned no content");
+            }
+            outcome = "success";
+            return parseTripPlan(response);
+        } finally {
+            started.stop(meterRegistry.timer("itinerary.stage", "stage", "gemma", "outcome", outcome));
+        }
+    }
+
+    private TripPlan assemblePlan(ExecutorService scope,
+                                  ItineraryRequest request,
+                                  String description,
+                                  Future<String> flightOffers,
+                                  Deadline deadline) {
+        Future<List<TripPlan.Flight>> flights = scope.submit(() -> flightsFrom(request, flightOffers, deadline));
+        Future<List<TripPlan.Attraction>> attractions = scope.submit(() ->
+                generateSection(request, null, PlanSection.ATTRACTIONS, deadline).getAttractions());
+        Future<String> summary = scope.submit(() ->
+                generateSection(request, description, PlanSection.SUMMARY, deadline).getSummary());
+
+        return mergeSections(request, summary, attractions, flights, deadline);
+    }
+
+    /**
+     * The flights section from offers searched for already, mapped to the flight schema by one Claude call without
+     * tools. When there was no search, or it failed, Claude searches with the tools itself, as for any other section.
+     * Offers that map to no flights at all leave the section empty, so it degrades rather than being cached.
+     */
+    private List<TripPlan.Flight> flightsFrom(ItineraryRequest request, Future<String> flightOffers, Deadline deadline)
+            throws InterruptedException {
+        String offers = null;
+        try {
+            offers = flightOffers != null ? flightOffers.get() : null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DownstreamOverloadedException overloaded) {
+                throw overloaded;
+            }
+        } catch (CancellationException e) {
+            // The request that started the search gave up on it; the generation carries on without it
+        }
+        if (offers == null || offers.isBlank()) {
+            return generateSection(request, null, PlanSection.FLIGHTS, deadline).getFlights();
+        }
+
+        Prompt prompt = new Prompt(List.of(
+                new SystemMessage(buildSystemPrompt()),
+                new UserMessage(buildFlightsPrompt(request, offers))
+        ));
+        // No tools attached: the offers are already in the prompt
+        String response = callClaude(prompt, new ToolCallback[0], PlanSection.FLIGHTS.fieldName(), deadline);
+        List<TripPlan.Flight> flights = parseTripPlan(response).getFlights();
+        return flights == null || flights.isEmpty() ? null : flights;
+    }
+
+    /**
+     * Waits for independently generated sections and merges them into one plan.
+     * Each section degrades on its own instead of failing the whole plan; one that hasn't finished by the
+     * deadline is cancelled and degrades, so a partial plan is returned instead of waiting.
+     */
+    public TripPlan mergeSections(ItineraryRequest request,
+                                  Future<String> summary,
+                                  Future<List<TripPlan.Attraction>> attractions,
+                                  Future<List<TripPlan.Flight>> flights,
+                                  Deadline deadline) {
+        // Section results may be shared between plans, so each plan gets its own lists
+        TripPlan tripPlan = new TripPlan();
+        tripPlan.setSummary(joinSection(PlanSection.SUMMARY, summary, tripPlan, deadline, () -> fallbackSummary(request)));
+        tripPlan.setAttractions(new ArrayList<>(
+                joinSection(PlanSection.ATTRACTIONS, attractions, tripPlan, deadline, ArrayList::new)));
+        tripPlan.setFlights(new ArrayList<>(
+                joinSection(PlanSection.FLIGHTS, flights, tripPlan, deadline, this::fallbackFlights)));
+
+        log.info("Assembled trip plan with {} attractions and {} flights, degraded sections: {}",
+                tripPlan.getAttractions().size(), tripPlan.getFlights().size(), tripPlan.getDegradedSections());
+        return tripPlan;
+    }
+
+    private <T> T joinSection(PlanSection section, Future<T> result, TripPlan tripPlan, Deadline deadline,
+                              Supplier<T> fallback) {
+        try {
+            T value = result.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+            if (value != null) {
+                return value;
+            }
+            log.warn("Section {} came back empty, using fallback", section);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for section {}, using fallback", section);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            log.warn("Section {} ran out of time, using fallback", section);
+            meterRegistry.counter("deadline.exceeded", "stage", section.fieldName()).increment();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DownstreamOverloadedException overloaded) {
+                throw overloaded;
+            }
+            log.warn("Section {} failed, using fallback: {}", section, e.getCause().getMessage());
+        }
+        tripPlan.getDegradedSections().add(section.fieldName());
+        meterRegistry.counter("trip.plan.fallbacks", "section", section.fieldName()).increment();
+        return fallback.get();
+    }
+
+    private String awaitDescription(ItineraryRequest request, Future<String> sanitizedDescription)
+            throws InterruptedException {
+        try {
+            return sanitizedDescription.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DownstreamOverloadedException overloaded) {
+                throw overloaded;
+            }
+            log.warn("Sanitization failed, planning with the original description: {}", e.getCause().getMessage());
+            return request.getDescription();
         }
     }
 
+    /**
+     * Turns tool output collected without the model into a plan with a single Claude call that has no tools.
+     */
+    private TripPlan rankToolResults(ItineraryRequest request, String sanitizedDescription,
+                                     McpToolOrchestrator.ToolResults toolResults, Deadline deadline) {
+        String userPrompt = buildRankingPrompt(request, sanitizedDescription, toolResults);
+
+        log.info("Calling Claude to rank {} collected attractions...", toolResults.attractions().size());
+        Prompt prompt = new Prompt(List.of(
+                new SystemMessage(buildSystemPrompt()),
+                new UserMessage(userPrompt)
+        ));
+
+        // No tools attached: everything Claude needs is already in the prompt
+        String response = callClaude(prompt, new ToolCallback[0], "ranking", deadline);
+
+        log.info("Claude ranking response received: {} characters", response.length());
+        return withFlightsFrom(parseTripPlan(response), toolResults);
+    }
+
+    /**
+     * Without flight offers, e.g. for a city with no known IATA code, the model had nothing to take flights from:
+     * the section degrades rather than keeping whatever the model made up.
+     */
+    private TripPlan withFlightsFrom(TripPlan tripPlan, McpToolOrchestrator.ToolResults toolResults) {
+        if (toolResults.flightOffers() == null || toolResults.flightOffers().isBlank()) {
+            tripPlan.setFlights(fallbackFlights());
+            tripPlan.getDegradedSections().add(PlanSection.FLIGHTS.fieldName());
+            meterRegistry.counter("trip.plan.fallbacks", "section", PlanSection.FLIGHTS.fieldName()).increment();
+        }
+        return tripPlan;
+    }
+
+    private TripPlan generateSection(ItineraryRequest request, String sanitizedDescription, PlanSection section,
+                                     Deadline deadline) {
+        String systemPrompt = buildSystemPrompt();
+        String userPrompt = buildUserPrompt(request, sanitizedDescription, EnumSet.of(section));
+
+        // Call Claude with the MCP tools this section needs
+        String claudeResponse = callClaudeWithMcp(systemPrompt, userPrompt, section, deadline);
+
+        // Parse Claude's response into structured trip plan
+        return parseTripPlan(claudeResponse);
+    }
+
     private String buildSystemPrompt() {
         return """
                 You are an expert travel advisor with access to real-time data through MCP tools.
-                
-                Your task is to create a comprehensive trip plan using the following MCP tools:
-                
+
+                You help create a comprehensive trip plan using the following MCP tools:
+
                 1. **Brave Search MCP**: Research the top 10 famous things to do/see in the destination city
                 2. **Google Maps MCP**: Get distance from city center for each attraction
                 3. **Amadeus MCP**: Find top 5 flight options with pricing
-                
-                **IMPORTANT**: You MUST return your response as a valid JSON object with this exact structure:
-                
+
+                **IMPORTANT**: You MUST return your response as a valid JSON object following this structure.
+                Each request tells you which of the top-level fields to produce; include only those fields.
+
                 {
                   "summary": "A compelling 2-3 sentence trip overview",
                   "attractions": [
@@ -70,42 +583,111 @@ public class TripPlannerService {
                   "flights": [
                     {
                       "airline": "Airline name",
-                      "price": "$XXX",
-                      "departureTime": "HH:MM",
-                      "arrivalTime": "HH:MM",
-                      "duration": "Xh XXm",
+                      "priceAmount": 215.40,
+                      "currency": "EUR",
+                      "departureAt": "2025-06-01T08:30:00",
+                      "arrivalAt": "2025-06-01T11:05:00",
+                      "durationMinutes": 155,
                       "stops": 0,
-                      "bookingClass": "Economy/Business"
+                      "bookingClass": "ECONOMY"
                     }
                   ]
                 }
-                
-                - Include exactly 10 attractions sorted by distance from city center (closest first)
-                - Include exactly 5 flight options sorted by price (cheapest first)
+
+                - Include 10 attractions and up to 5 flight options, in any order; they are ranked afterwards
                 - Return ONLY the JSON object, no additional text or markdown formatting
                 - Ensure distanceFromCenter is a number in kilometers
+                - Copy flight prices, currencies, local departure and arrival times and durations from the offers as they are
                 """;
     }
 
-    private String buildUserPrompt(ItineraryRequest request, String sanitizedDescription) {
+    /**
+     * Instructions come first and only depend on the requested sections, so consecutive prompts share
+     * as long a prefix as possible; everything specific to the itinerary goes at the end.
+     */
+    static String buildUserPrompt(ItineraryRequest request, String sanitizedDescription, Set<PlanSection> sections) {
+        List<String> steps = new ArrayList<>();
+        if (sections.contains(PlanSection.ATTRACTIONS)) {
+            steps.add("Use Brave Search MCP to research the top 10 famous attractions and things to do in the destination");
+            steps.add("For each attraction, use Google Maps MCP to get the distance from the city center of the destination");
+        }
+        if (sections.contains(PlanSection.FLIGHTS)) {
+            steps.add("Use Amadeus MCP with LIMIT of 5 flights to find the top flight options from the origin to the destination on the start date for the number of adults given");
+        }
+        if (sections.contains(PlanSection.SUMMARY)) {
+            steps.add("Write a compelling 2-3 sentence trip summary");
+        }
+        steps.add(String.format("Return a JSON object with only the %s field(s), matching the schema provided in the system prompt",
+                String.join(", ", sections.stream().map(PlanSection::fieldName).toList())));
+
+        StringBuilder numberedSteps = new StringBuilder();
+        for (int i = 0; i < steps.size(); i++) {
+            numberedSteps.append(i + 1).append(". ").append(steps.get(i)).append('\n');
+        }
+
         return String.format("""
-                        Create a comprehensive trip plan for this itinerary:
-                        
+                        Create a comprehensive trip plan for the itinerary at the end of this message.
+
+                        Step-by-step instructions:
+                        %s
+                        Remember: Return ONLY the JSON object, no markdown code blocks or additional text.
+
+                        Itinerary:
                         Destination: %s
                         Origin: %s
                         Travel Dates: %s to %s
                         Number of Adults: %d
                         Trip Details: %s
-                        
+                        """,
+                numberedSteps,
+                request.getTo(),
+                request.getFrom(),
+                request.getStartDate(),
+                request.getEndDate(),
+                request.getNumberOfAdults(),
+                sanitizedDescription != null && !sanitizedDescription.isBlank()
+                        ? sanitizedDescription
+                        : "General sightseeing and tourism"
+        );
+    }
+
+    private String buildRankingPrompt(ItineraryRequest request, String sanitizedDescription,
+                                      McpToolOrchestrator.ToolResults toolResults) {
+        String attractions;
+        try {
+            attractions = objectMapper.writeValueAsString(toolResults.attractions());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize collected attractions", e);
+        }
+
+        return String.format("""
+                        Create a comprehensive trip plan for the itinerary at the end of this message from the data collected for it.
+                        The data has already been collected with the MCP tools; do not call any tools.
+
                         Step-by-step instructions:
-                        1. Use Brave Search MCP to research the top 10 famous attractions and things to do in %s
-                        2. For each attraction, use Google Maps MCP to get the distance from the city center of %s
-                        3. Sort the attractions by distance (closest to city center first)
-                        4. Use Amadeus MCP with LIMIT of 5 flights to find the top 3 flight options from %s to %s on %s for %d adult(s)
-                        5. Write a compelling 2-3 sentence trip summary
-                        6. Return everything as a JSON object matching the schema provided in the system prompt
-                        
+                        1. Copy each attraction's name, address and distanceFromCenter as given
+                        2. Write a brief description for each attraction, using the web research where it helps
+                        3. Map each flight offer to the flight schema
+                        4. Write a compelling 2-3 sentence trip summary
+                        5. Return a JSON object with the summary, attractions and flights fields, matching the schema provided in the system prompt
+
                         Remember: Return ONLY the JSON object, no markdown code blocks or additional text.
+
+                        Itinerary:
+                        Destination: %s
+                        Origin: %s
+                        Travel Dates: %s to %s
+                        Number of Adults: %d
+                        Trip Details: %s
+
+                        Attractions with their distance from the city center in kilometers (JSON):
+                        %s
+
+                        Web research about the destination:
+                        %s
+
+                        Flight offers:
+                        %s
                         """,
                 request.getTo(),
                 request.getFrom(),
@@ -115,36 +697,159 @@ public class TripPlannerService {
                 sanitizedDescription != null && !sanitizedDescription.isBlank()
                         ? sanitizedDescription
                         : "General sightseeing and tourism",
-                request.getTo(),
+                attractions,
+                truncate(toolResults.attractionResearch()),
+                truncate(toolResults.flightOffers())
+        );
+    }
+
+    private static String buildFlightsPrompt(ItineraryRequest request, String flightOffers) {
+        return String.format("""
+                        Create the flights of a trip plan for the itinerary at the end of this message from the flight offers found for it.
+                        The offers have already been searched for with the MCP tools; do not call any tools.
+
+                        Step-by-step instructions:
+                        1. Map each flight offer to the flight schema
+                        2. Return a JSON object with only the flights field, matching the schema provided in the system prompt
+
+                        Remember: Return ONLY the JSON object, no markdown code blocks or additional text.
+
+                        Itinerary:
+                        Destination: %s
+                        Origin: %s
+                        Travel Dates: %s to %s
+                        Number of Adults: %d
+
+                        Flight offers:
+                        %s
+                        """,
                 request.getTo(),
                 request.getFrom(),
-                request.getTo(),
                 request.getStartDate(),
-                request.getNumberOfAdults()
+                request.getEndDate(),
+                request.getNumberOfAdults(),
+                truncate(flightOffers)
         );
     }
 
-    private String callClaudeWithMcp(String systemPrompt, String userPrompt) {
-        log.info("Calling Claude with MCP tools enabled...");
+    private static String truncate(String toolOutput) {
+        if (toolOutput == null || toolOutput.isBlank()) {
+            return "(not available)";
+        }
+        return toolOutput.length() <= MAX_TOOL_OUTPUT_CHARS
+                ? toolOutput
+                : toolOutput.substring(0, MAX_TOOL_OUTPUT_CHARS) + "...";
+    }
+
+    private String callClaudeWithMcp(String systemPrompt, String userPrompt, PlanSection section, Deadline deadline) {
+        ToolCallback[] tools = toolsFor(EnumSet.of(section), deadline);
+        log.info("Calling Claude with {} MCP tool(s) for {}...", tools.length, section.fieldName());
 
         Prompt prompt = new Prompt(List.of(
                 new SystemMessage(systemPrompt),
                 new UserMessage(userPrompt)
         ));
 
-        // ChatClient with MCP tools will automatically make them available to Claude
-        String response = claudeChatClient
-                .prompt(prompt)
-                .call()
-                .content();
-
+        String response = callClaude(prompt, tools, section.fieldName(), deadline);
         log.info("Claude response received: {} characters", response.length());
         return response;
     }
 
-    private TripPlan parseTripPlan(String claudeResponse, ItineraryRequest request) {
+    /**
+     * One blocking Claude call, timed as the {@code claude} stage, with its token usage and tool calls recorded.
+     * It is cancelled when the deadline runs out, and hedged per step when hedging is enabled.
+     */
+    private String callClaude(Prompt prompt, ToolCallback[] tools, String step, Deadline deadline) {
+        ToolCallTally tally = new ToolCallTally();
+        Timer.Sample started = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ChatResponse chatResponse = hedger.call("claude." + step, deadline, () -> claudeChatClient
+                    .prompt(prompt)
+                    .toolCallbacks(tools)
+                    .toolContext(toolContext(tally, deadline))
+                    .call()
+                    .chatResponse());
+            String response = chatResponse != null ? chatResponse.getResult().getOutput().getText() : null;
+            if (response == null) {
+                throw new IllegalStateException("Claude returned no content");
+            }
+
+            recordUsage(chatResponse, step, tools);
+            outcome = "success";
+            return response;
+        } finally {
+            started.stop(meterRegistry.timer("itinerary.stage", "stage", "claude", "outcome", outcome));
+            recordToolCalls(step, tally);
+        }
+    }
+
+    private static Map<String, Object> toolContext(ToolCallTally tally, Deadline deadline) {
+        Map<String, Object> context = new HashMap<>(tally.toolContext());
+        context.put(Deadline.CONTEXT_KEY, deadline);
+        return context;
+    }
+
+    /**
+     * MCP tools allowed for the given sections by {@code travel.planner.step-tools}; sections without an entry get every tool.
+     */
+    ToolCallback[] toolsFor(Set<PlanSection> sections, Deadline deadline) {
+        Set<String> allowlist = new HashSet<>();
+        for (PlanSection section : sections) {
+            List<String> stepTools = plannerProperties.getStepTools().get(section.fieldName());
+            if (stepTools == null) {
+                allowlist = null;
+                break;
+            }
+            allowlist.addAll(stepTools);
+        }
+        // While the servers are still starting, a request waits for their tools only as long as its deadline allows
+        return mcpToolRegistry.getToolCallbacks(allowlist, deadline.remaining());
+    }
+
+    // Token usage per step, next to the schema tokens the allowlist kept out of the prompt
+    private void recordUsage(ChatResponse chatResponse, String step, ToolCallback[] tools) {
+        Usage usage = chatResponse.getMetadata().getUsage();
+        Integer inputTokens = usage.getPromptTokens();
+        Integer outputTokens = usage.getCompletionTokens();
+        if (inputTokens != null) {
+            meterRegistry.counter("claude.tokens", "type", "input").increment(inputTokens);
+            DistributionSummary.builder("claude.input.tokens")
+                    .tag("step", step)
+                    .register(meterRegistry)
+                    .record(inputTokens);
+        }
+        if (outputTokens != null) {
+            meterRegistry.counter("claude.tokens", "type", "output").increment(outputTokens);
+        }
+        LongAdder tokenAccount = TOKEN_ACCOUNT.get();
+        if (tokenAccount != null) {
+            tokenAccount.add((inputTokens != null ? inputTokens : 0) + (outputTokens != null ? outputTokens : 0));
+        }
+
+        // Only what is registered already: a metric is no reason to wait for servers still starting
+        int allTools = McpToolRegistry.estimateSchemaTokens(mcpToolRegistry.getRegisteredToolCallbacks());
+        int selected = McpToolRegistry.estimateSchemaTokens(tools);
+        DistributionSummary.builder("claude.tool-schema.tokens.saved")
+                .tag("step", step)
+                .register(meterRegistry)
+                .record(allTools - selected);
+        log.info("Claude {} call used {} input and {} output tokens; tool allowlist saved ~{} schema tokens",
+                step, inputTokens, outputTokens, allTools - selected);
+    }
+
+    private void recordToolCalls(String step, ToolCallTally tally) {
+        DistributionSummary.builder("trip.plan.tool.calls")
+                .tag("step", step)
+                .register(meterRegistry)
+                .record(tally.count());
+    }
+
+    TripPlan parseTripPlan(String claudeResponse) {
         log.info("Parsing Claude's JSON response into structured trip plan");
 
+        Timer.Sample started = Timer.start(meterRegistry);
+        String outcome = "error";
         try {
             // Claude might wrap JSON in markdown code blocks, so clean it first
             String cleanedJson = claudeResponse.trim();
@@ -166,33 +871,32 @@ public class TripPlannerService {
                     tripPlan.getAttractions() != null ? tripPlan.getAttractions().size() : 0,
                     tripPlan.getFlights() != null ? tripPlan.getFlights().size() : 0);
 
+            outcome = "success";
             return tripPlan;
 
-        } catch (Exception e) {
-            log.error("Error parsing Claude's JSON response: {}", e.getMessage(), e);
+        } catch (JsonProcessingException e) {
+            log.error("Error parsing Claude's JSON response: {}", e.getMessage());
             log.debug("Raw response: {}", claudeResponse);
+            meterRegistry.counter("trip.plan.parse.failures").increment();
 
-            // Return fallback trip plan
-            return createFallbackTripPlan(request);
+            // Let the caller fall back, so the failed response never reaches the cache
+            throw new IllegalStateException("Claude returned an unparseable trip plan", e);
+        } finally {
+            started.stop(meterRegistry.timer("itinerary.stage", "stage", "parse", "outcome", outcome));
         }
     }
 
-    private TripPlan createFallbackTripPlan(ItineraryRequest request) {
-        log.warn("Using fallback trip plan due to AI error");
-
-        TripPlan fallback = new TripPlan();
-
-        fallback.setSummary(String.format(
+    private String fallbackSummary(ItineraryRequest request) {
+        return String.format(
                 "Your %d-day trip from %s to %s promises an exciting adventure. " +
                         "Enjoy exploring new destinations and creating memorable experiences.",
                 java.time.temporal.ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()),
                 request.getFrom(),
                 request.getTo()
-        ));
-
-        // Create fallback attractions
-        fallback.setAttractions(new ArrayList<>());
+        );
+    }
 
+    private List<TripPlan.Flight> fallbackFlights() {
         // Create fallback flights with generic pricing
         List<TripPlan.Flight> fallbackFlights = new ArrayList<>();
         fallbackFlights.add(new TripPlan.Flight(
@@ -204,8 +908,26 @@ public class TripPlannerService {
                 0,
                 "Economy"
         ));
-        fallback.setFlights(fallbackFlights);
+        return fallbackFlights;
+    }
+
+    private TripPlan createFallbackTripPlan(ItineraryRequest request) {
+        log.warn("Using fallback trip plan due to AI error");
+        meterRegistry.counter("trip.plan.fallbacks", "section", "all").increment();
+
+        TripPlan fallback = new TripPlan();
+        fallback.setSummary(fallbackSummary(request));
+
+        // Create fallback attractions
+        fallback.setAttractions(new ArrayList<>());
+
+        fallback.setFlights(fallbackFlights());
+        fallback.setDegradedSections(new ArrayList<>(
+                EnumSet.allOf(PlanSection.class).stream().map(PlanSection::fieldName).toList()));
 
         return fallback;
     }
+
+    public record PrecomputedPlan(TripPlan tripPlan, long tokens) {
+    }
 }
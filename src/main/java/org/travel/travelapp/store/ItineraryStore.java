@@ -0,0 +1,281 @@
+package org.travel.travelapp.store;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Embedded, append-only store of generated itineraries, kept as serialized JSON in memory-mapped segment files.
+ * <p>
+ * Records are appended to the active segment until it is full, then a new segment is started. An in-memory
+ * id → (segment, offset) index is rebuilt by scanning the segments on startup; a record that was only partly
+ * written when the process died fails its checksum and ends the scan. Reads hand out a read-only slice of
+ * the mapping, so a stored itinerary is served without being copied onto the heap or parsed.
+ * <p>
+ * Compaction works on whole sealed segments: one whose newest record is past the retention is deleted, and
+ * one that is mostly superseded or expired records has its live records copied forward before it is deleted.
+ * Segments are never unmapped explicitly; a mapping stays valid for readers still holding a slice of it.
+ */
+@Slf4j
+public class ItineraryStore implements Closeable {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+    // length (4) + CRC32C of the payload (4); the payload is stored-at millis (8) + id length (4) + id + JSON
+    private static final int HEADER_BYTES = 8;
+    private static final int PAYLOAD_PREFIX_BYTES = 12;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Duration retention;
+    private final double minLiveRatio;
+    private final Clock clock;
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private Segment active;
+
+    public ItineraryStore(Path directory, int segmentSize, Duration retention, double minLiveRatio,
+                          Clock clock, MeterRegistry meterRegistry) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.retention = retention;
+        this.minLiveRatio = minLiveRatio;
+        this.clock = clock;
+        Files.createDirectories(directory);
+        load();
+
+        Gauge.builder("itinerary.store.entries", index, Map::size).register(meterRegistry);
+        Gauge.builder("itinerary.store.segments", segments, List::size).register(meterRegistry);
+        Gauge.builder("itinerary.store.bytes", segments,
+                all -> all.stream().mapToLong(segment -> segment.writePosition).sum()).register(meterRegistry);
+    }
+
+    /**
+     * Appends an itinerary's JSON under its id, superseding any earlier version.
+     */
+    public synchronized void append(String id, byte[] json) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_PREFIX_BYTES + idBytes.length + json.length)
+                .putLong(clock.millis())
+                .putInt(idBytes.length)
+                .put(idBytes)
+                .put(json)
+                .flip();
+        write(id, payload);
+    }
+
+    /**
+     * The stored itinerary, unless it has passed the retention or was never stored.
+     */
+    public Optional<StoredItinerary> find(String id) {
+        Location location = index.get(id);
+        if (location == null) {
+            return Optional.empty();
+        }
+        ByteBuffer payload = location.segment().buffer.slice(location.position() + HEADER_BYTES, location.length());
+        Instant storedAt = Instant.ofEpochMilli(payload.getLong(0));
+        if (storedAt.isBefore(clock.instant().minus(retention))) {
+            return Optional.empty();
+        }
+        int jsonStart = PAYLOAD_PREFIX_BYTES + payload.getInt(8);
+        ByteBuffer json = payload.slice(jsonStart, payload.capacity() - jsonStart).asReadOnlyBuffer();
+        return Optional.of(new StoredItinerary(id, storedAt, json));
+    }
+
+    /**
+     * Deletes sealed segments that have expired entirely, and rewrites those that are mostly dead.
+     */
+    @Scheduled(fixedDelayString = "${travel.store.compaction-interval:1h}")
+    public synchronized void compact() {
+        long cutoff = clock.instant().minus(retention).toEpochMilli();
+        Map<Segment, List<Map.Entry<String, Location>>> live = new HashMap<>();
+        index.entrySet().forEach(entry -> live.computeIfAbsent(entry.getValue().segment(), s -> new ArrayList<>()).add(entry));
+
+        for (Segment segment : List.copyOf(segments)) {
+            if (segment == active) {
+                continue;
+            }
+            List<Map.Entry<String, Location>> entries = live.getOrDefault(segment, List.of());
+            if (segment.newestMillis < cutoff) {
+                entries.forEach(entry -> index.remove(entry.getKey(), entry.getValue()));
+                delete(segment, "expired");
+                continue;
+            }
+            long liveBytes = entries.stream()
+                    .filter(entry -> storedAt(entry.getValue()) >= cutoff)
+                    .mapToLong(entry -> HEADER_BYTES + entry.getValue().length())
+                    .sum();
+            if (liveBytes < segment.writePosition * minLiveRatio) {
+                for (Map.Entry<String, Location> entry : entries) {
+                    Location location = entry.getValue();
+                    if (storedAt(location) >= cutoff) {
+                        // Copied as is, so the record keeps its original stored-at time
+                        write(entry.getKey(), location.segment().buffer.slice(location.position() + HEADER_BYTES, location.length()));
+                    } else {
+                        index.remove(entry.getKey(), location);
+                    }
+                }
+                delete(segment, "rewritten");
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (active != null) {
+            active.buffer.force();
+        }
+    }
+
+    private void write(String id, ByteBuffer payload) {
+        int length = payload.remaining();
+        if (active == null || active.remaining() < HEADER_BYTES + length) {
+            roll(HEADER_BYTES + length);
+        }
+        Segment segment = active;
+        int position = segment.writePosition;
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        segment.buffer.put(position + HEADER_BYTES, payload, payload.position(), length);
+        segment.buffer.putInt(position + 4, (int) crc.getValue());
+        // The length goes last: until it is written the record ends the segment
+        segment.buffer.putInt(position, length);
+        segment.writePosition = position + HEADER_BYTES + length;
+        segment.newestMillis = Math.max(segment.newestMillis, payload.getLong(payload.position()));
+        index.put(id, new Location(segment, position, length));
+    }
+
+    private void roll(int needed) {
+        long sequence = active == null ? 0 : active.sequence + 1;
+        try {
+            Segment segment = Segment.open(directory.resolve(String.format("segment-%010d.log", sequence)),
+                    sequence, Math.max(segmentSize, needed));
+            segments.add(segment);
+            if (active != null) {
+                active.buffer.force();
+            }
+            active = segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create itinerary store segment " + sequence, e);
+        }
+    }
+
+    private void load() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            Matcher name = SEGMENT_NAME.matcher(file.getFileName().toString());
+            name.matches();
+            Segment segment = Segment.open(file, Long.parseLong(name.group(1)), (int) Files.size(file));
+            scan(segment);
+            segments.add(segment);
+            active = segment;
+        }
+        log.info("Opened itinerary store in {} with {} itineraries in {} segment(s)", directory, index.size(), segments.size());
+    }
+
+    private void scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(position + HEADER_BYTES, length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                log.warn("Itinerary store segment {} has a torn record at offset {}, ignoring the rest", segment.path, position);
+                break;
+            }
+            int idLength = buffer.getInt(position + HEADER_BYTES + 8);
+            byte[] id = new byte[idLength];
+            buffer.get(position + HEADER_BYTES + PAYLOAD_PREFIX_BYTES, id);
+            index.put(new String(id, StandardCharsets.UTF_8), new Location(segment, position, length));
+            segment.newestMillis = Math.max(segment.newestMillis, buffer.getLong(position + HEADER_BYTES));
+            position += HEADER_BYTES + length;
+        }
+        segment.writePosition = position;
+        // Anything after the last good record is overwritten by the next append
+        if (position + 4 <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+    }
+
+    private long storedAt(Location location) {
+        return location.segment().buffer.getLong(location.position() + HEADER_BYTES);
+    }
+
+    private void delete(Segment segment, String reason) {
+        segments.remove(segment);
+        try {
+            Files.deleteIfExists(segment.path);
+            log.info("Deleted {} itinerary store segment {}", reason, segment.path.getFileName());
+        } catch (IOException e) {
+            log.warn("Could not delete itinerary store segment {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    public record StoredItinerary(String id, Instant storedAt, ByteBuffer json) {
+    }
+
+    private record Location(Segment segment, int position, int length) {
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long sequence;
+        private final MappedByteBuffer buffer;
+        private volatile int writePosition;
+        private volatile long newestMillis = Long.MIN_VALUE;
+
+        private Segment(Path path, long sequence, MappedByteBuffer buffer) {
+            this.path = path;
+            this.sequence = sequence;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path path, long sequence, int size) throws IOException {
+            // The mapping outlives the channel, so it isn't kept open
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Segment(path, sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+
+        int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+    }
+}
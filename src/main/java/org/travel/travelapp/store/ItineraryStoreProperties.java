@@ -0,0 +1,22 @@
+package org.travel.travelapp.store;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Location, segment size and retention of the embedded itinerary store.
+ */
+@Data
+@ConfigurationProperties(prefix = "travel.store")
+public class ItineraryStoreProperties {
+
+    private Path directory = Path.of("data", "itineraries");
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    private Duration retention = Duration.ofDays(30);
+    // A sealed segment with less than this share of live records is rewritten by compaction
+    private double minLiveRatio = 0.5;
+}
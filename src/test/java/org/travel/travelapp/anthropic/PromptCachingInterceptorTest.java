@@ -0,0 +1,93 @@
+package org.travel.travelapp.anthropic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.anthropic.api.AnthropicApi;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs Spring AI's Anthropic client against a local stub that records request bodies.
+ */
+class PromptCachingInterceptorTest {
+
+    private static final String RESPONSE = """
+            {"id":"msg_1","type":"message","role":"assistant","model":"claude",
+             "content":[{"type":"text","text":"{}"}],"stop_reason":"end_turn",
+             "usage":{"input_tokens":40,"output_tokens":2,"cache_creation_input_tokens":0,"cache_read_input_tokens":2100}}
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/messages", exchange -> {
+            requestBodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] response = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void marksToolsAndSystemPromptCacheableAndCountsCacheReads() throws Exception {
+        AnthropicApi anthropicApi = AnthropicApi.builder()
+                .baseUrl("http://localhost:" + server.getAddress().getPort())
+                .apiKey("test")
+                .restClientBuilder(RestClient.builder().requestInterceptor(
+                        new PromptCachingInterceptor("/v1/messages", objectMapper, meterRegistry)))
+                .build();
+
+        ResponseEntity<AnthropicApi.ChatCompletionResponse> response = anthropicApi.chatCompletionEntity(
+                AnthropicApi.ChatCompletionRequest.builder()
+                        .model("claude-haiku-4-5")
+                        .maxTokens(100)
+                        .system("You are an expert travel advisor.")
+                        .tools(List.of(
+                                new AnthropicApi.Tool("maps_search_places", "Search places", Map.of("type", "object")),
+                                new AnthropicApi.Tool("brave_web_search", "Search the web", Map.of("type", "object"))))
+                        .messages(List.of(new AnthropicApi.AnthropicMessage(
+                                List.of(new AnthropicApi.ContentBlock("Plan a trip to Lisbon")), AnthropicApi.Role.USER)))
+                        .build());
+
+        JsonNode sent = objectMapper.readTree(requestBodies.getFirst());
+        assertEquals("ephemeral", sent.at("/system/0/cache_control/type").asText());
+        assertEquals("You are an expert travel advisor.", sent.at("/system/0/text").asText());
+        assertEquals("ephemeral", sent.at("/tools/1/cache_control/type").asText());
+        assertTrue(sent.at("/tools/0/cache_control").isMissingNode());
+        // The variable part of the prompt stays outside the cached prefix
+        assertFalse(sent.at("/messages/0/content/0").has("cache_control"));
+
+        assertEquals("{}", response.getBody().content().getFirst().text());
+        assertEquals(2100, meterRegistry.get("claude.cache.tokens").tag("type", "read").counter().count());
+    }
+}
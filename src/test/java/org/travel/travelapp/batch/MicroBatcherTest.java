@@ -0,0 +1,66 @@
+package org.travel.travelapp.batch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MicroBatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void makesConcurrentCallsAsOneBatchCall() throws Exception {
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        MicroBatcher<String, String> batcher = new MicroBatcher<>("test", Duration.ofSeconds(5), 4,
+                items -> {
+                    batches.add(items);
+                    return items.stream().map(String::toUpperCase).toList();
+                },
+                item -> "single " + item, meterRegistry);
+
+        // A full batch is sent right away, without waiting out the window
+        List<String> results = callConcurrently(batcher, List.of("a", "b", "c", "d"));
+
+        assertEquals(List.of("A", "B", "C", "D"), results);
+        assertEquals(1, batches.size());
+        assertEquals(1, meterRegistry.counter("batch.calls", "batch", "test", "outcome", "batched").count());
+    }
+
+    @Test
+    void fallsBackToSingleCallsWhenTheBatchIsMalformed() throws Exception {
+        AtomicInteger singleCalls = new AtomicInteger();
+        MicroBatcher<String, String> batcher = new MicroBatcher<>("test", Duration.ofMillis(50), 8,
+                items -> List.of("only one"),
+                item -> {
+                    singleCalls.incrementAndGet();
+                    return "single " + item;
+                }, meterRegistry);
+
+        List<String> results = callConcurrently(batcher, List.of("a", "b", "c"));
+
+        assertEquals(List.of("single a", "single b", "single c"), results);
+        assertEquals(3, singleCalls.get());
+        assertEquals(1, meterRegistry.counter("batch.calls", "batch", "test", "outcome", "fallback").count());
+    }
+
+    private static List<String> callConcurrently(MicroBatcher<String, String> batcher, List<String> items) throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> futures = items.stream().map(item -> executor.submit(() -> batcher.call(item))).toList();
+            List<String> results = new ArrayList<>();
+            for (Future<String> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+    }
+}
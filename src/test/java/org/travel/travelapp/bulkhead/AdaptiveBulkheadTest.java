@@ -0,0 +1,71 @@
+package org.travel.travelapp.bulkhead;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveBulkheadTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    void growsWhileCallsStayCloseToTheBaseline() {
+        AdaptiveBulkhead bulkhead = new AdaptiveBulkhead("claude", 2, 1, 10, 2.0, Duration.ofMillis(50));
+        for (int i = 0; i < 20; i++) {
+            bulkhead.acquire();
+            bulkhead.release("plain", 10 * MS, AdaptiveBulkhead.Outcome.SUCCESS);
+        }
+        assertTrue(bulkhead.currentLimit() > 2, "limit should have grown, was " + bulkhead.currentLimit());
+    }
+
+    @Test
+    void backsOffOnSlowOrFailedCallsButNotOnCancelledOnes() {
+        AdaptiveBulkhead bulkhead = new AdaptiveBulkhead("claude", 10, 1, 10, 2.0, Duration.ofMillis(50));
+        call(bulkhead, "plain", 10, AdaptiveBulkhead.Outcome.SUCCESS);
+
+        // A cancelled hedge loser leaves the limit alone
+        call(bulkhead, "plain", 1, AdaptiveBulkhead.Outcome.CANCELLED);
+        assertEquals(10, bulkhead.currentLimit());
+
+        // A fast failure backs off, but doesn't become the baseline every later call is compared with
+        call(bulkhead, "plain", 1, AdaptiveBulkhead.Outcome.FAILURE);
+        assertEquals(9, bulkhead.currentLimit());
+        call(bulkhead, "plain", 15, AdaptiveBulkhead.Outcome.SUCCESS);
+        assertEquals(9, bulkhead.currentLimit());
+
+        // Tool loops are slower than plain calls without that being congestion
+        call(bulkhead, "tools", 100, AdaptiveBulkhead.Outcome.SUCCESS);
+        call(bulkhead, "tools", 120, AdaptiveBulkhead.Outcome.SUCCESS);
+        assertEquals(9, bulkhead.currentLimit());
+
+        call(bulkhead, "plain", 50, AdaptiveBulkhead.Outcome.SUCCESS);
+        assertEquals(8, bulkhead.currentLimit());
+    }
+
+    @Test
+    void rejectsCallsThatFindNoSlotInTimeAndCancelsInterruptedOnes() {
+        AdaptiveBulkhead bulkhead = new AdaptiveBulkhead("amadeus", 1, 1, 1, 2.0, Duration.ofMillis(20));
+        bulkhead.acquire();
+
+        assertThrows(DownstreamOverloadedException.class, bulkhead::acquire);
+        assertEquals(1, bulkhead.rejectedCount());
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, bulkhead::acquire);
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(1, bulkhead.rejectedCount());
+    }
+
+    private static void call(AdaptiveBulkhead bulkhead, String kind, long latencyMillis, AdaptiveBulkhead.Outcome outcome) {
+        bulkhead.acquire();
+        bulkhead.release(kind, latencyMillis * MS, outcome);
+    }
+}
@@ -0,0 +1,122 @@
+package org.travel.travelapp.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TtlCacheTest {
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        TtlCache<String, String> cache = new TtlCache<>(Duration.ofMinutes(1), 10);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> cache.get("lisbon", () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "plan";
+            }));
+            while (loads.get() == 0) {
+                Thread.onSpinWait();
+            }
+            Future<String> follower = executor.submit(() -> cache.get("lisbon", () -> {
+                loads.incrementAndGet();
+                return "other";
+            }));
+            while (cache.stats().coalesced() == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertEquals("plan", leader.get(5, TimeUnit.SECONDS));
+            assertEquals("plan", follower.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().misses());
+        assertEquals(1, cache.stats().coalesced());
+        assertEquals("plan", cache.get("lisbon", () -> "reloaded"));
+        assertEquals(1, cache.stats().hits());
+    }
+
+    @Test
+    void callersGivingUpDoNotCancelTheSharedLoad() throws Exception {
+        TtlCache<String, String> cache = new TtlCache<>(Duration.ofMinutes(1), 10);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // The caller that starts the load has the shortest time limit
+            assertThrows(TimeoutException.class, () -> cache.get("lisbon", () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "plan";
+            }, value -> true, Duration.ofMillis(50)));
+
+            Future<String> follower = executor.submit(() -> cache.get("lisbon", () -> {
+                loads.incrementAndGet();
+                return "other";
+            }, value -> true, Duration.ofSeconds(5)));
+            while (cache.stats().coalesced() == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertEquals("plan", follower.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals("plan", cache.getIfPresent("lisbon").orElseThrow());
+    }
+
+    @Test
+    void nonCacheableValuesAndFailuresAreNotStored() {
+        TtlCache<String, String> cache = new TtlCache<>(Duration.ofMinutes(1), 10);
+
+        assertEquals("fallback", cache.get("porto", () -> "fallback", value -> false));
+        assertThrows(IllegalStateException.class, () -> cache.get("faro", () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(0, cache.size());
+        assertEquals("plan", cache.get("faro", () -> "plan"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedAndExpiredEntries() throws InterruptedException {
+        TtlCache<String, String> cache = new TtlCache<>(Duration.ofMinutes(1), 2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.getIfPresent("a");
+        cache.put("c", "3");
+
+        assertTrue(cache.getIfPresent("a").isPresent());
+        assertTrue(cache.getIfPresent("b").isEmpty());
+
+        TtlCache<String, String> shortLived = new TtlCache<>(Duration.ofMillis(20), 2);
+        shortLived.put("a", "1");
+        Thread.sleep(40);
+        assertTrue(shortLived.getIfPresent("a").isEmpty());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
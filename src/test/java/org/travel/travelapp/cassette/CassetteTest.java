@@ -0,0 +1,66 @@
+package org.travel.travelapp.cassette;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CassetteTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysRecordingsInTurnAfterReopening() throws Exception {
+        Path path = dir.resolve("test.cassette");
+        try (Cassette cassette = Cassette.open(path, Cassette.Mode.RECORD, Cassette.Latency.NONE, objectMapper)) {
+            cassette.append(Cassette.Entry.of(Cassette.Kind.CHAT, "claude", "user: Lisbon", "first", 1_000));
+            cassette.append(Cassette.Entry.of(Cassette.Kind.CHAT, "claude", "user: Lisbon", "second", 1_000));
+            cassette.append(Cassette.Entry.of(Cassette.Kind.TOOL, "maps_search_places", "{\"query\":\"Lisbon\"}", "[]", 1_000));
+        }
+
+        try (Cassette cassette = Cassette.open(path, Cassette.Mode.REPLAY, Cassette.Latency.NONE, objectMapper)) {
+            assertEquals(3, cassette.size());
+            assertEquals("first", cassette.next(Cassette.Kind.CHAT, "claude", "user: Lisbon").orElseThrow().response());
+            assertEquals("second", cassette.next(Cassette.Kind.CHAT, "claude", "user: Lisbon").orElseThrow().response());
+            assertEquals("first", cassette.next(Cassette.Kind.CHAT, "claude", "user: Lisbon").orElseThrow().response());
+            // Same request text, different kind or source: a separate recording
+            assertTrue(cassette.next(Cassette.Kind.CHAT_STREAM, "claude", "user: Lisbon").isEmpty());
+            assertTrue(cassette.next(Cassette.Kind.CHAT, "gemma", "user: Lisbon").isEmpty());
+            assertEquals("[]", cassette.next(Cassette.Kind.TOOL, "maps_search_places", "{\"query\":\"Lisbon\"}")
+                    .orElseThrow().response());
+        }
+    }
+
+    @Test
+    void reindexesEntriesMissingFromTheIndexAndDropsATornLastEntry() throws Exception {
+        Path path = dir.resolve("test.cassette");
+        try (Cassette cassette = Cassette.open(path, Cassette.Mode.RECORD, Cassette.Latency.NONE, objectMapper)) {
+            cassette.append(Cassette.Entry.of(Cassette.Kind.CHAT, "gemma", "a", "1", 0));
+            cassette.append(Cassette.Entry.of(Cassette.Kind.CHAT, "gemma", "b", "2", 0));
+        }
+        // As if the process died after writing data but before the index, then mid-way through the next entry
+        Files.delete(dir.resolve("test.cassette.idx"));
+        Files.writeString(path, "{\"kind\":\"CHAT\",\"sou", StandardOpenOption.APPEND);
+
+        try (Cassette cassette = Cassette.open(path, Cassette.Mode.RECORD, Cassette.Latency.NONE, objectMapper)) {
+            assertEquals(2, cassette.size());
+            cassette.append(Cassette.Entry.of(Cassette.Kind.CHAT, "gemma", "c", "3", 0));
+        }
+
+        try (Cassette cassette = Cassette.open(path, Cassette.Mode.REPLAY, Cassette.Latency.NONE, objectMapper)) {
+            assertEquals(List.of("1", "2", "3"),
+                    cassette.all(Cassette.Kind.CHAT).stream().map(Cassette.Entry::response).toList());
+            assertEquals("3", cassette.next(Cassette.Kind.CHAT, "gemma", "c").orElseThrow().response());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.travel.travelapp.deadline;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void interruptsTheCallWhenTheDeadlineRunsOut() throws Exception {
+        Hedger hedger = new Hedger(new DeadlineProperties(), meterRegistry);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        assertThrows(DeadlineExceededException.class, () -> hedger.call("claude.summary", Deadline.after(Duration.ofMillis(100)), () -> {
+            try {
+                Thread.sleep(Duration.ofSeconds(10));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "too late";
+        }));
+
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS), "the call should have been interrupted");
+        assertEquals(1, meterRegistry.counter("deadline.exceeded", "stage", "claude.summary").count());
+    }
+
+    @Test
+    void hedgesACallSlowerThanItsRecentPercentile() {
+        DeadlineProperties properties = new DeadlineProperties();
+        properties.getHedge().setEnabled(true);
+        properties.getHedge().setMinSamples(5);
+        properties.getHedge().setMinDelay(Duration.ofMillis(20));
+        Hedger hedger = new Hedger(properties, meterRegistry);
+        Deadline deadline = Deadline.after(Duration.ofSeconds(10));
+        for (int i = 0; i < 5; i++) {
+            assertEquals("fast", hedger.call("claude.flights", deadline, () -> "fast"));
+        }
+
+        // The first attempt stalls; the hedge sent after the minimum delay answers instead
+        AtomicInteger attempts = new AtomicInteger();
+        String result = hedger.call("claude.flights", deadline, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                Thread.sleep(Duration.ofSeconds(10));
+            }
+            return "hedged";
+        });
+
+        assertEquals("hedged", result);
+        assertEquals(1, meterRegistry.counter("hedge.calls", "call", "claude.flights", "outcome", "sent").count());
+        assertEquals(1, meterRegistry.counter("hedge.calls", "call", "claude.flights", "outcome", "hedge").count());
+    }
+}
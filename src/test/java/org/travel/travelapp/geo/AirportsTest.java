@@ -0,0 +1,23 @@
+package org.travel.travelapp.geo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AirportsTest {
+
+    @Test
+    void resolvesCityNamesAndPassesCodesThrough() throws Exception {
+        Airports airports = new Airports();
+
+        assertEquals("LON", airports.code("London, UK"));
+        assertEquals("LIS", airports.code(" lisboa "));
+        assertEquals("NYC", airports.code("New York City"));
+        assertEquals("LHR", airports.code("LHR"));
+        // Unknown cities, and lowercase words that only look like codes, are left to the caller
+        assertNull(airports.code("Tavira, Portugal"));
+        assertNull(airports.code("rio"));
+        assertNull(airports.code(null));
+    }
+}
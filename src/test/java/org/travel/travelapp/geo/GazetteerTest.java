@@ -0,0 +1,32 @@
+package org.travel.travelapp.geo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class GazetteerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void findsBundledCitiesNamedWithTheirCountry() throws Exception {
+        GeoProperties properties = new GeoProperties();
+        properties.setLearnedFile(dir.resolve("learned.tsv"));
+        Gazetteer gazetteer = new Gazetteer(properties, new SimpleMeterRegistry());
+
+        assertNotNull(gazetteer.cityCenter("London, UK"));
+        assertEquals(gazetteer.cityCenter("London"), gazetteer.cityCenter("london ,United Kingdom"));
+
+        // Learned under the city alone, so the next request finds it whichever way it names the country
+        GeoPoint tavira = new GeoPoint(37.1273, -7.6506);
+        gazetteer.learnCity("Tavira, Portugal", tavira);
+        assertEquals(tavira, gazetteer.cityCenter("Tavira, PT"));
+        assertEquals(tavira, new Gazetteer(properties, new SimpleMeterRegistry()).cityCenter("Tavira"));
+    }
+}
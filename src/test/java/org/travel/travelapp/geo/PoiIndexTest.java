@@ -0,0 +1,36 @@
+package org.travel.travelapp.geo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PoiIndexTest {
+
+    private static final GeoPoint LISBON = new GeoPoint(38.7223, -9.1393);
+    private static final GeoPoint SEVILLE = new GeoPoint(37.3891, -5.9845);
+
+    @Test
+    void computesHaversineDistances() {
+        GeoPoint london = new GeoPoint(51.5074, -0.1278);
+        GeoPoint paris = new GeoPoint(48.8566, 2.3522);
+
+        assertEquals(343.6, london.distanceKm(paris), 1.0);
+        assertEquals(0.0, paris.distanceKm(paris), 1e-9);
+    }
+
+    @Test
+    void matchesANameOnlyAroundThePointSearchedFrom() {
+        PoiIndex index = new PoiIndex();
+        GeoPoint lisbonCathedral = new GeoPoint(38.7097, -9.1336);
+        GeoPoint sevilleCathedral = new GeoPoint(37.3858, -5.9932);
+        index.add("Cathedral", lisbonCathedral);
+        index.add("Cathedral", sevilleCathedral);
+        index.add("Musée d'Orsay", new GeoPoint(48.8600, 2.3266));
+
+        assertEquals(lisbonCathedral, index.find("cathedral", LISBON, 40));
+        assertEquals(sevilleCathedral, index.find("CATHEDRAL", SEVILLE, 40));
+        assertEquals(new GeoPoint(48.8600, 2.3266), index.find("musee d orsay", new GeoPoint(48.8566, 2.3522), 40));
+        assertNull(index.find("Cathedral", new GeoPoint(48.8566, 2.3522), 40));
+    }
+}
@@ -0,0 +1,61 @@
+package org.travel.travelapp.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.travel.travelapp.cache.TtlCache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingToolCallbackTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void argumentsInAnotherOrderHitTheCache() {
+        CachingToolCallback callback = cachingCallback(input -> "result " + calls.incrementAndGet());
+
+        assertEquals("result 1", callback.call("{\"origins\":[\"Lisbon\"],\"mode\":\"walking\"}"));
+        assertEquals("result 1", callback.call("{ \"mode\": \"walking\", \"origins\": [\"Lisbon\"] }"));
+        assertEquals("result 2", callback.call("{\"origins\":[\"Porto\"],\"mode\":\"walking\"}"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void failedCallsAreNotCached() {
+        CachingToolCallback callback = cachingCallback(input -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("tool failed");
+            }
+            return "ok";
+        });
+
+        assertThrows(IllegalStateException.class, () -> callback.call("{\"query\":\"Lisbon\"}"));
+        assertEquals("ok", callback.call("{\"query\":\"Lisbon\"}"));
+        assertEquals(2, calls.get());
+    }
+
+    private CachingToolCallback cachingCallback(Function<String, String> tool) {
+        ToolCallback delegate = new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return ToolDefinition.builder().name("maps_distance_matrix").description("").inputSchema("{}").build();
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return tool.apply(toolInput);
+            }
+        };
+        return new CachingToolCallback(delegate, "maps_distance_matrix",
+                new TtlCache<>(Duration.ofMinutes(1), 10), new ObjectMapper(), meterRegistry);
+    }
+}
@@ -0,0 +1,59 @@
+package org.travel.travelapp.mcp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InstrumentedToolCallbackTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void timesEachCallByToolServerAndOutcomeAndTalliesItForTheModelCall() {
+        InstrumentedToolCallback callback = instrumented(input -> {
+            if (input.contains("Atlantis")) {
+                throw new IllegalStateException("No results");
+            }
+            return "{\"places\":[]}";
+        });
+        ToolCallTally tally = new ToolCallTally();
+        ToolContext toolContext = new ToolContext(tally.toolContext());
+
+        assertEquals("{\"places\":[]}", callback.call("{\"query\":\"Lisbon\"}", toolContext));
+        assertThrows(IllegalStateException.class, () -> callback.call("{\"query\":\"Atlantis\"}", toolContext));
+
+        assertEquals(1, meterRegistry.timer("mcp.tool.calls",
+                "tool", "maps_search_places", "server", "google-maps", "outcome", "success").count());
+        assertEquals(1, meterRegistry.timer("mcp.tool.calls",
+                "tool", "maps_search_places", "server", "google-maps", "outcome", "error").count());
+        // Failed calls were still made on the model call's behalf
+        assertEquals(2, tally.count());
+    }
+
+    private InstrumentedToolCallback instrumented(Function<String, String> tool) {
+        ToolCallback delegate = new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return ToolDefinition.builder().name("maps_search_places").description("").inputSchema("{}").build();
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return tool.apply(toolInput);
+            }
+
+            @Override
+            public String call(String toolInput, ToolContext toolContext) {
+                return tool.apply(toolInput);
+            }
+        };
+        return new InstrumentedToolCallback(delegate, "maps_search_places", "google-maps", meterRegistry);
+    }
+}
@@ -0,0 +1,90 @@
+package org.travel.travelapp.mcp;
+
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class McpClientPoolTest {
+
+    private final List<McpSyncClient> started = new CopyOnWriteArrayList<>();
+
+    @Test
+    void callsGoToTheLeastBusyProcess() throws Exception {
+        McpClientPool pool = new McpClientPool("maps", client(), this::newClient, 2);
+        assertEquals(2, pool.size());
+
+        CountDownLatch firstCallRunning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var busy = executor.submit(() -> pool.execute(client -> {
+                firstCallRunning.countDown();
+                await(release);
+                return client;
+            }));
+            assertTrue(firstCallRunning.await(5, TimeUnit.SECONDS));
+
+            McpSyncClient second = pool.execute(client -> client);
+            release.countDown();
+            assertNotSame(busy.get(), second);
+        }
+    }
+
+    @Test
+    void processesFailingTheLivenessCheckAreReplaced() {
+        McpSyncClient initial = client();
+        when(initial.ping()).thenThrow(new IllegalStateException("process exited"));
+        McpClientPool pool = new McpClientPool("maps", initial, this::newClient, 1);
+
+        pool.checkHealth(Duration.ofMinutes(1));
+
+        assertEquals(1, pool.restartCount());
+        assertEquals(1, pool.liveCount());
+        assertEquals(started.getFirst(), pool.execute(client -> client));
+        verify(initial).close();
+    }
+
+    @Test
+    void initializesTheClientSpringAiLeftUninitialized() {
+        McpSyncClient initial = client();
+        when(initial.isInitialized()).thenReturn(false);
+        McpClientPool pool = new McpClientPool("maps", initial, this::newClient, 2);
+
+        verify(initial).initialize();
+        assertEquals(2, pool.liveCount());
+    }
+
+    private McpSyncClient newClient() {
+        McpSyncClient client = client();
+        started.add(client);
+        return client;
+    }
+
+    private static McpSyncClient client() {
+        McpSyncClient client = mock(McpSyncClient.class);
+        when(client.listTools()).thenReturn(new McpSchema.ListToolsResult(List.of(), null));
+        return client;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
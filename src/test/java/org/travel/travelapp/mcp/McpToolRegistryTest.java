@@ -0,0 +1,102 @@
+package org.travel.travelapp.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.ObjectProvider;
+import org.travel.travelapp.bulkhead.BulkheadProperties;
+import org.travel.travelapp.bulkhead.BulkheadRegistry;
+import org.travel.travelapp.cassette.Cassette;
+import org.travel.travelapp.deadline.DeadlineProperties;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class McpToolRegistryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final McpSyncClient maps = client("maps", "maps_search_places", "maps_distance_matrix");
+    private final McpSyncClient amadeus = client("amadeus", "search_flight_offers");
+    private final McpToolRegistry registry;
+
+    @SuppressWarnings("unchecked")
+    McpToolRegistryTest() throws Exception {
+        List<CompletableFuture<McpClientPool>> started = List.of(
+                CompletableFuture.completedFuture(new McpClientPool("maps", maps, null, 1)),
+                CompletableFuture.completedFuture(new McpClientPool("amadeus", amadeus, null, 1)));
+        McpClientPools pools = mock(McpClientPools.class);
+        when(pools.getStartingPools()).thenReturn(started);
+        registry = new McpToolRegistry(pools, new BulkheadRegistry(new BulkheadProperties(), meterRegistry),
+                new McpCacheProperties(), new DeadlineProperties(), new ObjectMapper(), meterRegistry,
+                mock(ObjectProvider.class), Duration.ofSeconds(5));
+        registry.getDiscovery().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void selectsToolsByToolOrServerName() {
+        assertEquals(Set.of("travel_maps_maps_search_places", "travel_amadeus_search_flight_offers"),
+                names(registry.getToolCallbacks(List.of("maps_search_places", "amadeus"))));
+        // A step that needs no tools gets none
+        assertEquals(Set.of(), names(registry.getToolCallbacks(List.of())));
+        assertEquals(3, registry.getToolCallbacks(null).length);
+    }
+
+    @Test
+    void aToolNoServerExposesLeavesTheOthersOnceDiscoveryIsOver() {
+        long started = System.nanoTime();
+
+        assertEquals(Set.of("travel_maps_maps_distance_matrix"),
+                names(registry.getToolCallbacks(List.of("maps_distance_matrix", "no_such_tool"))));
+        // Discovery is over, so there is nothing left to wait for
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void aChangedToolListIsPickedUp() throws Exception {
+        when(amadeus.listTools()).thenReturn(tools("search_flight_offers", "search_hotel_offers"));
+
+        registry.onToolsChanged(new McpToolsChangedEvent("amadeus"));
+
+        long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.getRegisteredToolCallbacks().length < 4 && System.nanoTime() < giveUp) {
+            Thread.sleep(10);
+        }
+        assertEquals(Set.of("travel_amadeus_search_flight_offers", "travel_amadeus_search_hotel_offers"),
+                names(registry.getToolCallbacks(List.of("amadeus"))));
+        assertTrue(registry.find("search_hotel_offers").isPresent());
+    }
+
+    // Callbacks carry the server-prefixed names the model sees, while the registry is asked by the servers' tool names
+    private static Set<String> names(ToolCallback[] callbacks) {
+        return Arrays.stream(callbacks)
+                .map(callback -> callback.getToolDefinition().name())
+                .collect(Collectors.toSet());
+    }
+
+    private static McpSyncClient client(String server, String... toolNames) {
+        McpSyncClient client = mock(McpSyncClient.class);
+        when(client.isInitialized()).thenReturn(true);
+        when(client.getClientInfo()).thenReturn(new McpSchema.Implementation("travel - " + server, "1.0"));
+        when(client.listTools()).thenReturn(tools(toolNames));
+        return client;
+    }
+
+    private static McpSchema.ListToolsResult tools(String... names) {
+        return new McpSchema.ListToolsResult(Arrays.stream(names)
+                .map(name -> new McpSchema.Tool(name, "Fake " + name, "{\"type\":\"object\"}"))
+                .toList(), null);
+    }
+}
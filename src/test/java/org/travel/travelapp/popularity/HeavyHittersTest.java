@@ -0,0 +1,60 @@
+package org.travel.travelapp.popularity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHittersTest {
+
+    @Test
+    void keepsTheMostFrequentKeysAmongManyRareOnes() {
+        HeavyHitters<String> heavyHitters = new HeavyHitters<>(3, 4, 1024);
+        for (int round = 0; round < 100; round++) {
+            heavyHitters.record("LIS-BCN");
+            if (round % 2 == 0) {
+                heavyHitters.record("JFK-LHR");
+            }
+            if (round % 4 == 0) {
+                heavyHitters.record("SFO-NRT");
+            }
+            // A long tail of routes requested once each
+            heavyHitters.record("tail-" + round);
+        }
+
+        List<String> top = heavyHitters.top().stream().map(Map.Entry::getKey).toList();
+        assertEquals(List.of("LIS-BCN", "JFK-LHR", "SFO-NRT"), top);
+        assertEquals(100, heavyHitters.top().getFirst().getValue());
+        assertFalse(heavyHitters.contains("tail-99"));
+    }
+
+    @Test
+    void decayForgetsKeysThatStoppedBeingRequested() {
+        HeavyHitters<String> heavyHitters = new HeavyHitters<>(2, 4, 1024);
+        heavyHitters.record("once");
+        for (int i = 0; i < 8; i++) {
+            heavyHitters.record("often");
+        }
+
+        heavyHitters.decay();
+
+        assertFalse(heavyHitters.contains("once"));
+        assertTrue(heavyHitters.contains("often"));
+        assertEquals(4, heavyHitters.top().getFirst().getValue());
+    }
+
+    @Test
+    void sketchNeverUnderestimates() {
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("key-" + (i % 200));
+        }
+        for (int i = 0; i < 200; i++) {
+            assertTrue(sketch.estimate("key-" + i) >= 5);
+        }
+    }
+}
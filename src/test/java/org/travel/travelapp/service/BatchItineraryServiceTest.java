@@ -0,0 +1,123 @@
+package org.travel.travelapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.travel.travelapp.cache.TtlCache;
+import org.travel.travelapp.config.RankingProperties;
+import org.travel.travelapp.deadline.Deadline;
+import org.travel.travelapp.dto.BatchItineraryResponse;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.ItineraryResponse;
+import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.store.ItineraryStore;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchItineraryServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ranksAndStoresEveryPlannedItinerary() throws Exception {
+        ItinerarySanitizerService sanitizer = mock(ItinerarySanitizerService.class);
+        when(sanitizer.sanitizeDescription(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        TripPlannerService planner = mock(TripPlannerService.class);
+        when(planner.mergeSections(any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> new TripPlan("Summary", new ArrayList<>(), new ArrayList<>(List.of(
+                        new TripPlan.Flight("TAP", "EUR 240", "08:00", "10:40", "2h 40m", 0, "Economy"),
+                        new TripPlan.Flight("easyJet", "EUR 89", "06:15", "08:55", "2h 40m", 0, "Economy"))),
+                        new ArrayList<>()));
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        TtlCache<TripPlanKey, TripPlan> cache = new TtlCache<>(Duration.ofMinutes(1), 10);
+
+        try (ItineraryStore store = new ItineraryStore(dir, 1 << 16, Duration.ofDays(1), 0.5,
+                Clock.systemUTC(), new SimpleMeterRegistry())) {
+            BatchItineraryService service = new BatchItineraryService(sanitizer, planner, cache, store, objectMapper,
+                    new TripPlanRanker(new RankingProperties(), new SimpleMeterRegistry()));
+
+            BatchItineraryResponse batch = service.createItineraries(List.of(request("Lisbon"), request("Porto")),
+                    Deadline.after(Duration.ofSeconds(5)));
+
+            assertEquals(2, batch.getResults().size());
+            for (BatchItineraryResponse.Result result : batch.getResults()) {
+                ItineraryResponse response = result.getItinerary();
+                ItineraryStore.StoredItinerary stored = store.find(response.getId()).orElseThrow();
+                byte[] json = new byte[stored.json().remaining()];
+                stored.json().get(json);
+                ItineraryResponse read = objectMapper.readValue(json, ItineraryResponse.class);
+                assertEquals(response.getTo(), read.getTo());
+                assertEquals("Summary", read.getTripPlan().getSummary());
+
+                // Stored, cached and returned plans are all ranked, cheapest flight first
+                assertEquals(List.of("easyJet", "TAP"), airlines(read.getTripPlan()));
+                assertEquals(List.of("easyJet", "TAP"), airlines(response.getTripPlan()));
+                ItineraryRequest request = request(response.getTo());
+                assertEquals(List.of("easyJet", "TAP"),
+                        airlines(cache.getIfPresent(TripPlanKey.of(request, "Museums")).orElseThrow()));
+            }
+        }
+    }
+
+    @Test
+    void servesCachedPlansWithoutCallingThePlanner() throws Exception {
+        ItinerarySanitizerService sanitizer = mock(ItinerarySanitizerService.class);
+        when(sanitizer.sanitizeDescription(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        TripPlannerService planner = mock(TripPlannerService.class);
+        when(planner.mergeSections(any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> new TripPlan("Planned", new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        TtlCache<TripPlanKey, TripPlan> cache = new TtlCache<>(Duration.ofMinutes(1), 10);
+        cache.put(TripPlanKey.of(request("Lisbon"), "Museums"),
+                new TripPlan("Cached", new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+
+        try (ItineraryStore store = new ItineraryStore(dir, 1 << 16, Duration.ofDays(1), 0.5,
+                Clock.systemUTC(), new SimpleMeterRegistry())) {
+            BatchItineraryService service = new BatchItineraryService(sanitizer, planner, cache, store, objectMapper,
+                    new TripPlanRanker(new RankingProperties(), new SimpleMeterRegistry()));
+
+            BatchItineraryResponse batch = service.createItineraries(List.of(request("Lisbon"), request("Porto")),
+                    Deadline.after(Duration.ofSeconds(5)));
+
+            assertEquals("Cached", batch.getResults().get(0).getItinerary().getTripPlan().getSummary());
+            assertEquals("Planned", batch.getResults().get(1).getItinerary().getTripPlan().getSummary());
+            verify(planner).researchAttractions(argThat(request -> "Porto".equals(request.getTo())), any());
+            verify(planner, times(1)).researchAttractions(any(), any());
+            BatchItineraryResponse.Stats stats = batch.getStats();
+            assertEquals(1, stats.getCachedPlans());
+            assertEquals(6, stats.getSectionCallsWithoutSharing());
+            assertEquals(3, stats.getSectionCallsSaved());
+        }
+    }
+
+    private static List<String> airlines(TripPlan tripPlan) {
+        return tripPlan.getFlights().stream().map(TripPlan.Flight::getAirline).toList();
+    }
+
+    private static ItineraryRequest request(String to) {
+        ItineraryRequest request = new ItineraryRequest();
+        request.setFrom("LHR");
+        request.setTo(to);
+        request.setStartDate(LocalDate.of(2026, 11, 16));
+        request.setEndDate(LocalDate.of(2026, 11, 20));
+        request.setNumberOfAdults(2);
+        request.setDescription("Museums");
+        return request;
+    }
+}
@@ -0,0 +1,135 @@
+package org.travel.travelapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.travel.travelapp.controller.ItineraryController;
+import org.travel.travelapp.dto.ItineraryJob;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.ItineraryResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ItineraryJobServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ItineraryService itineraryService = mock(ItineraryService.class);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<ItineraryJobService> services = new ArrayList<>();
+
+    ItineraryJobServiceTest() {
+        when(itineraryService.createItinerary(any(), anyString())).thenAnswer(invocation -> {
+            ItineraryRequest request = invocation.getArgument(0);
+            if ("Nowhere".equals(request.getTo())) {
+                throw new IllegalStateException("No such place");
+            }
+            started.countDown();
+            release.await();
+            ItineraryResponse response = new ItineraryResponse();
+            response.setId(invocation.getArgument(1));
+            return response;
+        });
+    }
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        services.forEach(ItineraryJobService::shutdown);
+    }
+
+    @Test
+    void jobsGoFromPendingThroughRunningToCompletedOrFailed() throws Exception {
+        ItineraryJobService jobs = service(1, 10, Duration.ofMinutes(30));
+
+        ItineraryJob job = jobs.submit(request("Lisbon"));
+        assertEquals(ItineraryJob.Status.PENDING, job.getStatus());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(ItineraryJob.Status.RUNNING, jobs.find(job.getId()).orElseThrow().getStatus());
+
+        release.countDown();
+        ItineraryJob completed = await(jobs, job.getId(), ItineraryJob.Status.COMPLETED);
+        assertEquals(job.getId(), completed.getItinerary().getId());
+
+        ItineraryJob failed = await(jobs, jobs.submit(request("Nowhere")).getId(), ItineraryJob.Status.FAILED);
+        assertEquals("No such place", failed.getError());
+    }
+
+    @Test
+    void aFullQueueRejectsTheJobWithATooManyRequestsAndRetryAfter() throws Exception {
+        ItineraryJobService jobs = service(1, 1, Duration.ofMinutes(30));
+        jobs.submit(request("Lisbon"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ItineraryJob queued = jobs.submit(request("Lisbon"));
+
+        JobQueueFullException rejected = assertThrows(JobQueueFullException.class, () -> jobs.submit(request("Lisbon")));
+
+        assertEquals(Duration.ofSeconds(5), rejected.getRetryAfter());
+        assertEquals(1, meterRegistry.counter("itinerary.jobs.rejected").count());
+        assertEquals(ItineraryJob.Status.PENDING, jobs.find(queued.getId()).orElseThrow().getStatus());
+
+        ResponseEntity<Map<String, String>> response = new ItineraryController(null, jobs, null, null, null, null, null)
+                .handleQueueFull(rejected);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("5", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void finishedJobsAreEvictedAfterTheRetention() throws Exception {
+        ItineraryJobService kept = service(1, 10, Duration.ofMinutes(30));
+        ItineraryJobService evicted = service(1, 10, Duration.ZERO);
+        release.countDown();
+        String keptId = await(kept, kept.submit(request("Lisbon")).getId(), ItineraryJob.Status.COMPLETED).getId();
+        String evictedId = await(evicted, evicted.submit(request("Lisbon")).getId(), ItineraryJob.Status.COMPLETED).getId();
+        Thread.sleep(10);
+
+        kept.evictExpiredJobs();
+        evicted.evictExpiredJobs();
+
+        assertTrue(kept.find(keptId).isPresent());
+        assertTrue(evicted.find(evictedId).isEmpty());
+    }
+
+    private ItineraryJobService service(int workers, int queueCapacity, Duration retention) {
+        ItineraryJobService service = new ItineraryJobService(itineraryService, meterRegistry, workers, queueCapacity,
+                retention, Duration.ofSeconds(5));
+        services.add(service);
+        return service;
+    }
+
+    private static ItineraryJob await(ItineraryJobService jobs, String id, ItineraryJob.Status status)
+            throws InterruptedException {
+        long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < giveUp) {
+            ItineraryJob job = jobs.find(id).orElseThrow();
+            if (job.getStatus() == status) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Job " + id + " never became " + status);
+    }
+
+    private static ItineraryRequest request(String to) {
+        ItineraryRequest request = new ItineraryRequest();
+        request.setFrom("LHR");
+        request.setTo(to);
+        return request;
+    }
+}
@@ -0,0 +1,32 @@
+package org.travel.travelapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.travel.travelapp.batch.MalformedBatchException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ItinerarySanitizerServiceTest {
+
+    @Test
+    void demultiplexesOnlyCompleteNumberedAnswers() {
+        String answer = """
+                <<<1>>>
+                Museums and tapas in Madrid
+                <<<END 1>>>
+
+                <<<2>>>
+                <<<END 2>>>
+                """;
+        assertEquals(List.of("Museums and tapas in Madrid", ""), ItinerarySanitizerService.demultiplex(answer, 2));
+
+        // Missing, reordered or chatty answers are rejected as a whole
+        assertThrows(MalformedBatchException.class, () -> ItinerarySanitizerService.demultiplex(answer, 3));
+        assertThrows(MalformedBatchException.class,
+                () -> ItinerarySanitizerService.demultiplex("<<<2>>>b<<<END 2>>><<<1>>>a<<<END 1>>>", 2));
+        assertThrows(MalformedBatchException.class,
+                () -> ItinerarySanitizerService.demultiplex("Here you go:\n" + answer, 2));
+    }
+}
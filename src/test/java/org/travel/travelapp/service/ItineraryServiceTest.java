@@ -0,0 +1,140 @@
+package org.travel.travelapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.travel.travelapp.config.RankingProperties;
+import org.travel.travelapp.deadline.Deadline;
+import org.travel.travelapp.deadline.DeadlineProperties;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.ItineraryResponse;
+import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.store.ItineraryStore;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItineraryServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 11, 16);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void editsOnlyInvalidateTheSectionsThatDependOnThem() {
+        ItineraryResponse previous = stored(new ArrayList<>());
+
+        assertEquals(EnumSet.noneOf(PlanSection.class),
+                ItineraryService.changedSections(previous, request("Lisbon", START, 2, "Museums"), " museums "));
+        assertEquals(EnumSet.of(PlanSection.FLIGHTS),
+                ItineraryService.changedSections(previous, request("Lisbon", START.plusDays(1), 2, "Museums"), "Museums"));
+        assertEquals(EnumSet.of(PlanSection.FLIGHTS),
+                ItineraryService.changedSections(previous, request("Lisbon", START, 3, "Museums"), "Museums"));
+        assertEquals(EnumSet.of(PlanSection.SUMMARY),
+                ItineraryService.changedSections(previous, request("Lisbon", START, 2, "Food"), "Food"));
+        assertEquals(EnumSet.allOf(PlanSection.class),
+                ItineraryService.changedSections(previous, request("Porto", START, 2, "Museums"), "Museums"));
+    }
+
+    @Test
+    void sectionsThatDegradedLastTimeAreRegenerated() {
+        ItineraryResponse previous = stored(new ArrayList<>(List.of("flights")));
+
+        assertEquals(EnumSet.of(PlanSection.FLIGHTS, PlanSection.SUMMARY),
+                ItineraryService.changedSections(previous, request("Lisbon", START, 2, "Food"), "Food"));
+    }
+
+    @Test
+    void aSanitizerThatRunsOutOfTimeKeepsTheStoredDescription() throws Exception {
+        ItinerarySanitizerService sanitizer = mock(ItinerarySanitizerService.class);
+        when(sanitizer.sanitizeDescription(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return "late";
+        });
+        TripPlannerService planner = mock(TripPlannerService.class);
+        when(planner.replanSections(any(), any(), any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(2));
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        try (ItineraryStore store = new ItineraryStore(dir, 1 << 16, Duration.ofDays(1), 0.5, Clock.systemUTC(), meterRegistry)) {
+            ItineraryService service = new ItineraryService(sanitizer, planner,
+                    new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor()), meterRegistry, store,
+                    objectMapper, new DeadlineProperties(), new TripPlanRanker(new RankingProperties(), meterRegistry));
+            store.append("id-1", objectMapper.writeValueAsBytes(stored(new ArrayList<>())));
+
+            // Unsanitized, the description would always differ from the stored one
+            ItineraryResponse updated = service.replanItinerary("id-1",
+                    request("Lisbon", START.plusDays(1), 2, "  museums, please! "), Deadline.after(Duration.ofMillis(500)))
+                    .orElseThrow();
+
+            assertEquals("Museums", updated.getDescription());
+            verify(planner).replanSections(any(), eq("Museums"), any(), eq(EnumSet.of(PlanSection.FLIGHTS)), any());
+            assertEquals(1, meterRegistry.counter("deadline.exceeded", "stage", "sanitize").count());
+        }
+    }
+
+    @Test
+    void anEditThatAffectsNoSectionIsStoredWithThePlanAsItWas() throws Exception {
+        ItinerarySanitizerService sanitizer = mock(ItinerarySanitizerService.class);
+        when(sanitizer.sanitizeDescription(anyString())).thenReturn("Museums");
+        TripPlannerService planner = mock(TripPlannerService.class);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        try (ItineraryStore store = new ItineraryStore(dir, 1 << 16, Duration.ofDays(1), 0.5, Clock.systemUTC(), meterRegistry)) {
+            ItineraryService service = new ItineraryService(sanitizer, planner,
+                    new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor()), meterRegistry, store,
+                    objectMapper, new DeadlineProperties(), new TripPlanRanker(new RankingProperties(), meterRegistry));
+            store.append("id-1", objectMapper.writeValueAsBytes(stored(new ArrayList<>())));
+
+            // Flights are searched one way, on the start date only, so a later return date changes no section
+            ItineraryRequest laterReturn = request("Lisbon", START, 2, "Museums");
+            laterReturn.setEndDate(START.plusDays(7));
+            service.replanItinerary("id-1", laterReturn, Deadline.after(Duration.ofSeconds(5))).orElseThrow();
+
+            ItineraryStore.StoredItinerary entry = store.find("id-1").orElseThrow();
+            byte[] json = new byte[entry.json().remaining()];
+            entry.json().get(json);
+            ItineraryResponse updated = objectMapper.readValue(json, ItineraryResponse.class);
+            assertEquals(START.plusDays(7), updated.getEndDate());
+            assertEquals("UPDATED", updated.getStatus());
+            assertEquals("Summary", updated.getTripPlan().getSummary());
+            verify(planner, never()).replanSections(any(), any(), any(), any(), any());
+        }
+    }
+
+    private static ItineraryResponse stored(List<String> degradedSections) {
+        ItineraryResponse response = ItineraryService.newResponse("id-1", request("Lisbon", START, 2, "Museums"), "Museums");
+        response.setTripPlan(new TripPlan("Summary", new ArrayList<>(), new ArrayList<>(), degradedSections));
+        return response;
+    }
+
+    private static ItineraryRequest request(String to, LocalDate startDate, int adults, String description) {
+        ItineraryRequest request = new ItineraryRequest();
+        request.setFrom("LHR");
+        request.setTo(to);
+        request.setStartDate(startDate);
+        request.setEndDate(startDate.plusDays(4));
+        request.setNumberOfAdults(adults);
+        request.setDescription(description);
+        return request;
+    }
+}
@@ -0,0 +1,83 @@
+package org.travel.travelapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.travel.travelapp.config.PlannerProperties;
+import org.travel.travelapp.deadline.Deadline;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.geo.Airports;
+import org.travel.travelapp.geo.GeoProperties;
+import org.travel.travelapp.mcp.McpToolRegistry;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class McpToolOrchestratorTest {
+
+    private static final String FLIGHT_SEARCH = "search_flight_offers";
+
+    private final McpToolRegistry registry = mock(McpToolRegistry.class);
+    private final McpToolOrchestrator orchestrator;
+
+    McpToolOrchestratorTest() throws Exception {
+        GeoProperties geoProperties = new GeoProperties();
+        geoProperties.setEnabled(false);
+        orchestrator = new McpToolOrchestrator(registry, new PlannerProperties(), new ObjectMapper(),
+                new SimpleMeterRegistry(), null, geoProperties, new Airports());
+        when(registry.callTool(eq("maps_search_places"), anyMap(), any())).thenReturn("{\"places\":[]}");
+        when(registry.callTool(eq("brave_web_search"), anyMap(), any())).thenReturn("Research");
+        when(registry.callTool(eq(FLIGHT_SEARCH), anyMap(), any())).thenReturn("[{\"price\":\"120\"}]");
+    }
+
+    @Test
+    void searchesFlightsBetweenTheCitiesIataCodes() {
+        ItineraryRequest request = request("London, UK", "Lisboa");
+
+        assertTrue(orchestrator.canSearchFlights(request));
+        McpToolOrchestrator.ToolResults toolResults = orchestrator.collect(request, Deadline.none());
+
+        assertEquals("[{\"price\":\"120\"}]", toolResults.flightOffers());
+        verify(registry).callTool(eq(FLIGHT_SEARCH), eq(Map.of(
+                "originLocationCode", "LON",
+                "destinationLocationCode", "LIS",
+                "departureDate", "2026-05-01",
+                "adults", 2,
+                "max", 5)), any());
+    }
+
+    @Test
+    void skipsTheFlightSearchForCitiesWithoutACode() {
+        ItineraryRequest request = request("London", "Tavira, Portugal");
+        when(registry.isCached(eq("maps_search_places"), anyMap())).thenReturn(true);
+
+        assertFalse(orchestrator.canSearchFlights(request));
+        assertNull(orchestrator.collect(request, Deadline.none()).flightOffers());
+        assertNull(orchestrator.searchFlights(request, Deadline.none()));
+        // Only the place search has to be cached, the flight search is never made
+        assertTrue(orchestrator.isCached(request));
+        verify(registry, never()).callTool(eq(FLIGHT_SEARCH), anyMap(), any());
+    }
+
+    private static ItineraryRequest request(String from, String to) {
+        ItineraryRequest request = new ItineraryRequest();
+        request.setFrom(from);
+        request.setTo(to);
+        request.setStartDate(LocalDate.of(2026, 5, 1));
+        request.setEndDate(LocalDate.of(2026, 5, 4));
+        request.setNumberOfAdults(2);
+        return request;
+    }
+}
@@ -0,0 +1,67 @@
+package org.travel.travelapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.travel.travelapp.config.RankingProperties;
+import org.travel.travelapp.dto.TripPlan;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TripPlanRankerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TripPlanRanker ranker = new TripPlanRanker(new RankingProperties(), meterRegistry);
+
+    @Test
+    void ranksFlightsByParsedPriceAndDropsDuplicates() {
+        TripPlan tripPlan = new TripPlan("Lisbon", new ArrayList<>(), List.of(
+                new TripPlan.Flight("TAP", "EUR 1,240.00", "08:00", "10:40", "2h 40m", 0, "Economy"),
+                new TripPlan.Flight("easyJet", "€89.99", "06:15", "08:55", "2h 40m", 0, "Economy"),
+                new TripPlan.Flight("TAP", "EUR 199", "08:00", "10:40", "2h 40m", 0, "Economy"),
+                new TripPlan.Flight("Iberia", "Varies", "12:00", "17:30", "PT5H30M", 1, "Economy")), new ArrayList<>());
+
+        TripPlan ranked = ranker.rank(tripPlan);
+
+        assertEquals(List.of("easyJet", "TAP", "Iberia"), ranked.getFlights().stream().map(TripPlan.Flight::getAirline).toList());
+        TripPlan.Flight tap = ranked.getFlights().get(1);
+        assertEquals(new BigDecimal("199"), tap.getPriceAmount());
+        assertEquals("EUR", tap.getCurrency());
+        assertEquals(160, tap.getDurationMinutes());
+        assertEquals(330, ranked.getFlights().get(2).getDurationMinutes());
+        assertEquals(1, meterRegistry.counter("trip.plan.ranking.dropped", "section", "flights", "reason", "duplicate").count());
+
+        // A request can re-rank and narrow its own copy
+        TripPlan byDuration = ranker.rank(ranked, new TripPlanRanker.Ranking(
+                RankingProperties.FlightSort.DURATION, 1, RankingProperties.AttractionSort.NAME, 10));
+        assertEquals(List.of("easyJet"), byDuration.getFlights().stream().map(TripPlan.Flight::getAirline).toList());
+    }
+
+    @Test
+    void writesDisplayFieldsFromTypedOnesAndSortsAttractionsByDistance() {
+        TripPlan.Flight typed = new TripPlan.Flight();
+        typed.setAirline("TAP");
+        typed.setPriceAmount(new BigDecimal("215.4"));
+        typed.setCurrency("EUR");
+        typed.setDepartureAt(LocalDateTime.parse("2025-06-01T08:30:00"));
+        typed.setDurationMinutes(155);
+        TripPlan tripPlan = new TripPlan("Lisbon", List.of(
+                new TripPlan.Attraction("Belém Tower", null, 6.4, null),
+                new TripPlan.Attraction("Santa Justa Lift", null, 0.3, null),
+                new TripPlan.Attraction("belém  tower", null, 6.4, null),
+                new TripPlan.Attraction("LX Factory", null, null, null)), List.of(typed), new ArrayList<>());
+
+        TripPlan ranked = ranker.rank(tripPlan);
+
+        TripPlan.Flight flight = ranked.getFlights().getFirst();
+        assertEquals("EUR 215.40", flight.getPrice());
+        assertEquals("08:30", flight.getDepartureTime());
+        assertEquals("2h 35m", flight.getDuration());
+        assertEquals(List.of("Santa Justa Lift", "Belém Tower", "LX Factory"),
+                ranked.getAttractions().stream().map(TripPlan.Attraction::getName).toList());
+    }
+}
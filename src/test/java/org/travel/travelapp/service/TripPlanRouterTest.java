@@ -0,0 +1,74 @@
+package org.travel.travelapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.travel.travelapp.config.RouterProperties;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.TripPlan;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TripPlanRouterTest {
+
+    private final RouterProperties properties = new RouterProperties();
+    private final TripPlanRouter router = new TripPlanRouter(properties, null, new SimpleMeterRegistry());
+
+    @Test
+    void shortPlainTripsScoreAsSimpleAndLongerOnesOnceTheirToolDataIsCached() {
+        ItineraryRequest weekend = request(3, "Museums and food");
+        ItineraryRequest week = request(7, "Museums, local food and a relaxed pace");
+        ItineraryRequest detailed = request(12, "Two weeks exploring the coast by train, with a cooking class, "
+                + "a wine tasting in the hills, kayaking, a day trip to the islands and some nights out in the old town");
+
+        // Claude's tool calls never fill the caches the score checks, so short trips must go local without them
+        assertTrue(router.score(weekend, false) <= properties.getMaxLocalScore());
+        assertTrue(router.score(week, false) > properties.getMaxLocalScore());
+        assertTrue(router.score(week, true) <= properties.getMaxLocalScore());
+        assertTrue(router.score(detailed, true) > properties.getMaxLocalScore());
+    }
+
+    @Test
+    void rejectsLocalPlansThatInventAttractionsOrDropFlights() {
+        McpToolOrchestrator.ToolResults toolResults = new McpToolOrchestrator.ToolResults(
+                List.of(attraction("Belém Tower"), attraction("Jerónimos Monastery")), "", "[{\"price\":\"120\"}]");
+
+        TripPlan valid = plan("A sunny weekend.", List.of(attraction("belém tower")), List.of(flight()));
+        TripPlan invented = plan("A sunny weekend.", List.of(attraction("Lisbon Eye")), List.of(flight()));
+        TripPlan noFlights = plan("A sunny weekend.", List.of(attraction("Belém Tower")), List.of());
+        TripPlan noSummary = plan(" ", List.of(attraction("Belém Tower")), List.of(flight()));
+
+        assertNull(router.validate(valid, toolResults));
+        assertEquals("ungrounded", router.validate(invented, toolResults));
+        assertEquals("flights", router.validate(noFlights, toolResults));
+        assertEquals("summary", router.validate(noSummary, toolResults));
+    }
+
+    private static ItineraryRequest request(int days, String description) {
+        ItineraryRequest request = new ItineraryRequest();
+        request.setFrom("London");
+        request.setTo("Lisbon");
+        request.setStartDate(LocalDate.of(2026, 5, 1));
+        request.setEndDate(LocalDate.of(2026, 5, 1).plusDays(days));
+        request.setNumberOfAdults(2);
+        request.setDescription(description);
+        return request;
+    }
+
+    private static TripPlan plan(String summary, List<TripPlan.Attraction> attractions, List<TripPlan.Flight> flights) {
+        return new TripPlan(summary, new ArrayList<>(attractions), new ArrayList<>(flights), new ArrayList<>());
+    }
+
+    private static TripPlan.Attraction attraction(String name) {
+        return new TripPlan.Attraction(name, null, 1.0, null);
+    }
+
+    private static TripPlan.Flight flight() {
+        return new TripPlan.Flight("TAP", "$120", "08:00", "10:40", "2h 40m", 0, "Economy");
+    }
+}
@@ -0,0 +1,56 @@
+package org.travel.travelapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.dto.TripPlanEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TripPlanStreamParserTest {
+
+    private static final String RESPONSE = """
+            ```json
+            {
+              "summary": "Three sunny days in Lisbon.",
+              "attractions": [
+                {"name": "Belém Tower", "description": "Fortress", "distanceFromCenter": 6.5, "address": "Belém"},
+                {"name": "Alfama", "description": "Old quarter {with braces}", "distanceFromCenter": 1.2, "address": "Alfama"}
+              ],
+              "flights": [
+                {"airline": "TAP", "price": "$120", "departureTime": "08:00", "arrivalTime": "10:30",
+                 "duration": "2h 30m", "stops": 0, "bookingClass": "Economy"}
+              ]
+            }
+            ```""";
+
+    @Test
+    void emitsEachObjectAsSoonAsItCloses() {
+        TripPlanStreamParser parser = new TripPlanStreamParser(new ObjectMapper());
+        List<TripPlanEvent> events = new ArrayList<>();
+        int flightsOffset = RESPONSE.indexOf("\"flights\"");
+        int eventsWhenFlightsStart = -1;
+
+        // Feed in small chunks so objects straddle chunk boundaries
+        for (int i = 0; i < RESPONSE.length(); i += 7) {
+            String chunk = RESPONSE.substring(i, Math.min(RESPONSE.length(), i + 7));
+            if (i + chunk.length() > flightsOffset && eventsWhenFlightsStart < 0) {
+                eventsWhenFlightsStart = events.size();
+            }
+            events.addAll(parser.feed(chunk));
+        }
+        TripPlan tripPlan = parser.finish();
+
+        assertEquals(List.of("summary", "attraction", "attraction", "flight"),
+                events.stream().map(TripPlanEvent::type).toList());
+        assertEquals(3, eventsWhenFlightsStart, "summary and attractions must be emitted before flights arrive");
+        assertTrue(parser.isComplete());
+        assertEquals("Three sunny days in Lisbon.", tripPlan.getSummary());
+        assertEquals("Old quarter {with braces}", tripPlan.getAttractions().get(1).getDescription());
+        assertEquals("TAP", tripPlan.getFlights().get(0).getAirline());
+    }
+}
@@ -0,0 +1,163 @@
+package org.travel.travelapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tool.ToolCallback;
+import org.travel.travelapp.cache.TtlCache;
+import org.travel.travelapp.config.PlannerProperties;
+import org.travel.travelapp.config.RankingProperties;
+import org.travel.travelapp.config.RouterProperties;
+import org.travel.travelapp.deadline.Deadline;
+import org.travel.travelapp.deadline.DeadlineProperties;
+import org.travel.travelapp.deadline.Hedger;
+import org.travel.travelapp.dto.ItineraryRequest;
+import org.travel.travelapp.dto.TripPlan;
+import org.travel.travelapp.mcp.McpToolRegistry;
+import org.travel.travelapp.popularity.HotRouteKey;
+import org.travel.travelapp.popularity.HotRouteProperties;
+import org.travel.travelapp.popularity.HotRouteTracker;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TripPlannerServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> claudePrompts = new CopyOnWriteArrayList<>();
+    private final HotRouteTracker hotRouteTracker = new HotRouteTracker(new HotRouteProperties(), meterRegistry);
+    private final TtlCache<TripPlanKey, TripPlan> tripPlanCache = new TtlCache<>(Duration.ofMinutes(1), 10);
+    private final McpToolRegistry mcpToolRegistry = mock(McpToolRegistry.class);
+    private final PlannerProperties plannerProperties = new PlannerProperties();
+    private final TripPlannerService service;
+    // What Claude answers, or null to fail the call
+    private volatile String claudeAnswer = "{\"summary\": \"Written for the description.\"}";
+
+    TripPlannerServiceTest() {
+        ChatModel claude = this::answer;
+        when(mcpToolRegistry.getToolCallbacks(any(), any())).thenReturn(new ToolCallback[0]);
+        when(mcpToolRegistry.getRegisteredToolCallbacks()).thenReturn(new ToolCallback[0]);
+        service = new TripPlannerService(ChatClient.builder(claude).build(), null, new ObjectMapper(),
+                tripPlanCache, null, mcpToolRegistry, plannerProperties, meterRegistry, hotRouteTracker,
+                new Hedger(new DeadlineProperties(), meterRegistry), null, new RouterProperties(),
+                new TripPlanRanker(new RankingProperties(), meterRegistry), new DeadlineProperties());
+    }
+
+    @Test
+    void precomputedPlansKeepTheirSectionsButGetASummaryForTheDescription() {
+        ItineraryRequest request = request();
+        TripPlan precomputed = new TripPlan("Written without a description.",
+                new ArrayList<>(List.of(new TripPlan.Attraction("Belém Tower", null, 6.1, null))),
+                new ArrayList<>(List.of(new TripPlan.Flight("TAP", "EUR 240", "08:00", "10:40", "2h 40m", 0, "Economy"))),
+                new ArrayList<>());
+        hotRouteTracker.store(new HotRouteTracker.HotRoute(HotRouteKey.of(request), 10, request), precomputed);
+
+        // Without a description the precomputed plan fits as it is
+        assertSame(precomputed, service.generateTripPlan(request, CompletableFuture.completedFuture(""),
+                Deadline.after(Duration.ofSeconds(5))));
+        assertTrue(claudePrompts.isEmpty());
+
+        TripPlan tripPlan = service.generateTripPlan(request, CompletableFuture.completedFuture("Fado and seafood"),
+                Deadline.after(Duration.ofSeconds(5)));
+
+        assertEquals("Written for the description.", tripPlan.getSummary());
+        assertEquals(precomputed.getAttractions(), tripPlan.getAttractions());
+        assertEquals(precomputed.getFlights(), tripPlan.getFlights());
+        assertEquals(1, claudePrompts.size());
+        assertTrue(claudePrompts.get(0).contains("Fado and seafood"));
+        assertSame(tripPlan, tripPlanCache.getIfPresent(TripPlanKey.of(request, "Fado and seafood")).orElseThrow());
+    }
+
+    @Test
+    void recordsTheClaudeCallItsTokensAndTheSectionsThatFellBack() {
+        ItineraryRequest request = request();
+        TripPlan precomputed = new TripPlan("Written without a description.", new ArrayList<>(), new ArrayList<>(),
+                new ArrayList<>());
+        hotRouteTracker.store(new HotRouteTracker.HotRoute(HotRouteKey.of(request), 10, request), precomputed);
+
+        service.generateTripPlan(request, CompletableFuture.completedFuture("Fado"), Deadline.after(Duration.ofSeconds(5)));
+
+        assertEquals(1, meterRegistry.timer("itinerary.stage", "stage", "claude", "outcome", "success").count());
+        assertEquals(claudePrompts.get(0).length() / 4, meterRegistry.counter("claude.tokens", "type", "input").count());
+        assertTrue(meterRegistry.counter("claude.tokens", "type", "output").count() > 0);
+        assertEquals(0, meterRegistry.counter("trip.plan.fallbacks", "section", "summary").count());
+
+        claudeAnswer = null;
+        TripPlan degraded = service.generateTripPlan(request, CompletableFuture.completedFuture("Fado and seafood"),
+                Deadline.after(Duration.ofSeconds(5)));
+
+        assertEquals(List.of("summary"), degraded.getDegradedSections());
+        assertEquals(1, meterRegistry.timer("itinerary.stage", "stage", "claude", "outcome", "error").count());
+        assertEquals(1, meterRegistry.counter("trip.plan.fallbacks", "section", "summary").count());
+    }
+
+    @Test
+    void eachSectionGetsTheToolsOfItsStep() {
+        plannerProperties.getStepTools().put("attractions", List.of("brave_web_search", "maps_search_places"));
+        plannerProperties.getStepTools().put("flights", List.of("amadeus"));
+        plannerProperties.getStepTools().put("summary", List.of());
+        Deadline deadline = Deadline.after(Duration.ofSeconds(5));
+
+        service.toolsFor(EnumSet.of(PlanSection.ATTRACTIONS), deadline);
+        service.toolsFor(EnumSet.of(PlanSection.FLIGHTS, PlanSection.SUMMARY), deadline);
+        // The summary is written from what the prompt already holds
+        service.toolsFor(EnumSet.of(PlanSection.SUMMARY), deadline);
+        // A step without an entry isn't restricted
+        plannerProperties.getStepTools().remove("flights");
+        service.toolsFor(EnumSet.of(PlanSection.FLIGHTS, PlanSection.SUMMARY), deadline);
+
+        ArgumentCaptor<Collection<String>> allowlists = ArgumentCaptor.captor();
+        verify(mcpToolRegistry, times(4)).getToolCallbacks(allowlists.capture(), any());
+        assertEquals(Set.of("brave_web_search", "maps_search_places"), allowlists.getAllValues().get(0));
+        assertEquals(Set.of("amadeus"), allowlists.getAllValues().get(1));
+        assertEquals(Set.of(), allowlists.getAllValues().get(2));
+        assertNull(allowlists.getAllValues().get(3));
+    }
+
+    private ChatResponse answer(Prompt prompt) {
+        claudePrompts.add(prompt.getContents());
+        String text = claudeAnswer;
+        if (text == null) {
+            throw new IllegalStateException("Claude is unavailable");
+        }
+        DefaultUsage usage = new DefaultUsage(prompt.getContents().length() / 4, text.length() / 4);
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))),
+                ChatResponseMetadata.builder().usage(usage).build());
+    }
+
+    private static ItineraryRequest request() {
+        ItineraryRequest request = new ItineraryRequest();
+        request.setFrom("LHR");
+        request.setTo("Lisbon");
+        request.setStartDate(LocalDate.of(2026, 11, 16));
+        request.setEndDate(LocalDate.of(2026, 11, 20));
+        request.setNumberOfAdults(2);
+        return request;
+    }
+}
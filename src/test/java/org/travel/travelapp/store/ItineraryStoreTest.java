@@ -0,0 +1,121 @@
+package org.travel.travelapp.store;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItineraryStoreTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    private final MutableClock clock = new MutableClock();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void findsTheLatestVersionAcrossSegmentsAfterReopening() throws Exception {
+        try (ItineraryStore store = open()) {
+            for (int i = 0; i < 10; i++) {
+                store.append("id-" + i, json("v1 of " + i));
+            }
+            store.append("id-3", json("v2 of 3"));
+        }
+        assertTrue(segmentCount() > 1, "records should have rolled over into several segments");
+
+        try (ItineraryStore store = open()) {
+            assertEquals(text("v1 of 0"), read(store, "id-0"));
+            assertEquals(text("v2 of 3"), read(store, "id-3"));
+            assertEquals(text("v1 of 9"), read(store, "id-9"));
+            assertTrue(store.find("missing").isEmpty());
+        }
+    }
+
+    @Test
+    void compactionDeletesExpiredSegmentsAndRewritesMostlyDeadOnes() throws Exception {
+        try (ItineraryStore store = open()) {
+            for (int i = 0; i < 4; i++) {
+                store.append("old-" + i, json("old " + i));
+            }
+            clock.advance(Duration.ofDays(2));
+            for (int i = 0; i < 4; i++) {
+                store.append("new-" + i, json("new " + i));
+            }
+            // Supersede most of the new records, leaving their segments mostly dead
+            for (int i = 1; i < 4; i++) {
+                store.append("new-" + i, json("newer " + i));
+            }
+            clock.advance(Duration.ofHours(12));
+            long before = segmentCount();
+
+            store.compact();
+
+            assertTrue(segmentCount() < before);
+            assertTrue(store.find("old-0").isEmpty());
+            assertEquals(text("new 0"), read(store, "new-0"));
+            assertEquals(text("newer 3"), read(store, "new-3"));
+        }
+        try (ItineraryStore store = open()) {
+            assertTrue(store.find("old-1").isEmpty());
+            assertEquals(text("new 0"), read(store, "new-0"));
+        }
+    }
+
+    private ItineraryStore open() throws Exception {
+        return new ItineraryStore(dir, SEGMENT_SIZE, Duration.ofDays(1), 0.5, clock, new SimpleMeterRegistry());
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private static byte[] json(String text) {
+        return ("{\"summary\":\"" + text + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(String summary) {
+        return new String(json(summary), StandardCharsets.UTF_8);
+    }
+
+    private static String read(ItineraryStore store, String id) {
+        return StandardCharsets.UTF_8.decode(store.find(id).orElseThrow().json()).toString();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2025-06-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}